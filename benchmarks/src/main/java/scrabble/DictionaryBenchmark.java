@@ -0,0 +1,91 @@
+package scrabble;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures loading a word list, from its text and from its lexicon image, and looking up words.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DictionaryBenchmark {
+    private File directory;
+    private File wordList;
+    private File image;
+    private Dictionary dictionary;
+    private String[] words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("scrabble-bench").toFile();
+        wordList = new File(directory, "wordlist.txt");
+        image = new File(directory, "wordlist" + Lexicon.IMAGE_EXTENSION);
+        Files.copy(new File(Game.WORDLIST).toPath(), wordList.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        dictionary = Dictionary.shared(Game.WORDLIST);
+
+        //Every word in the list, each followed by a word that is not in it
+        List<String> list = Files.readAllLines(wordList.toPath());
+        words = new String[list.size() * 2];
+        for (int i = 0; i < list.size(); i++) {
+            words[2 * i] = list.get(i).trim();
+            words[2 * i + 1] = list.get(i).trim() + "Q";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wordList.delete();
+        image.delete();
+        directory.delete();
+    }
+
+    @State(Scope.Thread)
+    public static class TextLoad {
+        @Setup(Level.Invocation)
+        public void removeImage(DictionaryBenchmark benchmark) {
+            benchmark.image.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ImageLoad {
+        @Setup(Level.Iteration)
+        public void writeImage(DictionaryBenchmark benchmark) {
+            if (!benchmark.image.isFile()) new Dictionary().loadFromFile(benchmark.wordList.getPath());
+        }
+    }
+
+    @Benchmark
+    public Dictionary loadFromText(TextLoad load) {
+        Dictionary loaded = new Dictionary();
+        loaded.loadFromFile(wordList.getPath());
+        return loaded;
+    }
+
+    @Benchmark
+    public Dictionary loadFromImage(ImageLoad load) {
+        Dictionary loaded = new Dictionary();
+        loaded.loadFromFile(wordList.getPath());
+        return loaded;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean isValidWord() {
+        String word = words[next];
+        next = next + 1 == words.length ? 0 : next + 1;
+        return dictionary.isValidWord(word);
+    }
+}
@@ -0,0 +1,54 @@
+package scrabble;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures recording a turn as an undoable action, and undoing and redoing it,
+ * on fixed mid-game positions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+    @Param({"1", "2", "3"})
+    public long seed;
+
+    @Param({"10"})
+    public int turns;
+
+    private Game game;
+    private AIMove move;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = Positions.midGame(seed, turns);
+        move = Positions.bestMove(game);
+    }
+
+    /**
+     * Plays a turn as a new undoable action and undoes it, leaving the game as it was.
+     */
+    @Benchmark
+    public GameHistory playAndUndo() {
+        game.markUndoPoint();
+        game.placeAIMove(move, game.getFirstTurn());
+        game.undo();
+        game.clearRedoStack();
+        return game.getHistory();
+    }
+
+    /**
+     * Undoes the last turn played and redoes it.
+     */
+    @Benchmark
+    public GameHistory undoRedo() {
+        game.undo();
+        game.redo();
+        return game.getHistory();
+    }
+}
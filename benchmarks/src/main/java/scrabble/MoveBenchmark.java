@@ -0,0 +1,80 @@
+package scrabble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures checking, scoring and searching for moves on fixed mid-game positions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+    @Param({"1", "2", "3"})
+    public long seed;
+
+    @Param({"10"})
+    public int turns;
+
+    private Game game;
+    private AIPlayer ai;
+    private AIPlayer cached;
+    private List<AIMove> moves;
+    private List<List<Tile>> placements;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = Positions.midGame(seed, turns);
+        ai = Positions.searcher(game);
+        cached = Positions.searcher(game);
+        cached.setMoveCache(new MoveCache());
+        cached.getBestMove(game.getDictionary(), game.getBoard(), game.getFirstTurn());
+        moves = Positions.candidates(game);
+        placements = new ArrayList<>();
+        for (AIMove move : moves) {
+            placements.add(Positions.tiles(move, game.getBoard()));
+        }
+        if (moves.isEmpty()) throw new IllegalStateException("The position for seed " + seed + " has no moves.");
+    }
+
+    private int next() {
+        int index = next;
+        next = next + 1 == moves.size() ? 0 : next + 1;
+        return index;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean isValidPlacement() {
+        AIMove move = moves.get(next());
+        return game.getBoard().isValidPlacement(move.word(), move.startRow(), move.startCol(), move.isHorizontal(), game.getFirstTurn());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object analyzeMove() {
+        try {
+            return Game.analyzeMove(game.getBoard(), game.getDictionary(), placements.get(next()), game.getFirstTurn());
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public AIMove getBestMove() {
+        return ai.getBestMove(game.getDictionary(), game.getBoard(), game.getFirstTurn());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public AIMove getCachedMove() {
+        return cached.getBestMove(game.getDictionary(), game.getBoard(), game.getFirstTurn());
+    }
+}
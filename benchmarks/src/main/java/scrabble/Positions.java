@@ -0,0 +1,92 @@
+package scrabble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the fixed mid-game positions the benchmarks run on.
+ *
+ * A position is a game between two players whose tile bag is seeded,
+ * where each player has played the best move for a number of turns. The same seed
+ * always gives the same position, so results can be compared between runs.
+ */
+final class Positions {
+    private Positions() {
+    }
+
+    /**
+     * Plays the best move for each turn of a seeded game, with every turn recorded
+     * as an undoable action.
+     *
+     * @param seed  the seed of the tile bag
+     * @param turns the number of turns to play
+     * @return the game after the turns
+     */
+    static Game midGame(long seed, int turns) {
+        Game game = new Game(seed);
+        game.addPlayer("Player 1");
+        game.addPlayer("Player 2");
+        for (Player player : game.getPlayers()) {
+            player.addTile(game.getTileBag());
+        }
+        for (int i = 0; i < turns && !game.isGameOver(); i++) {
+            game.markUndoPoint();
+            game.placeAIMove(bestMove(game), game.getFirstTurn());
+        }
+        return game;
+    }
+
+    /**
+     * @param game the game to search
+     * @return the best move for the current player's hand, or null if there is none
+     */
+    static AIMove bestMove(Game game) {
+        return searcher(game).getBestMove(game.getDictionary(), game.getBoard(), game.getFirstTurn());
+    }
+
+    /**
+     * @param game the game to search
+     * @return an AI player holding a copy of the current player's hand, which searches every
+     *         time rather than answering a position it has seen from its move cache
+     */
+    static AIPlayer searcher(Game game) {
+        AIPlayer ai = new AIPlayer("Searcher");
+        ai.setMoveCache(new MoveCache(0));
+        for (Tile tile : game.getCurrentPlayer().getHand()) {
+            ai.addTile(tile);
+        }
+        return ai;
+    }
+
+    /**
+     * @param game the game to search
+     * @return every move the current player's hand can form, valid or not
+     */
+    static List<AIMove> candidates(Game game) {
+        MoveGenerator generator = new MoveGenerator(game.getDictionary().getLexicon(), game.getBoard(), game.getFirstTurn());
+        return generator.generate(game.getCurrentPlayer().getHand());
+    }
+
+    /**
+     * Turns a move into the tiles it places, with their coordinates set.
+     *
+     * @param move  the move
+     * @param board the board it is played on
+     * @return the new tiles, not yet on the board
+     */
+    static List<Tile> tiles(AIMove move, Board board) {
+        List<Tile> tiles = new ArrayList<>();
+        int row = move.startRow(), col = move.startCol();
+        for (int i = 0; i < move.word().length(); i++) {
+            if (board.getTile(row, col) == null) {
+                char letter = move.word().charAt(i);
+                Tile tile = new Tile(letter, ScrabbleLetters.get(letter).getScore());
+                tile.setCoords(row, col);
+                tiles.add(tile);
+            }
+            if (move.isHorizontal()) col++;
+            else row++;
+        }
+        return tiles;
+    }
+}
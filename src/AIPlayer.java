@@ -1,9 +1,64 @@
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
 
 public class AIPlayer extends Player implements Serializable {
     private static final long serialVersionUID = 1L;
-    
+    public static final long DEFAULT_BUDGET_MILLIS = Long.getLong("scrabble.ai.budgetMillis", 0);
+    public static final int DEFAULT_ROLLOUTS = Integer.getInteger("scrabble.ai.rollouts", 0);
+    //Moves are simulated once this few tiles are left in the bag
+    public static final int SIMULATE_BAG = Integer.getInteger("scrabble.ai.simulateBag", Player.HAND_SIZE);
+    //The number of moves with the highest equity that are simulated
+    public static final int CANDIDATES = 8;
+    public static final long DEFAULT_ENDGAME_MILLIS = Long.getLong("scrabble.ai.endgameMillis", 0);
+
+    private long budgetMillis;
+    private int rollouts;
+    private long endgameMillis;
+    //Lent to one endgame search at a time, since a solver is not thread-safe
+    private transient EndgameSolver endgame;
+    private transient MoveCache moveCache;
+    private transient LeaveTable leaves;
+    private transient volatile SearchReport lastSearch;
+
+    /**
+     * The result of a time-budgeted search, along with how much of the search it covered.
+     *
+     * @param move          the best move found, or null if none was found
+     * @param score         the score of the move, or -1 if none was found
+     * @param linesSearched the number of rows and columns moves were generated for, out of MoveGenerator.LINES
+     * @param generated     the number of candidate moves generated
+     * @param scored        the number of candidates scored
+     * @param pruned        the number of candidates skipped because they could not beat the best move
+     * @param depth         the largest number of tiles for which every candidate was scored or skipped
+     * @param complete      whether the search finished, in which case the move is the one getBestMove would choose
+     * @param elapsedNanos  how long the search took
+     */
+    public record SearchReport(AIMove move, int score, int linesSearched, int generated, int scored, int pruned,
+                               int depth, boolean complete, long elapsedNanos) {
+        /**
+         * @return the fraction of the search that was covered, from 0 to 1
+         */
+        public double coverage() {
+            double lines = (double) linesSearched / MoveGenerator.LINES;
+            return generated == 0 ? lines : lines * (scored + pruned) / generated;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d pts) in %.1f ms: %d/%d lines, %d/%d candidates scored, %d pruned, all %d-tile moves checked, %.0f%% covered",
+                    move == null ? "no move" : move.word(), score, elapsedNanos / 1_000_000.0, linesSearched, MoveGenerator.LINES,
+                    scored, generated, pruned, depth, coverage() * 100);
+        }
+    }
+
     /**
      * Constructs a new AIPlayer as a child of Player
      * 
@@ -11,76 +66,144 @@ public class AIPlayer extends Player implements Serializable {
      */
     public AIPlayer(String name) {
         super(name);
+        budgetMillis = DEFAULT_BUDGET_MILLIS;
+        rollouts = DEFAULT_ROLLOUTS;
+        endgameMillis = DEFAULT_ENDGAME_MILLIS;
     }
 
+    /**
+     * Sets how long the AIPlayer may think about each move. With a budget, moves are chosen by
+     * an anytime search that plays the best move found when time runs out.
+     *
+     * @param budgetMillis the time allowed per move in milliseconds, or 0 to always search the whole board
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    public long getBudgetMillis() { return this.budgetMillis; }
+
+    /**
+     * Sets how many rollouts the AIPlayer simulates near the end of the game. Once SIMULATE_BAG
+     * or fewer tiles are left in the bag, the moves with the highest equity are played out
+     * against the racks the opponent might hold, and the one with the best average spread is chosen.
+     *
+     * @param rollouts the number of rollouts per move, or 0 to never simulate
+     */
+    public void setRollouts(int rollouts) {
+        this.rollouts = rollouts;
+    }
+
+    public int getRollouts() { return this.rollouts; }
+
+    /**
+     * Sets how long the AIPlayer may spend solving the endgame. Once the bag is empty the
+     * opponent's rack is known, and the rest of the game is searched for the best spread.
+     *
+     * @param endgameMillis the time allowed per endgame move in milliseconds, or 0 to never solve
+     */
+    public void setEndgameMillis(long endgameMillis) {
+        this.endgameMillis = endgameMillis;
+    }
+
+    public long getEndgameMillis() { return this.endgameMillis; }
+
+    /**
+     * Sets the values of the tiles the AIPlayer keeps after a move. Moves are chosen by their
+     * score plus the value of the tiles they keep.
+     *
+     * @param leaves the leave values, or null to use the shared table
+     */
+    public void setLeaveTable(LeaveTable leaves) {
+        this.leaves = leaves;
+    }
+
+    public LeaveTable getLeaveTable() { return this.leaves == null ? LeaveTable.shared() : this.leaves; }
+
+    /**
+     * Sets the cache of moves found for positions the AIPlayer has already searched, which
+     * several players may share.
+     *
+     * @param moveCache the cache, or null to start a new one of MoveCache.DEFAULT_CAPACITY positions
+     */
+    public synchronized void setMoveCache(MoveCache moveCache) {
+        this.moveCache = moveCache;
+    }
+
+    public synchronized MoveCache getMoveCache() {
+        if (this.moveCache == null) this.moveCache = new MoveCache();
+        return this.moveCache;
+    }
+
+    /**
+     * @return the report of the last time-budgeted search, or null if there has not been one
+     */
+    public SearchReport getLastSearch() { return this.lastSearch; }
+
     /**
      * Determines the score a certain word placement would earn.
+     * The tiles are placed on the scorer's overlay rather than the board, so nothing is created or changed.
      * 
-     * @param word              The word to be placed
-     * @param row               The starting row of the word
-     * @param col               The starting coloumn of the word
-     * @param isHorizontal      Whether the word is horizontal or vertical
+     * @param move              The word placement to score
      * @param board             The board that the word is placed on
-     * @param dictionary        The dictionary that contains the list of eligible words
+     * @param scorer            The scorer used to validate and score the placement
      * @param firstTurn         Checks whether it's the first turn or not
-     * @param letterFrequency   A map determining how many of each letter the AIPlayer has
+     * @param letterFrequency   How many of each letter the AIPlayer has, indexed from 'A'
      * @param totalBlanks       The number of blanks in the AIPlayer's hand
-     * @return  The score the mainWord would earn
+     * @param needed            Space for counting the letters the placement needs, LeaveTable.TYPES long.
+     *                          If the placement is valid it is left holding the tiles the hand keeps.
+     * @return  The score the mainWord would earn, or -1 if it cannot be played
      */
-    private int getSimulatedScore(String word, int row, int col, boolean isHorizontal, Board board, Dictionary dictionary, boolean firstTurn, Map<Character, Integer> letterFrequency, int totalBlanks) {
+    private static int getSimulatedScore(AIMove move, Board board, MoveScorer scorer, boolean firstTurn, int[] letterFrequency, int totalBlanks, int[] needed) {
+        String word = move.word();
         //Geometry and overlap check
-        if (!board.isValidPlacement(word, row, col, isHorizontal, firstTurn)) return -1;
+        if (!board.isValidPlacement(word, move.startRow(), move.startCol(), move.isHorizontal(), firstTurn)) return -1;
 
         //Check which tiles we need to place from our hand
-        List<Tile> tempTiles = new ArrayList<>();
-        Map<Character, Integer> needed = new HashMap<>();
-        int r = row, c = col;
+        scorer.reset(board);
+        Arrays.fill(needed, 0);
+        int r = move.startRow(), c = move.startCol();
 
         for (int i = 0; i < word.length(); i++) {
             if (board.getTile(r, c) == null) {
                 char letter = word.charAt(i);
-                needed.put(letter, needed.getOrDefault(letter, 0) + 1);
+                needed[letter - 'A']++;
 
-                //Create a temporary tile for simulation
-                Tile tile = new Tile(letter, ScrabbleLetters.get(letter).getScore());
-                tile.setCoords(r, c);
-                tempTiles.add(tile);
+                //Simulated tiles score their full letter value
+                scorer.place(r, c, letter, ScrabbleLetters.get(letter).getScore());
             }
-            if (isHorizontal) c++;
+            if (move.isHorizontal()) c++;
             else r++;
         }
 
-        if (tempTiles.isEmpty()) return -1; //Move uses 0 tiles
+        if (scorer.size() == 0) return -1; //Move uses 0 tiles
 
         //Check if our hand actually has these tiles
         int blanks = totalBlanks;
-        for (Map.Entry<Character, Integer> entry : needed.entrySet()) {
-            int have = letterFrequency.getOrDefault(entry.getKey(), 0);
-            if (have < entry.getValue()) {
-                int missing = entry.getValue() - have;
+        for (int letter = 0; letter < Lexicon.ALPHABET; letter++) {
+            int missing = needed[letter] - letterFrequency[letter];
+            if (missing > 0) {
                 if (blanks >= missing) blanks -= missing;
                 else return -1;
             }
         }
 
-        //Simulate placing down tiles and ask game logic to validate
-        for (Tile tile : tempTiles) board.placeTile(tile.getX(), tile.getY(), tile);
+        //Ask the scorer to validate and score the placement
+        int score = scorer.score(firstTurn);
 
-        int score = -1;
-        try { //Check everything
-            score = Game.analyzeMove(board, dictionary, tempTiles, firstTurn).totalScore();
-        }
-        catch (IllegalArgumentException _) { //Move is invalid
-        }
-        finally {
-            for (Tile tile : tempTiles) board.removeTile(tile.getX(), tile.getY());
+        //Work out the leave, the tiles the hand keeps
+        for (int letter = 0; letter < Lexicon.ALPHABET; letter++) {
+            needed[letter] = Math.max(letterFrequency[letter] - needed[letter], 0);
         }
-
+        needed[LeaveTable.BLANK] = blanks;
         return score;
     }
 
     /**
-     * Determines the best mainWord the AIPlayer can make
+     * Determines the best mainWord the AIPlayer can make.
+     * Candidate moves come from a MoveGenerator, so only words the hand can actually
+     * form around the existing tiles are scored. Each move is worth its score plus the
+     * value of the tiles it leaves in the hand, from the AIPlayer's LeaveTable.
      * 
      * @param dictionary    The dictionary that contains the list of eligible words
      * @param board         The board that the word is placed on
@@ -88,40 +211,521 @@ public class AIPlayer extends Player implements Serializable {
      * @return  The mainWord that would earn the most points
      */
     public AIMove getBestMove(Dictionary dictionary, Board board, boolean firstTurn) {
-        Set<String> wordlist = dictionary.getWords();
+        List<Tile> hand = this.getHand();
+        LeaveTable leaves = getLeaveTable();
+        return cachedMove(dictionary, board, firstTurn, hand, leaves,
+                () -> getBestMove(dictionary, board, firstTurn, hand, leaves, 0, MoveGenerator.LINES, new Cancellation()).move());
+    }
+
+    /**
+     * Determines the best mainWord the AIPlayer can make, searching the board's rows and columns
+     * in parallel on the given pool. The tasks search their own lines of a private copy of the
+     * board, so the board passed in is never shared between threads. Results are joined in line
+     * order, so the move is the same one getBestMove would choose.
+     *
+     * @param dictionary    The dictionary that contains the list of eligible words
+     * @param board         The board that the word is placed on
+     * @param firstTurn     Checks whether it's the first turn or not
+     * @param pool          The pool to run the search on
+     * @return  The mainWord that would earn the most points
+     */
+    public AIMove getBestMove(Dictionary dictionary, Board board, boolean firstTurn, ForkJoinPool pool) {
+        Board view = new Board(board);
+        List<Tile> hand = List.copyOf(this.getHand());
+        LeaveTable leaves = getLeaveTable();
+        return cachedMove(dictionary, view, firstTurn, hand, leaves,
+                () -> {
+                    Cancellation cancellation = new Cancellation();
+                    return cancellation.invoke(pool, new SearchTask(dictionary, view, firstTurn, hand, leaves, 0, MoveGenerator.LINES, cancellation)).move();
+                });
+    }
+
+    /**
+     * Finds the moves with the highest equity, as a hint or to choose between. Positions that
+     * have been searched before are answered from the move cache.
+     *
+     * @param dictionary    The dictionary that contains the list of eligible words
+     * @param board         The board that the word is placed on
+     * @param firstTurn     Checks whether it's the first turn or not
+     * @param count         The most moves to return
+     * @return  Up to count moves, best first, keeping generation order on a tie
+     */
+    public List<AIMove> getTopMoves(Dictionary dictionary, Board board, boolean firstTurn, int count) {
+        return cachedMoves(dictionary, board, firstTurn, List.copyOf(this.getHand()), getLeaveTable(), count);
+    }
+
+    /**
+     * Prepares a search for the best mainWord that can run on another thread. The board and hand
+     * are copied now, so the game can go on changing them while the search runs. Interrupting
+     * the thread running the search, as cancelling its Future does, stops it and every task it
+     * started on the pool with a CancellationException, and nothing it found is cached.
+     *
+     * @param dictionary    The dictionary that contains the list of eligible words
+     * @param board         The board that the word is placed on
+     * @param firstTurn     Checks whether it's the first turn or not
+     * @param bagSize       The number of tiles left in the bag
+     * @param pool          The pool to search in parallel on, or null to search on the calling thread
+     * @return  The search, which returns the mainWord that would earn the most points
+     */
+    public Callable<AIMove> prepareMove(Dictionary dictionary, Board board, boolean firstTurn, int bagSize, ForkJoinPool pool) {
+        Board view = new Board(board);
+        List<Tile> hand = List.copyOf(this.getHand());
+        return () -> chooseMove(dictionary, view, firstTurn, hand, bagSize, pool);
+    }
+
+    /**
+     * Chooses the mainWord to play. Near the end of the game the best candidates are simulated if
+     * the AIPlayer has rollouts, otherwise an anytime search is used if it has a time budget.
+     *
+     * @param dictionary    The dictionary that contains the list of eligible words
+     * @param board         The board that the word is placed on
+     * @param firstTurn     Checks whether it's the first turn or not
+     * @param bagSize       The number of tiles left in the bag
+     * @param pool          The pool to search in parallel on, or null to search on the calling thread
+     * @return  The mainWord to play, or null if there is none
+     */
+    public AIMove chooseMove(Dictionary dictionary, Board board, boolean firstTurn, int bagSize, ForkJoinPool pool) {
+        return chooseMove(dictionary, board, firstTurn, this.getHand(), bagSize, pool);
+    }
+
+    private AIMove chooseMove(Dictionary dictionary, Board board, boolean firstTurn, List<Tile> hand, int bagSize, ForkJoinPool pool) {
+        Cancellation cancellation = new Cancellation();
+        LeaveTable leaves = getLeaveTable();
+        if (endgameMillis > 0 && !firstTurn && bagSize == 0) {
+            EndgameSolver.Result result = solveEndgame(dictionary, board, hand, System.nanoTime() + endgameMillis * 1_000_000);
+            //An interrupted solver stops early, so its move is not the one it was asked for
+            cancellation.check();
+            if (result != null) return result.move();
+        }
+        if (rollouts > 0 && !firstTurn && bagSize <= SIMULATE_BAG) {
+            List<AIMove> candidates = cachedMoves(dictionary, board, false, hand, leaves, CANDIDATES);
+            return MoveSimulator.simulate(dictionary.getLexicon(), board, hand, bagSize, candidates, rollouts, seed(board, hand), pool).move();
+        }
+
+        long key = MoveCache.key(board, hand, firstTurn);
+        Lexicon lexicon = dictionary.getLexicon();
+        MoveCache cache = getMoveCache();
+        List<AIMove> cached = cache.get(key, lexicon, leaves, 1);
+        if (cached != null) return cached.isEmpty() ? null : cached.getFirst();
+
+        AIMove move;
+        boolean complete = true;
+        if (budgetMillis > 0) {
+            lastSearch = search(dictionary, board, firstTurn, hand, leaves, System.nanoTime() + budgetMillis * 1_000_000);
+            move = lastSearch.move();
+            //Only a finished search is sure to have found the best move
+            complete = lastSearch.complete();
+        }
+        else if (pool != null) move = cancellation.invoke(pool, new SearchTask(dictionary, board, firstTurn, hand, leaves, 0, MoveGenerator.LINES, cancellation)).move();
+        else move = getBestMove(dictionary, board, firstTurn, hand, leaves, 0, MoveGenerator.LINES, cancellation).move();
+        if (complete) cache.put(key, lexicon, leaves, move == null ? List.of() : List.of(move), 1);
+        return move;
+    }
+
+    /**
+     * Answers a search for the best move from the move cache, or runs it and caches its move.
+     */
+    private AIMove cachedMove(Dictionary dictionary, Board board, boolean firstTurn, List<Tile> hand, LeaveTable leaves, Supplier<AIMove> search) {
+        long key = MoveCache.key(board, hand, firstTurn);
+        Lexicon lexicon = dictionary.getLexicon();
+        MoveCache cache = getMoveCache();
+        List<AIMove> cached = cache.get(key, lexicon, leaves, 1);
+        if (cached != null) return cached.isEmpty() ? null : cached.getFirst();
+
+        AIMove move = search.get();
+        cache.put(key, lexicon, leaves, move == null ? List.of() : List.of(move), 1);
+        return move;
+    }
+
+    /**
+     * Finds the moves with the highest equity from the move cache, or searches for them and caches them.
+     */
+    private List<AIMove> cachedMoves(Dictionary dictionary, Board board, boolean firstTurn, List<Tile> hand, LeaveTable leaves, int count) {
+        long key = MoveCache.key(board, hand, firstTurn);
+        Lexicon lexicon = dictionary.getLexicon();
+        MoveCache cache = getMoveCache();
+        List<AIMove> moves = cache.get(key, lexicon, leaves, count);
+        if (moves == null) {
+            moves = candidates(dictionary, board, firstTurn, hand, leaves, count);
+            cache.put(key, lexicon, leaves, moves, count);
+        }
+        return moves;
+    }
+
+    /**
+     * Simulates the moves with the highest equity and reports the average spread of each.
+     * The same position always gives the same result.
+     *
+     * @param dictionary    The dictionary that contains the list of eligible words
+     * @param board         The board that the word is placed on
+     * @param bagSize       The number of tiles left in the bag
+     * @param rollouts      The number of rollouts per move
+     * @param pool          The pool to play rollouts on, or null to play them on the calling thread
+     * @return  The move with the best average spread, and the spread of every candidate
+     */
+    public MoveSimulator.Result simulate(Dictionary dictionary, Board board, int bagSize, int rollouts, ForkJoinPool pool) {
+        List<Tile> hand = List.copyOf(this.getHand());
+        List<AIMove> candidates = cachedMoves(dictionary, board, false, hand, getLeaveTable(), CANDIDATES);
+        return MoveSimulator.simulate(dictionary.getLexicon(), board, hand, bagSize, candidates, rollouts, seed(board, hand), pool);
+    }
+
+    /**
+     * Solves the endgame, once the bag is empty, for the move with the best final spread.
+     *
+     * @param dictionary    The dictionary that contains the list of eligible words
+     * @param board         The board that the word is placed on
+     * @param millis        How long the solver may take, in milliseconds
+     * @return  The move to play, with null meaning a pass, and the spread it leads to, or null if
+     *          the opponent's rack is not known because more than one rack of tiles is unseen
+     */
+    public EndgameSolver.Result solveEndgame(Dictionary dictionary, Board board, long millis) {
+        return solveEndgame(dictionary, board, List.copyOf(this.getHand()), System.nanoTime() + millis * 1_000_000);
+    }
+
+    private EndgameSolver.Result solveEndgame(Dictionary dictionary, Board board, List<Tile> hand, long deadline) {
+        int[] rack = MoveSimulator.counts(hand);
+        int[] opponent = MoveSimulator.unseen(board, rack);
+        if (Arrays.stream(opponent).sum() > Player.HAND_SIZE) return null;
+
+        //The solver keeps its table from one move to the next, unless another search still has it
+        EndgameSolver solver = borrowSolver(dictionary.getLexicon());
+        try {
+            return solver.solve(board, rack, opponent, deadline);
+        }
+        finally {
+            returnSolver(solver);
+        }
+    }
+
+    /**
+     * Takes the AIPlayer's endgame solver for one search, or makes a new one if another search
+     * has it or it checks a different lexicon.
+     */
+    private synchronized EndgameSolver borrowSolver(Lexicon lexicon) {
+        EndgameSolver solver = endgame;
+        endgame = null;
+        return solver != null && solver.getLexicon() == lexicon ? solver : new EndgameSolver(lexicon);
+    }
+
+    private synchronized void returnSolver(EndgameSolver solver) {
+        endgame = solver;
+    }
+
+    /**
+     * Stops a search once the thread that started it is interrupted. Interrupting the thread
+     * does not reach the tasks it started on a pool, so it waits for them through invoke,
+     * which passes the interrupt on to every task that checks this cancellation.
+     */
+    static final class Cancellation {
+        private final Thread searcher = Thread.currentThread();
+        private volatile boolean cancelled;
+
+        /**
+         * @throws CancellationException if the search has been cancelled
+         */
+        void check() {
+            if (cancelled || searcher.isInterrupted()) throw new CancellationException("The search was cancelled.");
+        }
+
+        /**
+         * Runs a task on a pool and waits for it. Unlike ForkJoinPool.invoke, the wait ends
+         * when the searching thread is interrupted, and the task is cancelled.
+         *
+         * @return the result of the task
+         * @throws CancellationException if the search is cancelled
+         */
+        <T> T invoke(ForkJoinPool pool, ForkJoinTask<T> task) {
+            try {
+                return pool.submit(task).get();
+            }
+            catch (InterruptedException e) {
+                cancelled = true;
+                searcher.interrupt();
+                throw new CancellationException("The search was cancelled.");
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Finds the moves with the highest equity, best first, keeping generation order on a tie.
+     */
+    private static List<AIMove> candidates(Dictionary dictionary, Board board, boolean firstTurn, List<Tile> hand, LeaveTable leaves, int count) {
+        int[] letterFrequency = new int[Lexicon.ALPHABET];
+        int[] needed = new int[LeaveTable.TYPES];
+        int blankCount = 0;
+        for (Tile tile : hand) {
+            if (tile.getScore() == 0 || tile.getLetter() == ' ') blankCount++;
+            else letterFrequency[tile.getLetter() - 'A']++;
+        }
+
+        Lexicon lexicon = dictionary.getLexicon();
+        MoveScorer scorer = new MoveScorer(lexicon);
+        List<AIMove> moves = new MoveGenerator(lexicon, board, firstTurn).generate(hand);
+        new Cancellation().check();
+        long[] order = new long[moves.size()];
+        int legal = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int score = getSimulatedScore(moves.get(i), board, scorer, firstTurn, letterFrequency, blankCount, needed);
+            if (score < 0) continue;
+            int equity = score * LeaveTable.SCALE + leaves.value(needed);
+            order[legal++] = (long) -equity << 24 | i;
+        }
+        Arrays.sort(order, 0, legal);
+
+        List<AIMove> candidates = new ArrayList<>(Math.min(count, legal));
+        for (int i = 0; i < Math.min(count, legal); i++) {
+            candidates.add(moves.get((int) (order[i] & 0xFFFFFF)));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return a seed for the simulation of a position, from the tiles on the board and in the hand
+     */
+    private static long seed(Board board, List<Tile> hand) {
+        long seed = 0;
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                seed = seed * 31 + board.getLetter(row, col);
+            }
+        }
+        for (Tile tile : hand) seed = seed * 31 + tile.getLetter();
+        return seed;
+    }
+
+    /**
+     * Searches for the best mainWord until the time budget runs out, then returns the best one found.
+     *
+     * Moves are generated one line at a time, then scored in order of a cheap upper bound on their
+     * score, so the moves most likely to be best are scored first, and moves whose bound cannot
+     * beat the best move so far are skipped. The search always goes on until it has found a move
+     * if there is one, even past the budget, so it only passes when the hand cannot play. If the
+     * search finishes, the move is the same one getBestMove would choose.
+     *
+     * @param dictionary    The dictionary that contains the list of eligible words
+     * @param board         The board that the word is placed on
+     * @param firstTurn     Checks whether it's the first turn or not
+     * @param budgetMillis  How long the search may take, in milliseconds
+     * @return  The best move found and how much of the search was covered
+     */
+    public SearchReport search(Dictionary dictionary, Board board, boolean firstTurn, long budgetMillis) {
+        return search(dictionary, board, firstTurn, this.getHand(), getLeaveTable(), System.nanoTime() + budgetMillis * 1_000_000);
+    }
+
+    private static SearchReport search(Dictionary dictionary, Board board, boolean firstTurn, List<Tile> hand, LeaveTable leaves, long deadline) {
+        long start = System.nanoTime();
+        Cancellation cancellation = new Cancellation();
+        Lexicon lexicon = dictionary.getLexicon();
+
+        //Generate candidates line by line so a large lexicon cannot overrun the deadline
+        MoveGenerator generator = new MoveGenerator(lexicon, board, firstTurn);
+        List<AIMove> moves = new ArrayList<>();
+        int lines = 0;
+        while (lines < MoveGenerator.LINES && (System.nanoTime() < deadline || moves.isEmpty())) {
+            cancellation.check();
+            moves.addAll(generator.generate(hand, lines, lines + 1));
+            lines++;
+        }
+
+        //Order by highest bound, then by generation order
+        int[] tiles = new int[moves.size()];
+        int[] bounds = new int[moves.size()];
+        long[] order = new long[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            bounds[i] = upperBound(moves.get(i), board);
+            tiles[i] = bounds[i] & 0xF;
+            bounds[i] >>>= 4;
+            order[i] = (long) (Integer.MAX_VALUE - bounds[i]) << 24 | i;
+        }
+        Arrays.sort(order);
+
+        //Pre-calculate hand frequency
+        int[] letterFrequency = new int[Lexicon.ALPHABET];
+        int[] needed = new int[LeaveTable.TYPES];
+        int blankCount = 0;
+        for (Tile tile : hand) {
+            if (tile.getScore() == 0 || tile.getLetter() == ' ') blankCount++;
+            else letterFrequency[tile.getLetter() - 'A']++;
+        }
+
+        MoveScorer scorer = new MoveScorer(lexicon);
+        int best = -1, bestScore = -1, maxEquity = Integer.MIN_VALUE, scored = 0, pruned = 0;
+        int depth = Player.HAND_SIZE;
+        for (int i = 0; i < order.length; i++) {
+            int index = (int) (order[i] & 0xFFFFFF);
+            //A move can only replace the best one with a higher equity, or an equal equity found earlier
+            int bound = bounds[index] * LeaveTable.SCALE + leaves.maxValue();
+            if (bound < maxEquity || (bound == maxEquity && index > best)) {
+                pruned++;
+                continue;
+            }
+            //Once out of time, stop as soon as there is a move to play
+            if (best != -1 && System.nanoTime() >= deadline) {
+                for (int j = i; j < order.length; j++) depth = Math.min(depth, tiles[(int) (order[j] & 0xFFFFFF)] - 1);
+                break;
+            }
+            cancellation.check();
+            int score = getSimulatedScore(moves.get(index), board, scorer, firstTurn, letterFrequency, blankCount, needed);
+            scored++;
+            if (score < 0) continue;
+            int equity = score * LeaveTable.SCALE + leaves.value(needed);
+            if (equity > maxEquity || (equity == maxEquity && index < best)) {
+                maxEquity = equity;
+                bestScore = score;
+                best = index;
+            }
+        }
+
+        boolean complete = lines == MoveGenerator.LINES && scored + pruned == moves.size();
+        return new SearchReport(best == -1 ? null : moves.get(best), bestScore, lines, moves.size(), scored, pruned,
+                Math.max(depth, 0), complete, System.nanoTime() - start);
+    }
+
+    /**
+     * Computes a cheap upper bound on the score of a move, using only letter values and premium squares.
+     * Every word the move forms is counted at its highest possible value, then multiplied by one plus
+     * the extra word multiples of the word premium squares it covers.
+     *
+     * @param move  The move to bound
+     * @param board The board that the word is placed on
+     * @return  The bound shifted left by 4 bits, with the number of tiles the move places in the low 4 bits
+     */
+    private static int upperBound(AIMove move, Board board) {
+        int row = move.startRow(), col = move.startCol();
+        int dRow = move.isHorizontal() ? 1 : 0, dCol = move.isHorizontal() ? 0 : 1;
+        int words = 0, multiples = 0, tiles = 0;
+
+        for (int i = 0; i < move.word().length(); i++) {
+            if (board.getLetter(row, col) != 0) {
+                words += board.getScore(row, col);
+            }
+            else {
+                int value = ScrabbleLetters.get(move.word().charAt(i)).getScore();
+                switch (Board.premiumTiles[row][col]) {
+                    case DL -> value *= 2;
+                    case TL -> value *= 3;
+                    case DW -> { value *= 2; multiples += 1; }
+                    case TW -> { value *= 3; multiples += 2; }
+                    default -> { }
+                }
+                words += value;
+                tiles++;
+
+                //Tiles above and below (or left and right) form a cross word
+                int cross = 0;
+                boolean touches = false;
+                for (int r = row - dRow, c = col - dCol; board.getLetter(r, c) != 0; r -= dRow, c -= dCol) {
+                    cross += board.getScore(r, c);
+                    touches = true;
+                }
+                for (int r = row + dRow, c = col + dCol; board.getLetter(r, c) != 0; r += dRow, c += dCol) {
+                    cross += board.getScore(r, c);
+                    touches = true;
+                }
+                if (touches) words += cross + value;
+            }
+            if (move.isHorizontal()) col++;
+            else row++;
+        }
+
+        return words * (1 + multiples) << 4 | tiles;
+    }
+
+    /**
+     * The best move found in a range of lines with its equity, its score in tenths of a point plus
+     * the value of its leave, or a null move with the lowest equity if there is none.
+     */
+    private record Candidate(AIMove move, int equity) {
+        /**
+         * Picks the better of two candidates, keeping this one on a tie.
+         * This one must come from earlier lines than the other.
+         */
+        Candidate orLater(Candidate later) {
+            return later.equity > this.equity ? later : this;
+        }
+    }
+
+    /**
+     * Searches a range of lines for the best move, keeping the first move found on a tie.
+     * The search stops between lines once the thread that started it is interrupted.
+     */
+    private static Candidate getBestMove(Dictionary dictionary, Board board, boolean firstTurn, List<Tile> hand, LeaveTable leaves,
+                                         int from, int to, Cancellation cancellation) {
         AIMove bestAIMove = null;
-        int maxScore = -1;
+        int maxEquity = Integer.MIN_VALUE;
 
         //Pre-calculate hand frequency
-        Map<Character, Integer> letterFrequency = new HashMap<>();
+        int[] letterFrequency = new int[Lexicon.ALPHABET];
+        int[] needed = new int[LeaveTable.TYPES];
         int blankCount = 0;
 
-        for (Tile tile : this.getHand()) {
+        for (Tile tile : hand) {
             if (tile.getScore() == 0 || tile.getLetter() == ' ') blankCount++;
-            else letterFrequency.put(tile.getLetter(), letterFrequency.getOrDefault(tile.getLetter(), 0) + 1);
-        }
-
-        //Iterate through every word in the dictionary
-        for (String word : wordlist) {
-            for (int row = 0; row < Board.SIZE; row++) {
-                for (int col = 0; col < Board.SIZE; col++) {
-                    //Try horizontal
-                    int horizontalScore = getSimulatedScore(word, row, col, true, board, dictionary, firstTurn, letterFrequency, blankCount);
-                    if (horizontalScore > maxScore) {
-                        maxScore = horizontalScore;
-                        bestAIMove = new AIMove(word, row, col, true);
-                    }
-                    //Try vertical
-                    int verticalScore = getSimulatedScore(word, row, col, false, board, dictionary, firstTurn, letterFrequency, blankCount);
-                    if (verticalScore > maxScore) {
-                        maxScore = verticalScore;
-                        bestAIMove = new AIMove(word, row, col, false);
-                    }
+            else letterFrequency[tile.getLetter() - 'A']++;
+        }
 
+        //Score every move the hand can make from an anchor square
+        Lexicon lexicon = dictionary.getLexicon();
+        MoveScorer scorer = new MoveScorer(lexicon);
+        MoveGenerator generator = new MoveGenerator(lexicon, board, firstTurn);
+        for (int line = from; line < to; line++) {
+            cancellation.check();
+            for (AIMove move : generator.generate(hand, line, line + 1)) {
+                int score = getSimulatedScore(move, board, scorer, firstTurn, letterFrequency, blankCount, needed);
+                if (score < 0) continue;
+                int equity = score * LeaveTable.SCALE + leaves.value(needed);
+                if (equity > maxEquity) {
+                    maxEquity = equity;
+                    bestAIMove = move;
                 }
             }
         }
 
-        return bestAIMove;
+        return new Candidate(bestAIMove, maxEquity);
+    }
+
+    /**
+     * Splits a range of lines in half until each task searches one line, then joins
+     * the halves in order.
+     */
+    private static class SearchTask extends RecursiveTask<Candidate> {
+        //Tasks are never serialized, although ForkJoinTask is Serializable
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final transient Dictionary dictionary;
+        private final transient Board board;
+        private final boolean firstTurn;
+        private final transient List<Tile> hand;
+        private final transient LeaveTable leaves;
+        private final int from;
+        private final int to;
+        private final transient Cancellation cancellation;
+
+        SearchTask(Dictionary dictionary, Board board, boolean firstTurn, List<Tile> hand, LeaveTable leaves, int from, int to, Cancellation cancellation) {
+            this.dictionary = dictionary;
+            this.board = board;
+            this.firstTurn = firstTurn;
+            this.hand = hand;
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        protected Candidate compute() {
+            if (to - from <= 1) return getBestMove(dictionary, board, firstTurn, hand, leaves, from, to, cancellation);
+
+            int middle = (from + to) / 2;
+            SearchTask later = new SearchTask(dictionary, board, firstTurn, hand, leaves, middle, to, cancellation);
+            later.fork();
+            Candidate earlier = new SearchTask(dictionary, board, firstTurn, hand, leaves, from, middle, cancellation).compute();
+            return earlier.orLater(later.join());
+        }
     }
 }
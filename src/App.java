@@ -2,6 +2,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The App class represents the main graphical user interface (GUI)
@@ -27,6 +29,8 @@ public class App extends JFrame implements ScrabbleView {
     ArrayList<JButton> tiles;
     JButton done;
     JButton exchange;
+    //AI players think on virtual threads so the window stays responsive
+    final ExecutorService aiExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     /**
      * Constructs the Scrabble application window, initializes all GUI elements,
@@ -41,6 +45,7 @@ public class App extends JFrame implements ScrabbleView {
         // Initialize model and connect this view
         game = new Game();
         game.addView(this);
+        game.setAIExecutors(aiExecutor, SwingUtilities::invokeLater);
 
         // Initialize controller and link it to this view and the model
         controller = new ScrabbleController(this, game);
@@ -373,6 +378,19 @@ public class App extends JFrame implements ScrabbleView {
         this.disableHand();
     }
 
+    /**
+     * Displays the end of game statistics in a scrollable dialog.
+     *
+     * @param results the statistics to display
+     */
+    public void showResults(String results) {
+        JTextArea textArea = new JTextArea(results);
+        textArea.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(400, 500));
+        JOptionPane.showMessageDialog(this, scrollPane, "Game Results", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     /**
      * Toggles the state of the undo button.
      * 
@@ -391,6 +409,24 @@ public class App extends JFrame implements ScrabbleView {
         redo.setEnabled(toggle);
     }
 
+    /**
+     * Disables the hand and buttons while an AI player is thinking, and enables them again afterwards.
+     * 
+     * @param thinking  whether an AI player is thinking.
+     */
+    public void toggleThinking(boolean thinking) {
+        if (thinking) {
+            disableHand();
+            disableBoard();
+            disableDone();
+            disableExchange();
+        }
+        else {
+            enableHand();
+            enableExchange();
+        }
+    }
+
     public void refreshBoard(Game game) {
         updateTopText(game.getCurrentPlayer().getName() + "'s turn");
 
@@ -457,6 +493,8 @@ public class App extends JFrame implements ScrabbleView {
             disableDone();
             disableExchange();
         }
+
+        if (game.isAIThinking()) toggleThinking(true);
     }
 
     /**
@@ -465,6 +503,6 @@ public class App extends JFrame implements ScrabbleView {
      * @param args command-line arguments (not used)
      */
     public static void main(String[] args) {
-        new App();
+        SwingUtilities.invokeLater(App::new);
     }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 
 import javax.swing.JOptionPane;
 import javax.xml.parsers.DocumentBuilder;
@@ -32,10 +35,119 @@ public class Board implements Serializable {
         {tileType.Normal, tileType.DW, tileType.Normal, tileType.Normal, tileType.Normal, tileType.TL, tileType.Normal, tileType.Normal, tileType.Normal, tileType.TL, tileType.Normal, tileType.Normal, tileType.Normal, tileType.DW, tileType.Normal}, 
         {tileType.TW, tileType.Normal, tileType.Normal, tileType.DL, tileType.Normal, tileType.Normal, tileType.Normal, tileType.TW, tileType.Normal, tileType.Normal, tileType.Normal, tileType.DL, tileType.Normal, tileType.Normal, tileType.TW}};
     
+    private static final int FULL_LINE = (1 << SIZE) - 1;
+    private static final int ALL_LETTERS = (1 << Lexicon.ALPHABET) - 1;
+    //Cross-checks are kept for moves across, then for moves down
+    private static final int CHECKS = 2 * SIZE * SIZE;
+
     private final Tile[][] board;
 
+    //Packed copy of the board, kept in sync by placeTile and removeTile and rebuilt after loading.
+    //Squares are indexed by row * SIZE + col, and bit n of a line is set if square n of it is occupied.
+    private transient char[] letters;
+    private transient byte[] scores;
+    private transient int[] rowBits;
+    private transient int[] colBits;
+    private transient int tileCount;
+    //Zobrist hash of the tiles on the board, updated by placeTile and removeTile
+    private transient long hash;
+    //The letters that form a valid word across each empty square's column (for moves across) or
+    //row (for moves down), for one lexicon. Placing or removing a tile only marks the squares at
+    //the ends of its column and row stale, and updateCrossChecks recomputes just those.
+    private transient int[] crossChecks;
+    private transient long[] staleChecks;
+    private transient Lexicon checkLexicon;
+
     public Board() {
         board = new Tile[SIZE][SIZE];
+        pack();
+    }
+
+    /**
+     * Constructs a copy of another board. The copy holds the same Tile objects, but tiles
+     * placed on or removed from one board do not affect the other.
+     *
+     * @param other the board to copy
+     */
+    public Board(Board other) {
+        board = new Tile[SIZE][];
+        for (int i = 0; i < SIZE; i++) board[i] = other.board[i].clone();
+        letters = other.letters.clone();
+        scores = other.scores.clone();
+        rowBits = other.rowBits.clone();
+        colBits = other.colBits.clone();
+        tileCount = other.tileCount;
+        hash = other.hash;
+        synchronized (other) {
+            crossChecks = other.crossChecks.clone();
+            staleChecks = other.staleChecks.clone();
+            checkLexicon = other.checkLexicon;
+        }
+    }
+
+    /**
+     * Builds the packed copy of the board from its tiles.
+     */
+    private void pack() {
+        letters = new char[SIZE * SIZE];
+        scores = new byte[SIZE * SIZE];
+        rowBits = new int[SIZE];
+        colBits = new int[SIZE];
+        tileCount = 0;
+        hash = 0;
+        crossChecks = new int[CHECKS];
+        staleChecks = new long[(CHECKS + 63) / 64];
+        Arrays.fill(staleChecks, -1L);
+        checkLexicon = null;
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                if (board[row][col] != null) set(row, col, board[row][col]);
+            }
+        }
+    }
+
+    /**
+     * Records a tile in the packed copy of the board.
+     */
+    private void set(int row, int col, Tile tile) {
+        letters[row * SIZE + col] = tile.getLetter();
+        scores[row * SIZE + col] = (byte) tile.getScore();
+        rowBits[row] |= 1 << col;
+        colBits[col] |= 1 << row;
+        tileCount++;
+        hash ^= Zobrist.square(row, col, tile.getLetter(), tile.getScore() == 0);
+        invalidate(row, col);
+    }
+
+    /**
+     * Marks stale the cross-checks a tile placed on or removed from a square can change: the
+     * square itself, and the first empty square at each end of the tiles in its column and row.
+     */
+    private void invalidate(int row, int col) {
+        stale(0, row * SIZE + col);
+        stale(1, row * SIZE + col);
+        int r = row - 1;
+        while (r >= 0 && letters[r * SIZE + col] != 0) r--;
+        if (r >= 0) stale(0, r * SIZE + col);
+        r = row + 1;
+        while (r < SIZE && letters[r * SIZE + col] != 0) r++;
+        if (r < SIZE) stale(0, r * SIZE + col);
+        int c = col - 1;
+        while (c >= 0 && letters[row * SIZE + c] != 0) c--;
+        if (c >= 0) stale(1, row * SIZE + c);
+        c = col + 1;
+        while (c < SIZE && letters[row * SIZE + c] != 0) c++;
+        if (c < SIZE) stale(1, row * SIZE + c);
+    }
+
+    private void stale(int direction, int square) {
+        int index = direction * SIZE * SIZE + square;
+        staleChecks[index >>> 6] |= 1L << index;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        pack();
     }
 
     /**
@@ -61,6 +173,7 @@ public class Board implements Serializable {
     public boolean placeTile(int row, int col, Tile tile) {
         if (isInBounds(row, col) && board[row][col] == null) {
             board[row][col] = tile;
+            set(row, col, tile);
             return true;
         }
         return false;
@@ -73,7 +186,15 @@ public class Board implements Serializable {
      * @param col the column index
      */
     public void removeTile(int row, int col) {
+        if (board[row][col] == null) return;
+        hash ^= Zobrist.square(row, col, letters[row * SIZE + col], scores[row * SIZE + col] == 0);
         board[row][col] = null;
+        letters[row * SIZE + col] = 0;
+        scores[row * SIZE + col] = 0;
+        rowBits[row] &= ~(1 << col);
+        colBits[col] &= ~(1 << row);
+        tileCount--;
+        invalidate(row, col);
     }
 
     /**
@@ -88,6 +209,165 @@ public class Board implements Serializable {
         return board[row][col];
     }
 
+    /**
+     * Retrieves the letter at a specific position without going through its Tile.
+     * Tiles must not change letter while they are on the board.
+     *
+     * @param row the row coordinate
+     * @param col the column coordinate
+     * @return the letter at that position, or 0 if the cell is empty or out of bounds
+     */
+    public char getLetter(int row, int col) {
+        if (!isInBounds(row, col)) return 0;
+        return letters[row * SIZE + col];
+    }
+
+    /**
+     * Retrieves the score of the tile at a specific position without going through its Tile.
+     *
+     * @param row the row coordinate
+     * @param col the column coordinate
+     * @return the score of the tile at that position, or 0 if the cell is empty or out of bounds
+     */
+    public int getScore(int row, int col) {
+        if (!isInBounds(row, col)) return 0;
+        return scores[row * SIZE + col];
+    }
+
+    /**
+     * @param row the row index
+     * @return a bitmask where bit n is set if the cell in column n of the row is occupied
+     */
+    public int getRowBits(int row) {
+        return rowBits[row];
+    }
+
+    /**
+     * @param col the column index
+     * @return a bitmask where bit n is set if the cell in row n of the column is occupied
+     */
+    public int getColumnBits(int col) {
+        return colBits[col];
+    }
+
+    /**
+     * @return the number of tiles on the board
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * The hash is the XOR of a Zobrist key for every tile on the board, so it is kept up to date
+     * as tiles are placed and removed and two boards with the same tiles have the same hash.
+     *
+     * @return the 64-bit Zobrist hash of the tiles on the board
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Finds the anchors of a row or column, which are the empty cells next to at least one tile.
+     *
+     * @param line         the index of the row or column
+     * @param isHorizontal {@code true} for a row, {@code false} for a column
+     * @return a bitmask where bit n is set if cell n of the line is an anchor
+     */
+    public int getAnchors(int line, boolean isHorizontal) {
+        int[] bits = isHorizontal ? rowBits : colBits;
+        int occupied = bits[line];
+        int before = line > 0 ? bits[line - 1] : 0;
+        int after = line < SIZE - 1 ? bits[line + 1] : 0;
+        return ((occupied << 1) | (occupied >>> 1) | before | after) & ~occupied & FULL_LINE;
+    }
+
+    /**
+     * Brings the cross-checks up to date for a lexicon. Only the squares whose column or row has
+     * changed since the last update are recomputed, unless the lexicon is a different one.
+     * Concurrent searches of one board may all call this before reading the cross-checks,
+     * as long as no tiles are placed or removed while they run.
+     *
+     * @param lexicon the lexicon the words must come from
+     */
+    public synchronized void updateCrossChecks(Lexicon lexicon) {
+        if (lexicon != checkLexicon) {
+            Arrays.fill(staleChecks, -1L);
+            checkLexicon = lexicon;
+        }
+        for (int word = 0; word < staleChecks.length; word++) {
+            long bits = staleChecks[word];
+            while (bits != 0) {
+                int index = word << 6 | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (index >= CHECKS) break;
+                int square = index % (SIZE * SIZE);
+                crossChecks[index] = computeCrossCheck(lexicon, square / SIZE, square % SIZE, index < SIZE * SIZE);
+            }
+            staleChecks[word] = 0;
+        }
+    }
+
+    /**
+     * Returns the letters that can be placed on an empty square without forming an invalid word
+     * perpendicular to the move, as of the last call to updateCrossChecks.
+     *
+     * @param row          the row of the square
+     * @param col          the column of the square
+     * @param isHorizontal whether the move reads across, so the word checked reads down
+     * @return a bitmask where bit n is set if letter n ('A' + n) may be placed
+     */
+    public int getCrossCheck(int row, int col, boolean isHorizontal) {
+        return crossChecks[(isHorizontal ? 0 : SIZE * SIZE) + row * SIZE + col];
+    }
+
+    /**
+     * Computes the set of letters that can be placed on an empty square without forming an
+     * invalid word in the direction perpendicular to a move.
+     *
+     * @return a bitmask where bit n is set if letter n ('A' + n) may be placed
+     */
+    private int computeCrossCheck(Lexicon lexicon, int row, int col, boolean isHorizontal) {
+        int dRow = isHorizontal ? 1 : 0;
+        int dCol = isHorizontal ? 0 : 1;
+
+        int startRow = row, startCol = col;
+        while (getLetter(startRow - dRow, startCol - dCol) != 0) {
+            startRow -= dRow;
+            startCol -= dCol;
+        }
+        int endRow = row, endCol = col;
+        while (getLetter(endRow + dRow, endCol + dCol) != 0) {
+            endRow += dRow;
+            endCol += dCol;
+        }
+        if (startRow == endRow && startCol == endCol) return ALL_LETTERS;
+
+        //Walk the letters before the square
+        int node = lexicon.root();
+        for (int r = startRow, c = startCol; r != row || c != col; r += dRow, c += dCol) {
+            int edge = lexicon.findEdge(node, getLetter(r, c) - 'A');
+            if (edge == -1) return 0;
+            node = lexicon.child(edge);
+        }
+
+        //Try every letter on the square and walk the letters after it
+        int mask = 0;
+        for (int edge = lexicon.firstEdge(node); edge != -1; edge = lexicon.nextEdge(edge)) {
+            int current = edge;
+            boolean valid = true;
+            for (int r = row + dRow, c = col + dCol; r <= endRow && c <= endCol; r += dRow, c += dCol) {
+                current = lexicon.findEdge(lexicon.child(current), getLetter(r, c) - 'A');
+                if (current == -1) {
+                    valid = false;
+                    break;
+                }
+            }
+            if (valid && lexicon.isTerminal(current)) mask |= 1 << lexicon.letter(edge);
+        }
+        return mask;
+    }
+
     /**
      * Checks whether all cells between the given start and end coordinates
      * (either in a row or column) are filled.
@@ -100,17 +380,12 @@ public class Board implements Serializable {
      * @return {@code true} if there are no empty spaces between start and end, otherwise {@code false}
      */
     public boolean haveEmptySpace(int start, int end, int otherCoord, boolean direction) {
-        for (int i = start; i <= end; i++) {
-            if (!direction) {
-                // Vertical check
-                if (getTile(i, otherCoord) == null) return false;
-            }
-            else {
-                // Horizontal check
-                if (getTile(otherCoord, i) == null) return false;
-            }
-        }
-        return true;
+        if (start > end) return true;
+        if (start < 0 || end >= SIZE || otherCoord < 0 || otherCoord >= SIZE) return false;
+
+        int mask = (FULL_LINE >>> (SIZE - 1 - end)) & ~((1 << start) - 1);
+        int line = direction ? rowBits[otherCoord] : colBits[otherCoord];
+        return (line & mask) == mask;
     }
 
     /**
@@ -123,6 +398,10 @@ public class Board implements Serializable {
      * @return true if at least one adjacent tile exists; false otherwise
      */
     public boolean hasNeighbor(int row, int col) {
+        if (isInBounds(row, col)) {
+            return ((rowBits[row] & ((1 << col) << 1 | (1 << col) >>> 1))
+                    | (colBits[col] & ((1 << row) << 1 | (1 << row) >>> 1))) != 0;
+        }
         if (this.getTile(row - 1, col) != null) return true;
         if (this.getTile(row + 1, col) != null) return true;
         if (this.getTile(row, col - 1) != null) return true;
@@ -160,11 +439,11 @@ public class Board implements Serializable {
 
         //Collision and connection check
         for (int i = 0; i < word.length(); i++) {
-            Tile tileOnBoard = this.getTile(row, col);
+            char letterOnBoard = this.getLetter(row, col);
 
             if (row == Board.CENTER && col == Board.CENTER) crossesCenter = true;
-            if (tileOnBoard != null) {
-                if (tileOnBoard.getLetter() != word.charAt(i)) return false;
+            if (letterOnBoard != 0) {
+                if (letterOnBoard != word.charAt(i)) return false;
                 connects = true;
             }
             else {
@@ -250,6 +529,7 @@ public class Board implements Serializable {
     @Override
     public boolean equals(Object o) {
         if (o instanceof Board) {
+            if (hash != ((Board) o).hash) return false;
             for (int i = 0; i < Board.SIZE; i++) {
                 for (int j = 0; j < Board.SIZE; j++) {
                     if (board[i][j] == null && ((Board) o).getTile(i, j) != null) return false;
@@ -260,4 +540,9 @@ public class Board implements Serializable {
         }
         return false;
     }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
 }
@@ -1,43 +1,282 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.io.*;
 
+/**
+ * The Dictionary class holds the list of words that may be played.
+ *
+ * Words are stored in a Lexicon, a compact word graph that answers whole-word,
+ * prefix and hook queries by walking one letter at a time. A plain set of the
+ * words is only built if something asks for it through getWords().
+ *
+ * Games share one immutable Dictionary per word list through shared(String),
+ * so restoring a game never reloads the word list.
+ */
 public class Dictionary {
-    private final Set<String> words;
+    private static final Map<String, Dictionary> sharedDictionaries = new ConcurrentHashMap<>();
+    private static final AtomicInteger loadCount = new AtomicInteger();
+
+    private Set<String> words;
+    private volatile Lexicon lexicon;
+    private volatile boolean lexiconStale;
+    private volatile WordFinder wordFinder;
+    private boolean immutable;
+    private long loadNanos;
 
     public Dictionary() {
-        words = new HashSet<>();
+        lexicon = Lexicon.build(List.of());
+    }
+
+    /**
+     * Returns the shared dictionary for a word list, loading it the first time it is requested.
+     * The returned dictionary is immutable and safe to use from any thread, so every game
+     * in the process can hold the same instance.
+     *
+     * @param filename the path to the text file containing the words
+     * @return the shared dictionary for the word list
+     */
+    public static Dictionary shared(String filename) {
+        return sharedDictionaries.computeIfAbsent(new File(filename).getAbsolutePath(), path -> {
+            Dictionary dictionary = new Dictionary();
+            dictionary.loadFromFile(filename);
+            dictionary.immutable = true;
+            return dictionary;
+        });
     }
 
     /**
-     * Used by the AI to see all available words and generate moves.
+     * Used to confirm that word lists are not being reloaded.
+     *
+     * @return the number of times any word list has been loaded by this process
+     */
+    public static int getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Returns the set of all available words.
+     * The set is built from the lexicon on first use. Words added to or removed from
+     * the returned set, one at a time, in bulk or through its iterator, are picked up
+     * by the lexicon on its next lookup.
+     * The set of a shared dictionary cannot be modified.
      *
      * @return the set of all available words
      */
-    public Set<String> getWords() {
+    public synchronized Set<String> getWords() {
+        if (words == null) {
+            //Any change to the words invalidates the lexicon built from them
+            words = new HashSet<>() {
+                @Override
+                public boolean add(String word) {
+                    lexiconStale = true;
+                    return super.add(word);
+                }
+
+                @Override
+                public boolean remove(Object word) {
+                    lexiconStale = true;
+                    return super.remove(word);
+                }
+
+                @Override
+                public void clear() {
+                    lexiconStale = true;
+                    super.clear();
+                }
+
+                //Removing through the iterator or in bulk changes the words too
+                @Override
+                public Iterator<String> iterator() {
+                    Iterator<String> iterator = super.iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public String next() {
+                            return iterator.next();
+                        }
+
+                        @Override
+                        public void remove() {
+                            lexiconStale = true;
+                            iterator.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public boolean removeAll(Collection<?> words) {
+                    lexiconStale = true;
+                    return super.removeAll(words);
+                }
+
+                @Override
+                public boolean retainAll(Collection<?> words) {
+                    lexiconStale = true;
+                    return super.retainAll(words);
+                }
+
+                @Override
+                public boolean removeIf(Predicate<? super String> filter) {
+                    lexiconStale = true;
+                    return super.removeIf(filter);
+                }
+            };
+            lexicon.collectWords(words);
+            lexiconStale = false;
+            if (immutable) words = Collections.unmodifiableSet(words);
+        }
         return words;
     }
 
+    /**
+     * Used by the AI to walk words letter by letter and generate moves.
+     * The lexicon is rebuilt if the set returned by getWords() has changed.
+     *
+     * @return the lexicon of all available words
+     */
+    public Lexicon getLexicon() {
+        if (lexiconStale) {
+            synchronized (this) {
+                if (lexiconStale) {
+                    lexicon = Lexicon.build(words);
+                    lexiconStale = false;
+                }
+            }
+        }
+        return lexicon;
+    }
+
+    /**
+     * Used for hints and word searches, such as the words a rack can make or the words
+     * matching a pattern. The finder is replaced when the lexicon is rebuilt.
+     *
+     * @return a word finder over the lexicon
+     */
+    public WordFinder getWordFinder() {
+        Lexicon current = getLexicon();
+        WordFinder finder = wordFinder;
+        if (finder == null || finder.getLexicon() != current) wordFinder = finder = new WordFinder(current);
+        return finder;
+    }
+
+    /**
+     * @return how long the last call to loadFromFile took, in milliseconds
+     */
+    public double getLoadTimeMillis() {
+        return loadNanos / 1_000_000.0;
+    }
+
+    /**
+     * Returns the memory taken by the words. For a dictionary opened from an image this
+     * is mapped from the file rather than allocated on the heap.
+     *
+     * @return the number of bytes taken by the lexicon
+     */
+    public long getMemoryBytes() {
+        return getLexicon().memoryBytes();
+    }
+
     /**
      * Loads words from a text file into the dictionary.
      * Each line in the file is treated as a separate word. Leading and trailing spaces are removed,
      * and all words are converted to uppercase for consistency. Empty lines are ignored.
      *
+     * The first load of a word list also writes a binary lexicon image next to it
+     * (for example, wordlist.dawg next to wordlist.txt). Later loads memory-map the image
+     * instead of parsing the text, as long as the image is newer than the word list.
+     *
      * @param filename the path to the text file containing words to load
+     * @throws UnsupportedOperationException if this is a shared dictionary
      */
     public void loadFromFile(String filename) {
-        try (Scanner scanner = new Scanner(new File(filename))) {
+        if (immutable) throw new UnsupportedOperationException("Shared dictionaries cannot be modified.");
+        loadCount.incrementAndGet();
+        long start = System.nanoTime();
+        File file = new File(filename);
+        File image = imageFile(file);
+
+        if (words == null && getLexicon().size() == 0 && image.isFile() && image.lastModified() >= file.lastModified()) {
+            try {
+                lexicon = Lexicon.map(image);
+                loadNanos = System.nanoTime() - start;
+                System.out.println("Loaded " + describe(image.getPath()));
+                return;
+            } catch (IOException e) {
+                //Fall back to the text file, which rewrites the image below
+                System.err.println("Error loading dictionary image: " + e.getMessage());
+            }
+        }
+
+        try (Scanner scanner = new Scanner(file)) {
+            List<String> loaded = new ArrayList<>();
             while (scanner.hasNextLine()) {
                 // Read each line, remove extra spaces, and convert to uppercase
                 String word = scanner.nextLine().trim().toUpperCase();
-                if (!word.isEmpty()) words.add(word);
+                if (!word.isEmpty()) loaded.add(word);
             }
-            System.out.println("Loaded " + words.size() + " words from " + filename);
+
+            if (words == null && getLexicon().size() == 0) {
+                lexicon = Lexicon.build(loaded);
+                writeImage(image);
+            }
+            else {
+                getWords().addAll(loaded);
+            }
+            loadNanos = System.nanoTime() - start;
+            System.out.println("Loaded " + describe(filename));
         } catch (IOException e) {
             // Print an error message if the file could not be read
             System.err.println("Error loading dictionary: " + e.getMessage());
         }
     }
 
+    /**
+     * Describes the loaded words for the load message, for example
+     * "10000 words from src/wordlist.txt in 95.2 ms (48 KB on heap)".
+     *
+     * @param source the file the words were loaded from
+     * @return the description
+     */
+    private String describe(String source) {
+        Lexicon current = getLexicon();
+        return String.format("%d words from %s in %.1f ms (%d KB %s)", current.size(), source, getLoadTimeMillis(),
+                current.memoryBytes() / 1024, current.isMapped() ? "mapped" : "on heap");
+    }
+
+    /**
+     * Returns the lexicon image that belongs to a word list, which has the same name
+     * with the image extension in place of the word list's extension.
+     *
+     * @param file the word list
+     * @return the image file, which may not exist yet
+     */
+    private static File imageFile(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        return new File(file.getParentFile(), name + Lexicon.IMAGE_EXTENSION);
+    }
+
+    /**
+     * Writes the lexicon image so the next load can skip parsing the word list.
+     * A failure only means the next load parses the text again, so it is reported and ignored.
+     *
+     * @param image the image file to write
+     */
+    private void writeImage(File image) {
+        try {
+            lexicon.write(image);
+        } catch (IOException e) {
+            System.err.println("Could not write dictionary image: " + e.getMessage());
+        }
+    }
+
     /**
      * Checks if the given word exists in the dictionary.
      * This method performs a case-insensitive lookup by converting the input word to uppercase
@@ -47,15 +286,30 @@ public class Dictionary {
      * @return true if the word exists in the dictionary; {@code false} otherwise
      */
     public boolean isValidWord(String word) {
-        return words.contains(word.toUpperCase());
+        return getLexicon().contains(word.toUpperCase());
+    }
+
+    /**
+     * Checks if any word in the dictionary starts with the given prefix.
+     *
+     * @param prefix the prefix to check
+     * @return true if at least one word starts with the prefix; {@code false} otherwise
+     */
+    public boolean isValidPrefix(String prefix) {
+        return getLexicon().isPrefix(prefix.toUpperCase());
     }
 
     @Override
     public boolean equals(Object o) {
         if (o instanceof Dictionary) {
-            return words.equals(((Dictionary) o).getWords());
+            return getLexicon().equals(((Dictionary) o).getLexicon());
         }
 
         return false;
     }
+
+    @Override
+    public int hashCode() {
+        return getLexicon().hashCode();
+    }
 }
@@ -0,0 +1,401 @@
+import java.util.Arrays;
+
+/**
+ * The EndgameSolver class finds the best move once the tile bag is empty. Both racks are then
+ * known, since the opponent holds exactly the tiles the AI cannot see, so the rest of the game
+ * can be searched exactly.
+ *
+ * The search is a negamax alpha-beta search over the spread, the points the player to move will
+ * score from here on minus the points their opponent will. A player may play any move their
+ * rack allows or pass, and the game ends when both players pass in a row. Moves are tried in
+ * order of their score, after the best move stored for the position.
+ *
+ * Positions are identified by their Zobrist hash and stored in a fixed-size transposition table,
+ * which prefers to keep entries searched deeper and replaces entries left by earlier solves.
+ * The search deepens one ply at a time until a search reaches the end of every line or time runs
+ * out, and plays the best move of the deepest search that finished.
+ *
+ * A solver is not thread-safe. It keeps its table between solves, since the positions after
+ * one move are often reached again on the next.
+ */
+public class EndgameSolver {
+    public static final int DEFAULT_TABLE_BITS = 20;
+    private static final int TYPES = LeaveTable.TYPES;
+    private static final int BLANK = LeaveTable.BLANK;
+    private static final int MAX_DEPTH = 64;
+    //Stored as the depth of a subtree searched to the end of every line
+    private static final int SOLVED = 127;
+    private static final int EXACT = 0, LOWER = 1, UPPER = 2;
+    //The move hash of a pass
+    private static final int PASS = 0;
+
+    /**
+     * The result of a solve.
+     *
+     * @param move         the move to play, or null to pass
+     * @param spread       the spread the move leads to, exact if solved
+     * @param depth        the depth of the deepest search that finished, in plies
+     * @param solved       whether the search reached the end of every line, so the move is the best there is
+     * @param nodes        the number of positions searched
+     * @param tableHits    the number of positions answered by the transposition table
+     * @param elapsedNanos how long the solve took
+     */
+    public record Result(AIMove move, int spread, int depth, boolean solved, long nodes, long tableHits, long elapsedNanos) {
+        @Override
+        public String toString() {
+            return String.format("%s (spread %+d) at depth %d%s: %d nodes, %d table hits in %.1f ms",
+                    move == null ? "pass" : move.word(), spread, depth, solved ? ", solved" : "", nodes, tableHits, elapsedNanos / 1e6);
+        }
+    }
+
+    private final Lexicon lexicon;
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private int generation;
+
+    //The state of the current solve
+    private Board board;
+    private MoveGenerator generator;
+    private final MoveScorer scorer;
+    private final int[][] racks = new int[2][TYPES];
+    //The hash of the racks; the board keeps the hash of its own tiles
+    private long hash;
+    private long deadline;
+    private boolean stopped;
+    private boolean horizon;
+    private long nodes;
+    private long tableHits;
+    private AIMove rootMove;
+
+    //Moves generated at each ply, and the tiles placed by the moves being searched
+    private final Moves[] plies = new Moves[MAX_DEPTH + 1];
+    private final Tile[] pool = new Tile[2 * Player.HAND_SIZE];
+    private final int[] placed = new int[pool.length];
+    private int placedCount;
+
+    /**
+     * Constructs a solver with a table of 2^DEFAULT_TABLE_BITS entries.
+     *
+     * @param lexicon the lexicon containing the list of eligible words
+     */
+    public EndgameSolver(Lexicon lexicon) {
+        this(lexicon, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Constructs a solver.
+     *
+     * @param lexicon   the lexicon containing the list of eligible words
+     * @param tableBits the table holds 2^tableBits entries of 16 bytes each
+     */
+    public EndgameSolver(Lexicon lexicon, int tableBits) {
+        if (tableBits < 1 || tableBits > 30) throw new IllegalArgumentException("The table must have 2^1 to 2^30 entries.");
+        this.lexicon = lexicon;
+        this.keys = new long[1 << tableBits];
+        this.entries = new long[1 << tableBits];
+        this.mask = (1 << tableBits) - 1;
+        this.scorer = new MoveScorer(lexicon);
+        for (int i = 0; i < plies.length; i++) plies[i] = new Moves();
+        for (int i = 0; i < pool.length; i++) pool[i] = new Tile(' ', 0);
+    }
+
+    /**
+     * @return the lexicon the solver checks words against
+     */
+    public Lexicon getLexicon() {
+        return lexicon;
+    }
+
+    /**
+     * Solves an endgame, searching until it is solved, the deadline passes or the thread is interrupted.
+     *
+     * @param board    the board, which is not changed
+     * @param rack     how many of each tile the player to move holds, indexed by letter with the blank last
+     * @param opponent how many of each tile their opponent holds
+     * @param deadline the System.nanoTime() by which to stop searching
+     * @return the move to play and the spread it leads to
+     */
+    public Result solve(Board board, int[] rack, int[] opponent, long deadline) {
+        long start = System.nanoTime();
+        this.board = new Board(board);
+        this.generator = new MoveGenerator(lexicon, this.board, false);
+        System.arraycopy(rack, 0, racks[0], 0, TYPES);
+        System.arraycopy(opponent, 0, racks[1], 0, TYPES);
+        this.hash = Zobrist.rack(0, rack) ^ Zobrist.rack(1, opponent);
+        this.deadline = deadline;
+        this.stopped = false;
+        this.nodes = 0;
+        this.tableHits = 0;
+        this.placedCount = 0;
+        generation = (generation + 1) & 0x3F;
+
+        AIMove move = null;
+        int spread = 0, depth = 0;
+        boolean solved = false;
+        for (int d = 1; d <= MAX_DEPTH && !solved; d++) {
+            horizon = false;
+            rootMove = null;
+            int value = search(0, 0, d, 0, -Short.MAX_VALUE, Short.MAX_VALUE);
+            if (stopped) break;
+            move = rootMove;
+            spread = value;
+            depth = d;
+            solved = !horizon;
+        }
+        //Without time for even one ply, play the highest scoring move
+        if (depth == 0) {
+            Moves moves = generate(0, 0);
+            move = moves.size == 0 ? null : moves.toMove(moves.first());
+            spread = moves.size == 0 ? 0 : moves.score[moves.first()];
+        }
+
+        this.board = null;
+        this.generator = null;
+        return new Result(move, spread, depth, solved, nodes, tableHits, System.nanoTime() - start);
+    }
+
+    /**
+     * Searches a position to the given depth.
+     *
+     * @return the spread for the player to move, or 0 if the search was stopped
+     */
+    private int search(int side, int passes, int depth, int ply, int alpha, int beta) {
+        if ((++nodes & 0x3FF) == 0 && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) stopped = true;
+        if (stopped) return 0;
+        if (depth == 0) {
+            horizon = true;
+            return 0;
+        }
+
+        long key = board.getHash() ^ hash ^ (side == 1 ? Zobrist.SIDE : 0) ^ (passes == 1 ? Zobrist.PASSED : 0);
+        int slot = (int) key & mask;
+        int bestHash = PASS;
+        boolean stored = keys[slot] == key && entries[slot] != 0;
+        if (stored) {
+            long entry = entries[slot];
+            int entryDepth = (int) (entry >>> 18) & 0x7F;
+            int value = (short) entry;
+            int bound = (int) (entry >>> 16) & 0x3;
+            bestHash = (int) (entry >>> 32);
+            //The root is always searched, so the move to play is known
+            if (ply != 0 && entryDepth >= depth && (bound == EXACT || (bound == LOWER && value >= beta) || (bound == UPPER && value <= alpha))) {
+                tableHits++;
+                if (entryDepth != SOLVED) horizon = true;
+                return value;
+            }
+        }
+
+        boolean outerHorizon = horizon;
+        horizon = false;
+        int originalAlpha = alpha;
+        int best = Integer.MIN_VALUE;
+        int bestMove = PASS;
+
+        Moves moves = generate(side, ply);
+        moves.sort(bestHash);
+        for (int n = 0; n < moves.size && alpha < beta; n++) {
+            int i = moves.order(n);
+            int used = play(side, moves, i);
+            //The move's score shifts the window the reply is searched in
+            int score = moves.score[i];
+            int value = score - search(1 - side, 0, depth - 1, ply + 1, score - beta, score - alpha);
+            undo(side, used);
+            if (stopped) return 0;
+            if (value > best) {
+                best = value;
+                bestMove = moves.hash[i];
+                if (ply == 0) rootMove = moves.toMove(i);
+            }
+            alpha = Math.max(alpha, value);
+        }
+
+        //Passing after the opponent passed ends the game
+        if (alpha < beta) {
+            int value;
+            if (passes == 1) value = 0;
+            else value = -search(1 - side, 1, depth - 1, ply + 1, -beta, -alpha);
+            if (stopped) return 0;
+            if (value > best) {
+                best = value;
+                bestMove = PASS;
+                if (ply == 0) rootMove = null;
+            }
+        }
+
+        boolean nodeHorizon = horizon;
+        horizon = outerHorizon | nodeHorizon;
+        int bound = best <= originalAlpha ? UPPER : best >= beta ? LOWER : EXACT;
+        store(slot, key, best, bound, nodeHorizon ? depth : SOLVED, bestMove);
+        return best;
+    }
+
+    /**
+     * Stores a result, unless the slot holds a deeper result from this solve for another position.
+     */
+    private void store(int slot, long key, int value, int bound, int depth, int move) {
+        long entry = entries[slot];
+        int entryDepth = (int) (entry >>> 18) & 0x7F;
+        int entryGeneration = (int) (entry >>> 25) & 0x3F;
+        if (keys[slot] != key && entry != 0 && entryGeneration == generation && entryDepth > depth) return;
+        keys[slot] = key;
+        entries[slot] = (long) move << 32 | (long) generation << 25 | (long) depth << 18 | (long) bound << 16
+                | (Math.clamp(value, -Short.MAX_VALUE, Short.MAX_VALUE) & 0xFFFF);
+    }
+
+    /**
+     * Generates and scores every move the side to move can make.
+     */
+    private Moves generate(int side, int ply) {
+        Moves moves = plies[ply];
+        moves.clear();
+        moves.rack = racks[side];
+        generator.generate(racks[side], moves);
+        return moves;
+    }
+
+    /**
+     * Places a move on the board, taking its tiles from the side's rack.
+     *
+     * @return the number of tiles placed
+     */
+    private int play(int side, Moves moves, int i) {
+        int[] rack = racks[side];
+        int square = moves.square[i];
+        int row = square / Board.SIZE, col = square % Board.SIZE;
+        boolean isHorizontal = moves.isHorizontal[i];
+        int used = 0;
+        for (int n = 0; n < moves.length[i]; n++) {
+            int r = isHorizontal ? row : row + n;
+            int c = isHorizontal ? col + n : col;
+            if (board.getLetter(r, c) != 0) continue;
+            char letter = moves.letters[moves.start[i] + n];
+            int type = rack[letter - 'A'] > 0 ? letter - 'A' : BLANK;
+            hash ^= Zobrist.rack(side, type, rack[type]) ^ Zobrist.rack(side, type, rack[type] - 1);
+            rack[type]--;
+
+            Tile tile = pool[placedCount];
+            tile.setLetter(letter);
+            tile.setScore(type == BLANK ? 0 : ScrabbleLetters.get(letter).getScore());
+            board.placeTile(r, c, tile);
+            placed[placedCount++] = r * Board.SIZE + c;
+            used++;
+        }
+        return used;
+    }
+
+    /**
+     * Takes the last tiles placed back off the board and returns them to the side's rack.
+     */
+    private void undo(int side, int used) {
+        int[] rack = racks[side];
+        for (int n = 0; n < used; n++) {
+            int square = placed[--placedCount];
+            Tile tile = pool[placedCount];
+            int r = square / Board.SIZE, c = square % Board.SIZE;
+            int type = tile.getScore() == 0 ? BLANK : tile.getLetter() - 'A';
+            hash ^= Zobrist.rack(side, type, rack[type]) ^ Zobrist.rack(side, type, rack[type] + 1);
+            rack[type]++;
+            board.removeTile(r, c);
+        }
+    }
+
+    /**
+     * The moves generated at one ply, stored in flat arrays that grow as needed and are reused
+     * for every position searched at that ply.
+     */
+    private class Moves implements MoveGenerator.Visitor {
+        int[] rack;
+        int size;
+        char[] letters = new char[64 * Board.SIZE];
+        int lettersSize;
+        int[] start = new int[64];
+        int[] length = new int[64];
+        int[] square = new int[64];
+        boolean[] isHorizontal = new boolean[64];
+        int[] score = new int[64];
+        int[] hash = new int[64];
+        long[] order = new long[64];
+        private final int[] counts = new int[TYPES];
+
+        void clear() {
+            size = 0;
+            lettersSize = 0;
+        }
+
+        @Override
+        public void visit(char[] word, int wordLength, int row, int col, boolean horizontal) {
+            //Score the move, using a blank for a letter only when the rack has no tile for it
+            System.arraycopy(rack, 0, counts, 0, TYPES);
+            scorer.reset(board);
+            int moveHash = (row * Board.SIZE + col) * 2 + (horizontal ? 1 : 0);
+            for (int n = 0; n < wordLength; n++) {
+                moveHash = moveHash * 31 + word[n];
+                int r = horizontal ? row : row + n;
+                int c = horizontal ? col + n : col;
+                if (board.getLetter(r, c) != 0) continue;
+                int type = counts[word[n] - 'A'] > 0 ? word[n] - 'A' : BLANK;
+                counts[type]--;
+                scorer.place(r, c, word[n], type == BLANK ? 0 : ScrabbleLetters.get(word[n]).getScore());
+            }
+            int points = scorer.score(false);
+            if (points < 0) return;
+
+            if (size == start.length) grow();
+            if (lettersSize + wordLength > letters.length) letters = Arrays.copyOf(letters, letters.length * 2);
+            System.arraycopy(word, 0, letters, lettersSize, wordLength);
+            start[size] = lettersSize;
+            length[size] = wordLength;
+            square[size] = row * Board.SIZE + col;
+            isHorizontal[size] = horizontal;
+            score[size] = points;
+            //A pass has hash 0, so moves never do
+            hash[size] = moveHash == PASS ? 1 : moveHash;
+            lettersSize += wordLength;
+            size++;
+        }
+
+        private void grow() {
+            int capacity = start.length * 2;
+            start = Arrays.copyOf(start, capacity);
+            length = Arrays.copyOf(length, capacity);
+            square = Arrays.copyOf(square, capacity);
+            isHorizontal = Arrays.copyOf(isHorizontal, capacity);
+            score = Arrays.copyOf(score, capacity);
+            hash = Arrays.copyOf(hash, capacity);
+            order = Arrays.copyOf(order, capacity);
+        }
+
+        /**
+         * Orders the moves by score, highest first and then in generation order, after the stored best move.
+         */
+        void sort(int bestHash) {
+            for (int i = 0; i < size; i++) {
+                order[i] = (bestHash != PASS && hash[i] == bestHash ? Long.MIN_VALUE : (long) -score[i] << 24) | i;
+            }
+            Arrays.sort(order, 0, size);
+        }
+
+        /**
+         * @return the index of the n-th move in search order
+         */
+        int order(int n) {
+            return (int) (order[n] & 0xFFFFFF);
+        }
+
+        /**
+         * @return the index of the highest scoring move, keeping the earliest on a tie
+         */
+        int first() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (score[i] > score[best]) best = i;
+            }
+            return best;
+        }
+
+        AIMove toMove(int i) {
+            return new AIMove(new String(letters, start[i], length[i]), square[i] / Board.SIZE, square[i] % Board.SIZE, isHorizontal[i]);
+        }
+    }
+}
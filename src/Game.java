@@ -1,7 +1,11 @@
-import java.awt.*;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 import javax.swing.*;
 
@@ -14,6 +18,7 @@ import javax.swing.*;
  * serves as the Model, holding all core game state and logic.
  */
 public class Game implements Serializable {
+    public static final String WORDLIST = "src/wordlist.txt";
     private final Board board;
     private final TileBag tileBag;
     private transient Dictionary dictionary;
@@ -24,19 +29,38 @@ public class Game implements Serializable {
     private Tile selectedTile;
     private int endPasses;
     private boolean firstTurn;
+    private boolean gameOver;
+    private transient GameHistory history;
+    private transient Executor aiExecutor;
+    private transient Executor callbackExecutor;
+    private transient FutureTask<AIMove> aiTurn;
+    private transient GameLog log;
+    //The move validated this turn, logged when the turn ends
+    private transient GameLog.Entry loggedMove;
     private static final long serialVersionUID = 1L;
-    private static Stack<byte[]> undoStack;
-    private static Stack<byte[]> redoStack;
 
     /**
-     * Constructs a new Game instance with a new board, tile bag,
-     * and dictionary. Initializes player and view lists and loads the word list.
+     * Constructs a new Game instance with a new board and tile bag, attached to the
+     * shared dictionary. Initializes player and view lists.
      */
     public Game() {
+        this(new TileBag());
+    }
+
+    /**
+     * Constructs a new Game instance whose tile bag draws from the given seed,
+     * so that games between AI players can be replayed exactly.
+     *
+     * @param seed the seed for drawing tiles
+     */
+    public Game(long seed) {
+        this(new TileBag(seed));
+    }
+
+    Game(TileBag tileBag) {
         board = new Board();
-        tileBag = new TileBag();
-        dictionary = new Dictionary();
-        dictionary.loadFromFile("src/wordlist.txt");
+        this.tileBag = tileBag;
+        dictionary = Dictionary.shared(WORDLIST);
         players = new ArrayList<>();
         currentPlayer = 0;
         placedTiles = new ArrayList<Tile>();
@@ -44,8 +68,7 @@ public class Game implements Serializable {
         selectedTile = null;
         endPasses = 0;
         firstTurn = true;
-        undoStack = new Stack<byte[]>();
-        redoStack = new Stack<byte[]>();
+        history = new GameHistory();
     }
 
     /**
@@ -113,8 +136,27 @@ public class Game implements Serializable {
         }
 
         //Gather player names
+        List<String> names = new ArrayList<>();
         for (int i = 1; i <= numPlayers; i++) {
-            String name = JOptionPane.showInputDialog("Enter a name for Player " + i + ": ");
+            names.add(JOptionPane.showInputDialog("Enter a name for Player " + i + ": "));
+        }
+
+        this.startGame(names, numAIPlayers);
+    }
+
+    /**
+     * Starts the game with the given players without asking for them, so a game can be
+     * started without a window. Human players take their turns first, then the AI players.
+     *
+     * @param names        the names of the human players (0-4)
+     * @param numAIPlayers the number of AI players (0-3)
+     * @throws IllegalArgumentException if there are too many players of either kind, or none at all
+     */
+    public void startGame(List<String> names, int numAIPlayers) {
+        if (names.size() > 4 || numAIPlayers < 0 || numAIPlayers > 3 || names.size() + numAIPlayers == 0) {
+            throw new IllegalArgumentException("A game needs 0-4 human players and 0-3 AI players, and at least one player.");
+        }
+        for (String name : names) {
             this.addPlayer(name);
         }
 
@@ -133,9 +175,24 @@ public class Game implements Serializable {
 
     /**
      * Ends the game and determines the winner based on total score.
-     * Displays the winner and disables all game interactions in the views.
+     * Sends the results to the views and disables all game interactions in them.
      */
     public void endGame() {
+        if (!gameOver) change(new GameDelta.GameEnded());
+
+        String results = this.getResults();
+        for (ScrabbleView view : views) {
+            view.showResults(results);
+            view.endGame();
+        }
+    }
+
+    /**
+     * Builds the end of game statistics: the winner, and each player's score, turns and words.
+     *
+     * @return the statistics as text
+     */
+    public String getResults() {
         //Calculate the winner
         Player winner = players.getFirst();
         for (Player player : players) {
@@ -162,18 +219,7 @@ public class Game implements Serializable {
             }
             endScreen.append("\n");
         }
-
-        //Display in a scrollable dialog
-        JTextArea textArea = new JTextArea(endScreen.toString());
-        textArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setPreferredSize(new Dimension(400, 500));
-        JOptionPane.showMessageDialog(null, scrollPane, "Game Results", JOptionPane.INFORMATION_MESSAGE);
-
-        //Disable views
-        for (ScrabbleView view : views) {
-            view.endGame();
-        }
+        return endScreen.toString();
     }
 
     /**
@@ -203,44 +249,245 @@ public class Game implements Serializable {
     
     public boolean getFirstTurn() { return this.firstTurn; }
 
-    public Stack<byte[]> getUndoStack() { return undoStack; }
+    public GameHistory getHistory() { return this.history; }
+
+    /**
+     * Sets the log every turn of the game is appended to. The log starts from the seed of the
+     * tile bag, so it must be set before any tiles are drawn.
+     *
+     * @param log the log, or null to stop logging
+     * @throws IllegalStateException if tiles have already been drawn from the bag
+     */
+    public void setLog(GameLog log) {
+        if (log != null && tileBag.getState() != tileBag.getSeed()) {
+            throw new IllegalStateException("A game log must be set before any tiles are drawn.");
+        }
+        this.log = log;
+    }
+
+    public GameLog getLog() { return this.log; }
+
+    /**
+     * Appends an entry to the log, if there is one.
+     */
+    private void log(GameLog.Entry entry) {
+        if (log == null) return;
+        try {
+            log.append(this, entry);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the number of turns every player has taken together
+     */
+    private int turnsTaken() {
+        int turns = 0;
+        for (Player player : players) turns += player.getTurnsTaken();
+        return turns;
+    }
+
+    /**
+     * Hashes the position from the board, every rack and whose turn it is, without looking at
+     * any tiles. Each player's rack hash is rotated by their seat so swapped racks differ.
+     *
+     * @return the 64-bit Zobrist hash of the position
+     */
+    public long getPositionHash() {
+        long hash = board.getHash() ^ Zobrist.turn(currentPlayer % Zobrist.SIDES);
+        for (int i = 0; i < players.size(); i++) {
+            hash ^= Long.rotateLeft(players.get(i).getRackHash(), i * 16);
+        }
+        return hash;
+    }
 
-    public Stack<byte[]> getRedoStack() { return redoStack; }
+    //Used by GameDelta to change and restore state without recording another change
+    void setCurrentPlayer(int currentPlayer) { this.currentPlayer = currentPlayer; }
+
+    void setSelectedTile(Tile selectedTile) { this.selectedTile = selectedTile; }
+
+    void setEndPasses(int endPasses) { this.endPasses = endPasses; }
+
+    void setFirstTurn(boolean firstTurn) { this.firstTurn = firstTurn; }
+
+    void setGameOver(boolean gameOver) { this.gameOver = gameOver; }
+
+    public boolean isGameOver() { return this.gameOver; }
+
+    /**
+     * Makes a change to the game state and records it in the undo history.
+     *
+     * @param delta the change to make
+     */
+    private void change(GameDelta delta) {
+        delta.apply(this);
+        history.record(delta);
+    }
+
+    /**
+     * Draws tiles from the bag into a player's hand until it is full or the bag is empty.
+     *
+     * @param player the index of the player drawing tiles
+     */
+    private void drawTiles(int player) {
+        List<Tile> hand = players.get(player).getHand();
+        while (hand.size() < Player.HAND_SIZE && !tileBag.isEmpty()) {
+            long before = tileBag.getState();
+            int index = tileBag.nextIndex();
+            Tile tile = tileBag.removeTile(index);
+            history.record(new GameDelta.TileDrawn(index, tile, before, tileBag.getState()));
+            change(new GameDelta.HandAdded(player, hand.size(), tile));
+        }
+    }
 
     /**
      * Moves to the next player's turn in a round-robin fashion.
+     * If the next players are AI players, their turns are played before this returns,
+     * or started on the AI executor if one is set.
      */
     public void nextTurn(boolean exchange) {
-        this.getCurrentPlayer().incrementTurns();
+        endTurn(exchange);
+        playAITurns();
+    }
+
+    /**
+     * Ends the current player's turn and moves to the next player, without playing AI turns.
+     */
+    private void endTurn(boolean exchange) {
+        if (log != null) {
+            if (exchange) log(GameLog.exchange(tileBag.isEmpty() ? GameLog.PASS : GameLog.EXCHANGE, currentPlayer,
+                    tileBag.isEmpty() ? List.of() : getCurrentPlayer().getHand()));
+            else log(loggedMove != null ? loggedMove : GameLog.move(currentPlayer, List.of(), 0));
+        }
+        loggedMove = null;
+        change(new GameDelta.TurnTaken(currentPlayer));
 
         if (exchange) {
             if (tileBag.isEmpty()) {
-                endPasses += 1;
+                change(new GameDelta.EndPassesChanged(endPasses, endPasses + 1));
                 if (endPasses == players.size()) {
                     this.endGame();
                 }
             } else {
-                // Return all tiles to the bag and draw new ones
-                while (!this.getCurrentPlayer().getHand().isEmpty()) {
-                    tileBag.addTile(this.getCurrentPlayer().removeTile());
+                // Return all tiles to the bag and draw new ones. Draws are random, so there is no need to shuffle
+                List<Tile> hand = this.getCurrentPlayer().getHand();
+                while (!hand.isEmpty()) {
+                    Tile tile = hand.getFirst();
+                    change(new GameDelta.HandRemoved(currentPlayer, 0, tile));
+                    change(new GameDelta.BagAdded(tileBag.size(), tile));
                 }
-                tileBag.shuffle();
-                this.getCurrentPlayer().addTile(tileBag);
+                drawTiles(currentPlayer);
             }
-        } else {
-            endPasses = 0;
+        } else if (endPasses != 0) {
+            change(new GameDelta.EndPassesChanged(endPasses, 0));
         }
 
-        currentPlayer = (currentPlayer + 1) % players.size();
+        change(new GameDelta.TurnAdvanced(currentPlayer, (currentPlayer + 1) % players.size()));
         this.updateViewsTopText(this.getCurrentPlayer().getName() + "'s turn.");
         this.updateViewsHand();
-        if (getCurrentPlayer() instanceof AIPlayer ai) {
-            AIMove AIMove = ai.getBestMove(dictionary, board, firstTurn);
-            if (AIMove != null) placeAIMove(AIMove, firstTurn);
-            else nextTurn(true);
+    }
+
+    /**
+     * Sets where AI players search for their moves. The search runs on the AI executor,
+     * and the move it finds is played through the callback executor, which should be the
+     * thread that owns the views (for a Swing view, SwingUtilities::invokeLater).
+     * Without an AI executor, AI turns are played on the thread that ends the previous turn.
+     *
+     * @param aiExecutor       the executor to search on, or null to search on the calling thread
+     * @param callbackExecutor the executor that plays the move found
+     */
+    public void setAIExecutors(Executor aiExecutor, Executor callbackExecutor) {
+        this.aiExecutor = aiExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * @return whether an AI player is searching for its move
+     */
+    public boolean isAIThinking() {
+        return aiTurn != null;
+    }
+
+    /**
+     * Plays the turns of AI players until it is a human player's turn or the game is over.
+     * Consecutive AI turns are played in a loop. With an AI executor, each search is started
+     * in the background and the callback that plays its move starts the next one, so the
+     * turns never nest inside each other.
+     */
+    public void playAITurns() {
+        while (!gameOver && aiTurn == null && getCurrentPlayer() instanceof AIPlayer ai) {
+            if (aiExecutor != null) {
+                startAITurn(ai);
+                return;
+            }
+            playAIMove(ai.chooseMove(dictionary, board, firstTurn, tileBag.size(), searchPool()), firstTurn);
         }
     }
 
+    /**
+     * Searching in parallel only pays off with more than one core to run on.
+     *
+     * @return the pool for AI searches, or null to search on the calling thread
+     */
+    private static ForkJoinPool searchPool() {
+        return ForkJoinPool.getCommonPoolParallelism() > 1 ? ForkJoinPool.commonPool() : null;
+    }
+
+    /**
+     * Starts an AI player's search on the AI executor and notifies the views that it is thinking.
+     *
+     * @param ai the AI player whose turn it is
+     */
+    private void startAITurn(AIPlayer ai) {
+        FutureTask<AIMove> search = new FutureTask<>(ai.prepareMove(dictionary, board, firstTurn, tileBag.size(), searchPool())) {
+            @Override
+            protected void done() {
+                if (!isCancelled()) callbackExecutor.execute(() -> finishAITurn(this));
+            }
+        };
+        aiTurn = search;
+        this.updateViewsTopText(ai.getName() + " is thinking...");
+        this.updateViewsThinking(true);
+        aiExecutor.execute(search);
+    }
+
+    /**
+     * Plays the move found by an AI player's search, then starts the next AI turn if there is one.
+     * Searches that were cancelled or replaced are ignored.
+     *
+     * @param search the search that finished
+     */
+    private void finishAITurn(FutureTask<AIMove> search) {
+        if (aiTurn != search) return;
+        aiTurn = null;
+        this.updateViewsThinking(false);
+
+        AIMove AIMove = null;
+        try {
+            AIMove = search.get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            //A failed search passes the turn
+            e.printStackTrace();
+        }
+        playAIMove(AIMove, firstTurn);
+        playAITurns();
+    }
+
+    /**
+     * Cancels the search of the AI player whose turn it is, if one is running. The search is
+     * interrupted and stops at its next check, so it does not go on alongside the next one.
+     * The AI player moves again the next time playAITurns() is called.
+     */
+    public void cancelAITurn() {
+        if (aiTurn == null) return;
+        aiTurn.cancel(true);
+        aiTurn = null;
+        this.updateViewsThinking(false);
+    }
+
     /**
      * Updates all registered views with new text for the top message area.
      */
@@ -286,11 +533,12 @@ public class Game implements Serializable {
     public void removeViewsPlacedTiles() {
         Player player = this.getCurrentPlayer();
         for (Tile tile : placedTiles) {
-            if (tile.getScore() == 0) tile.setLetter(' ');
-            player.addTile(tile);
-            board.removeTile(tile.getX(), tile.getY());
+            //Take the tile off the board before clearing a blank's letter, so the board never holds a stale letter
+            change(new GameDelta.TileRemoved(tile.getX(), tile.getY(), tile));
+            if (tile.getScore() == 0) change(new GameDelta.LetterChanged(tile, tile.getLetter(), ' '));
+            change(new GameDelta.HandAdded(currentPlayer, player.getHand().size(), tile));
         }
-        placedTiles.clear();
+        clearPlacedTiles();
         for (ScrabbleView view : views) {
             view.removePlacedTiles();
         }
@@ -332,6 +580,17 @@ public class Game implements Serializable {
         }
     }
 
+    /**
+     * Tells all registered views whether an AI player is thinking.
+     *
+     * @param thinking whether an AI player is searching for its move
+     */
+    public void updateViewsThinking(boolean thinking) {
+        for (ScrabbleView view : views) {
+            view.toggleThinking(thinking);
+        }
+    }
+
     public void importCustomBoard() {
         board.importCustomBoard();
         this.removeViewsPlacedTiles();
@@ -343,7 +602,25 @@ public class Game implements Serializable {
      * @param c the letter of the tile to select
      */
     public void selectTile(char c) {
-        this.selectedTile = this.getCurrentPlayer().removeTileByLetter(c);
+        List<Tile> hand = this.getCurrentPlayer().getHand();
+        Tile tile = null;
+        for (int i = 0; i < hand.size(); i++) {
+            if (hand.get(i).getLetter() == c) {
+                tile = hand.get(i);
+                change(new GameDelta.HandRemoved(currentPlayer, i, tile));
+                break;
+            }
+        }
+        if (tile != this.selectedTile) change(new GameDelta.TileSelected(this.selectedTile, tile));
+    }
+
+    /**
+     * Removes every tile from the list of tiles placed this turn.
+     */
+    private void clearPlacedTiles() {
+        while (!placedTiles.isEmpty()) {
+            change(new GameDelta.PlacedRemoved(placedTiles.getLast()));
+        }
     }
 
     /**
@@ -354,36 +631,55 @@ public class Game implements Serializable {
      * @return true if placement was successful; false otherwise
      */
     public boolean placeTile(int x, int y) {
-        if (this.selectedTile == null) {
-            this.updateViewsTopText("Select a tile first!");
-        } else {
-            if (this.selectedTile.getScore() == 0) {
-                String input = JOptionPane.showInputDialog("Enter a letter for the blank tile: ");
-
-                if (input != null && !input.trim().isEmpty() && Character.isLetter(input.trim().charAt(0))) {
-                    this.selectedTile.setLetter(input.trim().charAt(0));
-                } else {
-                    JOptionPane.showMessageDialog(null, "ERROR! Please enter a letter for the blank tile!");
-                    return false;
-                }
-            }
-            if (board.placeTile(x, y, selectedTile)) {
-                this.selectedTile.setCoords(x, y);
-                placedTiles.add(selectedTile);
-                this.updateBoard(false);
-                this.updateViewsTopText(this.getCurrentPlayer().getName() + " placed " + this.selectedTile.getLetter() + " at (" + x + "," + y + ").");
-                this.selectedTile = null;
-                return true;
+        char letter = ' ';
+        if (this.selectedTile != null && this.selectedTile.getScore() == 0) {
+            String input = JOptionPane.showInputDialog("Enter a letter for the blank tile: ");
+
+            if (input != null && !input.trim().isEmpty() && Character.isLetter(input.trim().charAt(0))) {
+                letter = input.trim().charAt(0);
             } else {
-                if (this.selectedTile.getScore() == 0) {
-                    this.selectedTile.setLetter(' ');
-                }
-                JOptionPane.showMessageDialog(null, "ERROR! Invalid mainWord. Position is either already occupied, or out of bounds.");
+                JOptionPane.showMessageDialog(null, "ERROR! Please enter a letter for the blank tile!");
+                return false;
             }
         }
+        if (this.placeTile(x, y, letter)) return true;
+        if (this.selectedTile != null) {
+            JOptionPane.showMessageDialog(null, "ERROR! Invalid mainWord. Position is either already occupied, or out of bounds.");
+        }
         return false;
     }
 
+    /**
+     * Attempts to place the currently selected tile on the board without asking for anything,
+     * so tiles can be placed without a window.
+     *
+     * @param x           the row index
+     * @param y           the column index
+     * @param blankLetter the letter a selected blank stands for, ignored for other tiles
+     * @return true if placement was successful; false if no tile is selected, the position is
+     *         occupied or out of bounds, or a blank was given something other than a letter
+     */
+    public boolean placeTile(int x, int y, char blankLetter) {
+        if (this.selectedTile == null) {
+            this.updateViewsTopText("Select a tile first!");
+            return false;
+        }
+        if (!board.isInBounds(x, y) || board.getTile(x, y) != null) return false;
+        if (this.selectedTile.getScore() == 0) {
+            char letter = Character.toUpperCase(blankLetter);
+            if (letter < 'A' || letter > 'Z') return false;
+            change(new GameDelta.LetterChanged(this.selectedTile, this.selectedTile.getLetter(), letter));
+        }
+
+        Tile tile = this.selectedTile;
+        change(new GameDelta.TilePlaced(x, y, tile, tile.getX(), tile.getY()));
+        change(new GameDelta.PlacedAdded(tile));
+        this.updateBoard(false);
+        this.updateViewsTopText(this.getCurrentPlayer().getName() + " placed " + tile.getLetter() + " at (" + x + "," + y + ").");
+        change(new GameDelta.TileSelected(tile, null));
+        return true;
+    }
+
     /**
      * New helper method that creates a list of all tiles used to create a word.
      *
@@ -425,22 +721,8 @@ public class Game implements Serializable {
     }
 
     /**
-     * Helper method to convert tiles forming a word into a string.
-     *
-     * @param tiles The list of tiles forming a word.
-     * @return A string version of the word being created.
-     */
-    private static String tilesToString(List<Tile> tiles) {
-        StringBuilder sb = new StringBuilder();
-        for (Tile tile : tiles) {
-            sb.append(tile.getLetter());
-        }
-
-        return sb.toString();
-    }
-
-    /**
-     * Analyzes a mainWord (list of tiles placed on the board) to see if it is valid
+     * Analyzes a mainWord (list of tiles placed on the board) to see if it is valid.
+     * The tiles are checked and scored by a MoveScorer, so neither the tiles nor the board are changed.
      *
      * @param board        The current board
      * @param dictionary   The dictionary containing all the words
@@ -449,136 +731,12 @@ public class Game implements Serializable {
      * @return The score if valid, throws IllegalArgumentException if invalid.
      */
     public static PlayerMove analyzeMove(Board board, Dictionary dictionary, List<Tile> tilesToCheck, boolean firstTurn) throws IllegalArgumentException {
-        if (tilesToCheck.isEmpty()) throw new IllegalArgumentException("ERROR! You have not placed any tiles.");
-
-        boolean sameRow = true;
-        boolean sameCol = true;
-
-        //Check if all tiles are on the same row or same column
-        for (int i = 1; i < tilesToCheck.size(); i++) {
-            if (tilesToCheck.get(i).getX() != tilesToCheck.get(i - 1).getX()) sameCol = false;
-            if (tilesToCheck.get(i).getY() != tilesToCheck.get(i - 1).getY()) sameRow = false;
-        }
-
-        if (!sameRow && !sameCol) throw new  IllegalArgumentException("ERROR! All tiles must be placed on the same row or column.");
-
-        if (tilesToCheck.size() > 1) {
-            List<Tile> sorted = new ArrayList<>(tilesToCheck);
-            int start, end, otherCoord;
-            if (!sameRow) { //Vertical word
-                sorted.sort(Comparator.comparing(Tile::getY)); //Sort by column
-                start = sorted.getFirst().getY();
-                end = sorted.getLast().getY();
-                otherCoord = sorted.getFirst().getX(); //Row is constant
-            }
-            else { //Horizontal word
-                sorted.sort(Comparator.comparing(Tile::getX)); //Sort by row
-                start = sorted.getFirst().getX();
-                end = sorted.getLast().getX();
-                otherCoord = sorted.getFirst().getY(); //Column is constant
-            }
-
-            //Check for empty spaces between the start and end of the placed tiles
-            if (!board.haveEmptySpace(start, end, otherCoord, !sameRow)) throw new IllegalArgumentException("ERROR! The placed tiles must all be used to form one word.");
-        }
-
-        //Ensure first word crosses the center tile
-        if (firstTurn && board.getTile(Board.CENTER, Board.CENTER) == null) throw new IllegalArgumentException("ERROR! The first word must pass through the center.");
-
-        int totalScore = 0;
-
-        ArrayList<ArrayList<Tile>> allNewWords = new ArrayList<>();
-
-        //Determine orientation for main word
-        ArrayList<Tile> mainWordTiles = getWordTiles(board, tilesToCheck.getFirst(), sameCol);
-        allNewWords.add(mainWordTiles);
-        ArrayList<Tile> allScoredTiles = new ArrayList<>();
-        if (mainWordTiles.size() > 1) allScoredTiles.addAll(mainWordTiles);
-
-        //Find all cross words by looping and checking other directions
-        for (Tile tile : tilesToCheck) {
-            //Check perpendicular direction for cross-words
-            ArrayList<Tile> crossWordTiles = getWordTiles(board, tile, !sameCol); //Check other direction
-            if (crossWordTiles.size() > 1) {
-                allNewWords.add(crossWordTiles);
-                allScoredTiles.addAll(crossWordTiles);
-            }
-        }
-
-        if (!allScoredTiles.containsAll(tilesToCheck)) throw new IllegalArgumentException("ERROR! All tiles must connect to form valid words (no gaps).");
-
-        if (!firstTurn) {
-            boolean connects = false;
-            for (Tile tile : allScoredTiles) {
-                if (!tilesToCheck.contains(tile)) {
-                    connects = true;
-                    break;
-                }
-            }
-            if (!connects) throw new IllegalArgumentException("ERROR! The mainWord must connect to an existing tile.");
-        }
-
-        //If no new words were created (placed a tile without touching anything)
-        if (allNewWords.isEmpty()) throw new IllegalArgumentException("No words formed.");
-
-        //Dictionary validation
-        for (ArrayList<Tile> currentWord : allNewWords) {
-            String word = tilesToString(currentWord);
-            if (!dictionary.isValidWord(word)) throw new IllegalArgumentException("ERROR! " + word + " is not a valid word.");
-        }
-
-        //Calculate the score
-        ArrayList<Tile> modifiedTiles = new ArrayList<Tile>(tilesToCheck);
+        MoveScorer scorer = new MoveScorer(dictionary.getLexicon());
+        scorer.reset(board);
         for (Tile tile : tilesToCheck) {
-            switch (Board.premiumTiles[tile.getX()][tile.getY()]) {
-                case DL:    //If tile is on Double Letter space
-                    tile.setScore(tile.getScore() * 2);
-                    break;
-                case TL:    //If tile is on Triple Letter space
-                    tile.setScore(tile.getScore() * 3);
-                    break;
-                case DW:    //If tile is on Double Word space
-                    tile.setScore(tile.getScore() * 2);
-                    for (ArrayList<Tile> currentWord : allNewWords) {
-                        if (currentWord.contains(tile)) {
-                            for (Tile innerTile : currentWord) {
-                                if (!tile.equals(innerTile)) {
-                                    allScoredTiles.add(innerTile);
-                                } 
-                            }
-                        }
-                    }
-                    break;
-                case TW:    //If tile is on Triple Word space
-                    tile.setScore(tile.getScore() * 3);
-                    for (ArrayList<Tile> currentWord : allNewWords) {
-                        if (currentWord.contains(tile)) {
-                            for (Tile innerTile : currentWord) {
-                                if (!tile.equals(innerTile)) {
-                                    allScoredTiles.add(innerTile);
-                                    allScoredTiles.add(innerTile);
-                                }
-                            }
-                        }
-                    }
-                    break;
-                default:
-                    break;
-            }
-        }
-
-        for (Tile tile : allScoredTiles) {
-            totalScore += tile.getScore();
-        }
-
-        //Restore original score values of modified tiles
-        for (Tile tile : modifiedTiles) {
-            if (tile.getScore() != 0) {
-                tile.setScore(ScrabbleLetters.get(tile.getLetter()).getScore());
-            }
+            scorer.place(tile.getX(), tile.getY(), tile.getLetter(), tile.getScore());
         }
-
-        return new PlayerMove(totalScore, tilesToString(mainWordTiles));
+        return scorer.analyze(firstTurn);
     }
 
     /**
@@ -590,14 +748,15 @@ public class Game implements Serializable {
     public boolean validateMove(boolean firstTurn) {
         try {
             PlayerMove move = analyzeMove(this.board, this.dictionary, placedTiles, firstTurn);
+            if (log != null) loggedMove = GameLog.move(currentPlayer, placedTiles, move.totalScore());
 
             //If valid (no exception), make mainWord official
-            getCurrentPlayer().addScore(move.totalScore());
-            getCurrentPlayer().addMove(move);
+            change(new GameDelta.ScoreAdded(currentPlayer, move.totalScore()));
+            change(new GameDelta.MoveRecorded(currentPlayer, move));
 
             //Add tiles to current players hand. 
             if (!tileBag.isEmpty()) {
-                getCurrentPlayer().addTile(this.tileBag);
+                drawTiles(currentPlayer);
                 //Check if TileBag is empty.
                 if (tileBag.isEmpty()) {
                     updateViewsTopText("Tile bag is now empty!");
@@ -605,10 +764,10 @@ public class Game implements Serializable {
                 }
             }
 
-            if (this.firstTurn) this.firstTurn = false;
+            if (this.firstTurn) change(new GameDelta.FirstTurnPlayed());
             updateViewsScore();
             updateBoard(true);
-            placedTiles.clear();
+            clearPlacedTiles();
             disableViewsFirstMove();
             return true;
         }
@@ -626,6 +785,22 @@ public class Game implements Serializable {
      * @param firstTurn checks if it is the firstTurn or not
     */
     public void placeAIMove(AIMove AIMove, boolean firstTurn) {
+        playAIMove(AIMove, firstTurn);
+        playAITurns();
+    }
+
+    /**
+     * Plays an AI player's move and ends its turn, without playing the turns after it.
+     * The turn is passed if there is no move.
+     *
+     * @param AIMove the AI's mainWord, or null if it found none
+     * @param firstTurn checks if it is the firstTurn or not
+     */
+    private void playAIMove(AIMove AIMove, boolean firstTurn) {
+        if (AIMove == null) {
+            endTurn(true);
+            return;
+        }
         int row = AIMove.startRow();
         int col = AIMove.startCol();
 
@@ -634,17 +809,14 @@ public class Game implements Serializable {
             char letter = AIMove.word().charAt(i);
 
             if (board.getTile(row, col) == null) {
-                Tile tile = getCurrentPlayer().removeTileByLetter(letter);
-                if (tile == null) {
-                    tile = getCurrentPlayer().removeTileByLetter(' ');
-                    if (tile != null) {
-                        tile.setLetter(letter);
-                    }
-                }
-                if (tile != null) {
-                    tile.setCoords(row, col);
-                    board.placeTile(row, col, tile);
-                    placedTiles.add(tile);
+                int index = findTile(letter);
+                if (index == -1) index = findTile(' ');
+                if (index != -1) {
+                    Tile tile = getCurrentPlayer().getHand().get(index);
+                    change(new GameDelta.HandRemoved(currentPlayer, index, tile));
+                    if (tile.getLetter() != letter) change(new GameDelta.LetterChanged(tile, tile.getLetter(), letter));
+                    change(new GameDelta.TilePlaced(row, col, tile, tile.getX(), tile.getY()));
+                    change(new GameDelta.PlacedAdded(tile));
                 }
             }
             if (AIMove.isHorizontal()) col++;
@@ -654,153 +826,197 @@ public class Game implements Serializable {
         //Update the board on the views
         this.updateBoard(false);
 
-        if (this.validateMove(firstTurn)) this.nextTurn(false);
+        if (this.validateMove(firstTurn)) this.endTurn(false);
         else {
             this.removeViewsPlacedTiles();
-            this.nextTurn(true);
+            this.endTurn(true);
         }
     }
 
     /**
-     * Serializes the current game state and pushes it onto the specified stack.
-     * This method is used internally by the undo/redo system to capture snapshots
-     * of the game at various points in time. The Game object is fully serialized
-     * into a byte array and stored so that it can later be restored via
-     * undo() or redo().
+     * Plays one turn from a log, or undoes or redoes one, without playing any AI turns after it.
+     * Each turn is its own undoable action, so an undo entry reverts exactly one turn.
      *
-     * @param stack the stack onto which the serialized game state should be pushed.
-     *              Typically either the undoStack or redoStack.
-     * @throws IOException if an I/O error occurs during serialization.
+     * @param entry the logged entry
+     * @throws IOException if the entry does not fit the game, such as a move with tiles the
+     *                     player does not hold, or an undo with nothing to undo
      */
-    public void storeState(Stack<byte[]> stack) throws IOException {
-        System.out.println("Storing State:");
-        if (stack.equals(undoStack)) {
-            System.out.println("UndO");
+    void replay(GameLog.Entry entry) throws IOException {
+        switch (entry.type()) {
+            case GameLog.UNDO -> {
+                if (!history.undo(this)) throw new IOException("Logged undo with nothing to undo");
+            }
+            case GameLog.REDO -> {
+                if (!history.redo(this)) throw new IOException("Logged redo with nothing to redo");
+            }
+            default -> {
+                if (entry.player() != currentPlayer) throw new IOException("Logged turn of player " + entry.player() + " on player " + currentPlayer + "'s turn");
+                history.begin();
+                if (entry.type() != GameLog.MOVE) endTurn(true);
+                else if (entry.letters().isEmpty()) endTurn(false);
+                else {
+                    replayTiles(entry);
+                    if (!validateMove(firstTurn)) throw new IOException("Logged move is not valid: " + entry);
+                    endTurn(false);
+                }
+            }
         }
-        else {
-            System.out.println("Redo");
+    }
+
+    /**
+     * Places the tiles of a logged move from the current player's hand, from its first square
+     * onward, skipping squares that already hold a tile.
+     */
+    private void replayTiles(GameLog.Entry entry) throws IOException {
+        int row = entry.square() / Board.SIZE, col = entry.square() % Board.SIZE;
+        List<Tile> hand = getCurrentPlayer().getHand();
+        for (int i = 0; i < entry.letters().length(); i++) {
+            while (board.getTile(row, col) != null) {
+                if (entry.isHorizontal()) col++;
+                else row++;
+            }
+            char letter = entry.letters().charAt(i);
+            boolean blank = (entry.blankMask() & (1 << i)) != 0;
+            int index = -1;
+            for (int j = 0; j < hand.size() && index == -1; j++) {
+                Tile tile = hand.get(j);
+                if (blank ? tile.getScore() == 0 : tile.getScore() != 0 && tile.getLetter() == letter) index = j;
+            }
+            if (index == -1 || !board.isInBounds(row, col)) throw new IOException("Logged move cannot be placed: " + entry);
+
+            Tile tile = hand.get(index);
+            change(new GameDelta.HandRemoved(currentPlayer, index, tile));
+            if (tile.getLetter() != letter) change(new GameDelta.LetterChanged(tile, tile.getLetter(), letter));
+            change(new GameDelta.TilePlaced(row, col, tile, tile.getX(), tile.getY()));
+            change(new GameDelta.PlacedAdded(tile));
         }
-        System.out.println(stack.size());
-        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-        ObjectOutputStream state = new ObjectOutputStream(byteStream);
-        state.writeObject(this);
-        stack.push(byteStream.toByteArray());
-        System.out.println(stack.size());
     }
 
     /**
-     * Reverts the game to the most recently stored previous state.
-     * The current state is first saved onto the redo stack, allowing the user
-     * to reapply the undone action using redo(). The most recent
-     * serialized state from the undo stack is then deserialized and returned
-     * as a new Game instance.
-     * After loading, the new game instance reinitializes transient fields such as
-     * the list of views and the dictionary.
+     * Finds the first tile in the current player's hand with the given letter.
      *
-     * @return a new Game object representing the previous state.
-     * @throws IOException if an I/O error occurs during deserialization.
-     * @throws ClassNotFoundException if the serialized class definition cannot be found.
+     * @param letter the letter to look for
+     * @return the position of the tile in the hand, or -1 if there is none
      */
-    public Game undo() throws IOException, ClassNotFoundException {
-        try {
-            if (redoStack.isEmpty()) this.updateViewsRedo(true);
-            this.storeState(redoStack);
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("Failed to store in redo stack.");
+    private int findTile(char letter) {
+        List<Tile> hand = getCurrentPlayer().getHand();
+        for (int i = 0; i < hand.size(); i++) {
+            if (hand.get(i).getLetter() == letter) return i;
         }
+        return -1;
+    }
 
-        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(undoStack.pop()));
+    /**
+     * Marks the point that the next undo returns to. Every change made to the game from
+     * now until the next mark is recorded as one undoable action.
+     */
+    public void markUndoPoint() {
+        history.begin();
+    }
 
-        if (undoStack.isEmpty()) this.updateViewsUndo(false);
-        
-        Game loadedGame = (Game) in.readObject();
+    /**
+     * @return whether there is an action to undo
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
 
-        loadedGame.views = new ArrayList<>();
-        loadedGame.dictionary = new Dictionary();
-        loadedGame.dictionary.loadFromFile("src/wordlist.txt");
-        return loadedGame;
+    /**
+     * @return whether there is an action to redo
+     */
+    public boolean canRedo() {
+        return history.canRedo();
     }
 
     /**
-     * Reapplies the most recently undone operation by restoring a state stored in
-     * the redo stack.
-     * The current state is first pushed onto the undo stack, enabling the user to
-     * undo the redo if necessary. The method then restores the most recent redo
-     * state by deserializing it and returning a new Game instance.
-     * After loading, the returned instance resets transient fields such as the
-     * dictionary and the list of views.
-     *
-     * @return a new Game object representing the redone state.
-     * @throws IOException if an I/O error occurs during deserialization.
-     * @throws ClassNotFoundException if the serialized class definition cannot be found.
+     * Reverts the game to the most recent undo point.
+     * The changes recorded since that point are reverted in place, in reverse order,
+     * and kept so that redo() can apply them again. An AI player that is thinking is
+     * stopped first, and AI players whose turn it is afterwards play again.
      */
-    public Game redo() throws IOException, ClassNotFoundException {
-        try {
-            if (undoStack.isEmpty()) this.updateViewsUndo(true);
-            this.storeState(undoStack);
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("Failed to store in undo stack.");
+    public void undo() {
+        cancelAITurn();
+        int turns = turnsTaken();
+        if (history.undo(this)) {
+            for (int i = turnsTaken(); i < turns; i++) log(GameLog.history(GameLog.UNDO, currentPlayer));
+            this.updateViewsUndo(history.canUndo());
+            this.updateViewsRedo(true);
         }
+        playAITurns();
+    }
 
-        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(redoStack.pop()));
-        
-        if (redoStack.isEmpty()) this.updateViewsRedo(false);
-        
-        Game loadedGame = (Game) in.readObject();
-
-        loadedGame.views = new ArrayList<>();
-        loadedGame.dictionary = new Dictionary();
-        loadedGame.dictionary.loadFromFile("src/wordlist.txt");
-        return loadedGame;
+    /**
+     * Reapplies the most recently undone action.
+     * The changes are applied in place in their original order, and the action
+     * can be undone again. An AI player that is thinking is stopped first, and AI players
+     * whose turn it is afterwards play again.
+     */
+    public void redo() {
+        cancelAITurn();
+        int turns = turnsTaken();
+        if (history.redo(this)) {
+            for (int i = turns; i < turnsTaken(); i++) log(GameLog.history(GameLog.REDO, currentPlayer));
+            this.updateViewsUndo(true);
+            this.updateViewsRedo(history.canRedo());
+        }
+        playAITurns();
     }
 
     /**
-     * Removes all stored undo history from the undo stack.
-     * If the stack is not empty, it is cleared and the UI is notified
-     * via updateViewsUndo(false) that undo is no longer available.
+     * Removes all stored undo history.
+     * If there was history, the UI is notified via updateViewsUndo(false)
+     * that undo is no longer available.
      */
     public void clearUndoStack() {
-        if (!undoStack.isEmpty()) {
-            undoStack.clear();
+        if (history.canUndo()) {
+            history.clearUndo();
             this.updateViewsUndo(false);
         }
     }
 
     /**
-     * Removes all stored redo history from the redo stack.
-     * If the stack is not empty, it is cleared and the UI is notified
-     * via updateViewsRedo(false) that redo is no longer available.
+     * Removes all stored redo history.
+     * If there was history, the UI is notified via updateViewsRedo(false)
+     * that redo is no longer available.
      */
     public void clearRedoStack() {
-        if (!redoStack.isEmpty()) {
-            redoStack.clear();
+        if (history.canRedo()) {
+            history.clearRedo();
             this.updateViewsRedo(false);
         }
     }
 
     /**
-     * Saves the current game state to a file using Java serialization.
-     * The state is written exactly as stored in memory, allowing it to be
+     * Restores whose turn it is and the state of the turn, for a game read by GameSave.
+     */
+    void restoreTurn(int currentPlayer, ArrayList<Tile> placedTiles, Tile selectedTile, int endPasses, boolean firstTurn, boolean gameOver) {
+        this.currentPlayer = currentPlayer;
+        this.placedTiles = placedTiles;
+        this.selectedTile = selectedTile;
+        this.endPasses = endPasses;
+        this.firstTurn = firstTurn;
+        this.gameOver = gameOver;
+    }
+
+    /**
+     * Saves the current game state to a file in the format of GameSave.
+     * Only the state of the game is written, allowing it to be
      * restored later through loadGame(File).
      *
      * @param file the file to which the game state will be written.
      * @throws IOException if an error occurs while writing to the file.
      */
     public void saveGame(File file) throws IOException {
-        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
-        out.writeObject(this);
-        out.close();
+        ByteBuffer save = GameSave.write(this);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(save.array(), 0, save.limit());
+        }
     }
 
     /**
      * Loads a previously saved game state from the specified file.
-     * After the serialized object is deserialized, transient fields such as the
-     * list of views and the dictionary are reinitialized to ensure proper runtime
-     * behavior.
+     * The game is attached to the shared dictionary, so no word list is reloaded.
+     * Files saved with Java serialization by earlier versions are still read.
      *
      * @param file the file containing a previously saved game state.
      * @return a new Game instance reconstructed from the file.
@@ -808,14 +1024,22 @@ public class Game implements Serializable {
      * @throws ClassNotFoundException if the serialized class cannot be found.
      */
     public static Game loadGame(File file) throws IOException, ClassNotFoundException {
-        ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
-        Game loadedGame = (Game) in.readObject();
-        in.close();
-
-        loadedGame.views = new ArrayList<>();
-        loadedGame.dictionary = new Dictionary();
-        loadedGame.dictionary.loadFromFile("src/wordlist.txt");
-        return loadedGame;
+        byte[] bytes;
+        try (FileInputStream in = new FileInputStream(file)) {
+            bytes = in.readAllBytes();
+        }
+        //Serialized files start with the stream magic number 0xACED
+        if (bytes.length < 2 || ((bytes[0] & 0xFF) << 8 | bytes[1] & 0xFF) != (ObjectStreamConstants.STREAM_MAGIC & 0xFFFF)) {
+            return GameSave.read(ByteBuffer.wrap(bytes));
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            Game loadedGame = (Game) in.readObject();
+            loadedGame.views = new ArrayList<>();
+            loadedGame.dictionary = Dictionary.shared(WORDLIST);
+            loadedGame.history = new GameHistory();
+            return loadedGame;
+        }
     }
 
     /**
@@ -0,0 +1,564 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The GameArchive class reads archives of played games and replays them to gather statistics,
+ * such as the average score of a move, how often moves are bingos, and how often the players
+ * chose the move the AI would have played.
+ *
+ * Games are read in the GCG format, one or more to a file, from a file or a directory of
+ * .gcg files. A game starts with #player lines naming the players, and each turn is a line like
+ * <pre>
+ * &gt;Ann: AEINRST 8D RETAINS +66 66      a move, down the column if the square starts with its letter
+ * &gt;Bob: EIOUVWY -UUVW +0 0           an exchange
+ * &gt;Bob: EIOUVWY - +0 0               a pass
+ * &gt;Ann: DEIOPR? -- -66 0             the last move taken back after a challenge
+ * </pre>
+ * In a move, '.' or letters in brackets are tiles already on the board, and a lower case
+ * letter is a blank. Other lines, such as notes and end of game rack bonuses, are skipped.
+ *
+ * Games are read lazily and replayed in parallel, with only a few games per thread read ahead,
+ * so memory stays the same however large the archive is. Each move is replayed on a Board with
+ * a MoveScorer, the same rules Game.analyzeMove uses, and reported to a callback as it is
+ * replayed. Words missing from the word list still score, since archives are usually played
+ * with a larger list than this one. The rules have no bingo bonus, so the recorded score of
+ * a bingo is 50 more than the replayed one.
+ */
+public class GameArchive {
+    public static final int MOVE = 1, EXCHANGE = 2, PASS = 3, WITHDRAWN = 4;
+
+    /**
+     * One turn of a game record.
+     *
+     * @param player        the nickname of the player
+     * @param type          MOVE, EXCHANGE, PASS or WITHDRAWN
+     * @param rack          the player's rack before the turn, with '?' for a blank
+     * @param row           the row of the first square of a move
+     * @param col           the column of the first square of a move
+     * @param isHorizontal  whether a move runs along the row
+     * @param word          the word of a move as recorded, or the tiles exchanged
+     * @param score         the recorded score of the turn
+     */
+    public record Turn(String player, int type, String rack, int row, int col, boolean isHorizontal, String word, int score) {
+    }
+
+    /**
+     * One game of an archive.
+     *
+     * @param source  the file the game was read from
+     * @param index   the number of the game within its file, from 0
+     * @param players the nicknames of the players, in turn order
+     * @param turns   the turns, in the order they were played
+     */
+    public record GameRecord(String source, int index, List<String> players, List<Turn> turns) {
+    }
+
+    /**
+     * The statistics of one replayed turn.
+     *
+     * @param source        the file the game was read from
+     * @param game          the number of the game within its file
+     * @param turn          the number of the turn within its game, from 0
+     * @param player        the nickname of the player
+     * @param type          MOVE, EXCHANGE, PASS or WITHDRAWN
+     * @param word          the main word of a move, or the word as recorded if it is not placed legally
+     * @param tiles         the number of tiles the move placed
+     * @param recordedScore the score recorded for the turn
+     * @param score         the replayed score of a move, or -1 if its tiles are not placed legally
+     * @param valid         whether every word the move formed is in the word list
+     * @param bestScore     the score of the move the AI would have played, or -1 if the AI was not asked or found none
+     * @param matchesBest   whether the move is the one the AI would have played
+     */
+    public record MoveStats(String source, int game, int turn, String player, int type, String word, int tiles,
+                            int recordedScore, int score, boolean valid, int bestScore, boolean matchesBest) {
+        public boolean isBingo() {
+            return tiles == Player.HAND_SIZE;
+        }
+    }
+
+    /**
+     * The totals of an analysis.
+     *
+     * @param games          the number of games replayed
+     * @param failed         the number of games that could not be replayed, such as a move onto an occupied square
+     * @param moves          the number of moves replayed, not counting withdrawn ones
+     * @param exchanges      the number of exchanges and passes
+     * @param scoreTotal     the sum of the replayed scores of the moves
+     * @param bingos         the number of moves that placed a whole rack
+     * @param invalid        the number of moves forming a word missing from the word list
+     * @param scoreMismatches the number of moves whose recorded score is not the replayed one
+     * @param compared       the number of moves compared against the AI
+     * @param matched        the number of those moves that were the AI's choice
+     * @param pointsBehind   the total points the compared moves scored below the AI's choice
+     * @param threads        the number of threads the games were replayed on
+     * @param elapsedNanos   how long the analysis took
+     */
+    public record Report(long games, long failed, long moves, long exchanges, long scoreTotal, long bingos, long invalid,
+                         long scoreMismatches, long compared, long matched, long pointsBehind, int threads, long elapsedNanos) {
+        public double averageScore() {
+            return moves == 0 ? 0 : (double) scoreTotal / moves;
+        }
+
+        public double bingoRate() {
+            return moves == 0 ? 0 : (double) bingos / moves;
+        }
+
+        /**
+         * @return the fraction of compared moves that were the AI's choice
+         */
+        public double accuracy() {
+            return compared == 0 ? 0 : (double) matched / compared;
+        }
+
+        public double movesPerSecond() {
+            return (moves + exchanges) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%d failed), %d moves and %d exchanges or passes on %d threads in %.2f s (%.0f turns/s)%n"
+                            + "average score %.2f, bingo rate %.1f%%, %d moves with words not in the word list, %d score mismatches%n"
+                            + "AI agreement %.1f%% of %d moves, %.2f points behind on average",
+                    games, failed, moves, exchanges, threads, elapsedNanos / 1e9, movesPerSecond(),
+                    averageScore(), bingoRate() * 100, invalid, scoreMismatches,
+                    accuracy() * 100, compared, compared == 0 ? 0 : (double) pointsBehind / compared);
+        }
+    }
+
+    /**
+     * Running totals, filled in per game and then added to the totals of the analysis.
+     */
+    private static class Totals {
+        long games, failed, moves, exchanges, scoreTotal, bingos, invalid, scoreMismatches, compared, matched, pointsBehind;
+
+        void add(Totals other) {
+            games += other.games;
+            failed += other.failed;
+            moves += other.moves;
+            exchanges += other.exchanges;
+            scoreTotal += other.scoreTotal;
+            bingos += other.bingos;
+            invalid += other.invalid;
+            scoreMismatches += other.scoreMismatches;
+            compared += other.compared;
+            matched += other.matched;
+            pointsBehind += other.pointsBehind;
+        }
+    }
+
+    private GameArchive() {
+    }
+
+    /**
+     * Reads the games of an archive lazily. The stream holds the file it is reading open,
+     * so it should be closed once it has been used.
+     *
+     * @param file a GCG file, or a directory whose .gcg files are read in name order
+     * @return the games, read as the stream is consumed
+     * @throws IOException if the file or directory cannot be opened
+     */
+    public static Stream<GameRecord> read(File file) throws IOException {
+        if (!file.isDirectory()) {
+            return read(file.getName(), new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)));
+        }
+
+        //Only the names are listed up front, and each file is opened as the stream reaches it
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(file.toPath(), "*.gcg")) {
+            for (Path path : paths) files.add(path);
+        }
+        files.sort(null);
+
+        DirectoryGames games = new DirectoryGames(files);
+        return StreamSupport.stream(games, false).onClose(games::close);
+    }
+
+    /**
+     * Reads the games of several files in turn, opening each file once the one before it runs
+     * out and reading it one game at a time. Stream.flatMap would read a whole file ahead the
+     * first time an iterator advanced into it.
+     */
+    private static class DirectoryGames extends Spliterators.AbstractSpliterator<GameRecord> {
+        private final Iterator<Path> files;
+        private Stream<GameRecord> current;
+        private Spliterator<GameRecord> reading;
+
+        DirectoryGames(List<Path> files) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.files = files.iterator();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super GameRecord> action) {
+            while (reading == null || !reading.tryAdvance(action)) {
+                close();
+                if (!files.hasNext()) return false;
+                try {
+                    current = read(files.next().toFile());
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                reading = current.spliterator();
+            }
+            return true;
+        }
+
+        /**
+         * Closes the file being read, if there is one.
+         */
+        void close() {
+            if (current != null) current.close();
+            current = null;
+            reading = null;
+        }
+    }
+
+    /**
+     * Reads the games of one source lazily.
+     *
+     * @param source the name of the source, for the records
+     * @param reader the GCG text, which is closed with the stream
+     * @return the games, read as the stream is consumed
+     */
+    public static Stream<GameRecord> read(String source, BufferedReader reader) {
+        Spliterator<GameRecord> games = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private String pending;
+            private int index;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super GameRecord> action) {
+                try {
+                    List<String> players = new ArrayList<>();
+                    List<Turn> turns = new ArrayList<>();
+                    String line;
+                    while ((line = pending != null ? pending : reader.readLine()) != null) {
+                        pending = null;
+                        line = line.strip();
+                        if (line.startsWith("#player")) {
+                            //A game's player lines come before its turns, so these start the next game
+                            if (!turns.isEmpty()) {
+                                pending = line;
+                                break;
+                            }
+                            String[] fields = line.split("\\s+");
+                            if (fields.length > 1) players.add(fields[1]);
+                        }
+                        else if (line.startsWith(">")) {
+                            Turn turn = parseTurn(line);
+                            if (turn != null) turns.add(turn);
+                        }
+                    }
+                    if (players.isEmpty() && turns.isEmpty()) return false;
+                    action.accept(new GameRecord(source, index++, List.copyOf(players), turns));
+                    return true;
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(games, false).onClose(() -> {
+            try {
+                reader.close();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Parses one turn line.
+     *
+     * @param line the line, starting with '>'
+     * @return the turn, or null if the line is not a move, exchange, pass or withdrawal
+     */
+    static Turn parseTurn(String line) {
+        int colon = line.indexOf(':');
+        if (colon < 0) return null;
+        String player = line.substring(1, colon).strip();
+        String[] fields = line.substring(colon + 1).strip().split("\\s+");
+        //Rack bonuses, challenge bonuses and time penalties have a bracketed field
+        if (fields.length < 3 || fields[0].startsWith("(") || fields[1].startsWith("(")) return null;
+
+        String rack = fields[0];
+        if (fields[1].equals("--")) return new Turn(player, WITHDRAWN, rack, 0, 0, false, "", parseScore(fields[2]));
+        if (fields[1].equals("-")) return new Turn(player, PASS, rack, 0, 0, false, "", parseScore(fields[2]));
+        if (fields[1].startsWith("-")) return new Turn(player, EXCHANGE, rack, 0, 0, false, fields[1].substring(1), parseScore(fields[2]));
+        if (fields.length < 4) return null;
+
+        //"8D" runs along row 8 from column D, and "D8" runs down column D from row 8
+        String square = fields[1].toUpperCase();
+        boolean isHorizontal = Character.isDigit(square.charAt(0));
+        String number = isHorizontal ? square.substring(0, square.length() - 1) : square.substring(1);
+        char column = isHorizontal ? square.charAt(square.length() - 1) : square.charAt(0);
+        try {
+            int row = Integer.parseInt(number) - 1;
+            int col = column - 'A';
+            return new Turn(player, MOVE, rack, row, col, isHorizontal, fields[2], parseScore(fields[3]));
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int parseScore(String score) {
+        try {
+            return Integer.parseInt(score.startsWith("+") ? score.substring(1) : score);
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Replays the games of an archive in parallel and totals their statistics.
+     *
+     * @param file       a GCG file, or a directory of .gcg files
+     * @param dictionary the word list to check words against
+     * @param threads    the number of threads to replay games on
+     * @param compareAI  whether to find the move the AI would have played at every turn, which is much slower
+     * @param moves      called with the statistics of every turn as it is replayed, from any of the threads, or null
+     * @return the totals of the analysis
+     * @throws IOException if the archive cannot be read
+     * @throws InterruptedException if interrupted while waiting for the games
+     */
+    public static Report analyze(File file, Dictionary dictionary, int threads, boolean compareAI, Consumer<MoveStats> moves)
+            throws IOException, InterruptedException {
+        try (Stream<GameRecord> games = read(file)) {
+            return analyze(games, dictionary, threads, compareAI, moves);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Replays games in parallel and totals their statistics. Games are taken from the stream
+     * only as threads become free for them, so the stream can be as long as it likes.
+     *
+     * @param games      the games
+     * @param dictionary the word list to check words against
+     * @param threads    the number of threads to replay games on
+     * @param compareAI  whether to find the move the AI would have played at every turn, which is much slower
+     * @param moves      called with the statistics of every turn as it is replayed, from any of the threads, or null
+     * @return the totals of the analysis
+     * @throws InterruptedException if interrupted while waiting for the games
+     */
+    public static Report analyze(Stream<GameRecord> games, Dictionary dictionary, int threads, boolean compareAI, Consumer<MoveStats> moves)
+            throws InterruptedException {
+        if (threads < 1) throw new IllegalArgumentException("Threads must be positive.");
+        //Build the lexicon before the clock starts
+        dictionary.getLexicon();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        //A game is read ahead only once a permit is free, which bounds the games in memory
+        Semaphore inFlight = new Semaphore(2 * threads);
+        Totals totals = new Totals();
+        long start = System.nanoTime();
+        try {
+            Iterator<GameRecord> iterator = games.iterator();
+            while (iterator.hasNext()) {
+                inFlight.acquire();
+                GameRecord game = iterator.next();
+                pool.execute(() -> {
+                    Totals gameTotals;
+                    try {
+                        gameTotals = replay(game, dictionary, compareAI, moves);
+                    }
+                    catch (RuntimeException e) {
+                        gameTotals = new Totals();
+                        gameTotals.games = 1;
+                        gameTotals.failed = 1;
+                    }
+                    try {
+                        synchronized (totals) {
+                            totals.add(gameTotals);
+                        }
+                    }
+                    finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(2 * threads);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (totals) {
+            return new Report(totals.games, totals.failed, totals.moves, totals.exchanges, totals.scoreTotal, totals.bingos,
+                    totals.invalid, totals.scoreMismatches, totals.compared, totals.matched, totals.pointsBehind, threads, elapsed);
+        }
+    }
+
+    /**
+     * Replays one game on a board of its own. A game that cannot be replayed, such as one with
+     * a move onto an occupied square, is stopped there and counted as failed.
+     */
+    private static Totals replay(GameRecord game, Dictionary dictionary, boolean compareAI, Consumer<MoveStats> moves) {
+        Totals totals = new Totals();
+        totals.games = 1;
+        Board board = new Board();
+        MoveScorer scorer = new MoveScorer(dictionary.getLexicon());
+        AIPlayer ai = null;
+        if (compareAI) {
+            ai = new AIPlayer("AI");
+            ai.setMoveCache(new MoveCache(0));
+        }
+        //The squares of the last move, to take it back if it is withdrawn
+        int[] lastMove = new int[0];
+
+        for (int i = 0; i < game.turns().size(); i++) {
+            Turn turn = game.turns().get(i);
+            if (turn.type() == EXCHANGE || turn.type() == PASS) {
+                totals.exchanges++;
+                report(moves, new MoveStats(game.source(), game.index(), i, turn.player(), turn.type(), turn.word(), 0,
+                        turn.score(), 0, true, -1, false));
+                continue;
+            }
+            if (turn.type() == WITHDRAWN) {
+                for (int square : lastMove) board.removeTile(square / Board.SIZE, square % Board.SIZE);
+                lastMove = new int[0];
+                report(moves, new MoveStats(game.source(), game.index(), i, turn.player(), turn.type(), "", 0, turn.score(), 0, true, -1, false));
+                continue;
+            }
+
+            boolean firstTurn = board.getTileCount() == 0;
+            int bestScore = -1;
+            AIMove best = null;
+            if (ai != null) {
+                while (!ai.getHand().isEmpty()) ai.removeTile();
+                for (char letter : turn.rack().toCharArray()) {
+                    ScrabbleLetters tile = letter == '?' ? ScrabbleLetters.BLANK : ScrabbleLetters.get(letter);
+                    if (tile != null) ai.addTile(new Tile(tile.getLetter(), tile.getScore()));
+                }
+                best = ai.getBestMove(dictionary, board, firstTurn);
+                if (best != null) bestScore = score(scorer, board, best, turn.rack(), firstTurn);
+            }
+
+            List<Tile> tiles = tiles(board, turn);
+            if (tiles == null) {
+                totals.failed++;
+                return totals;
+            }
+            scorer.reset(board);
+            for (Tile tile : tiles) scorer.place(tile.getX(), tile.getY(), tile.getLetter(), tile.getScore());
+            int score = scorer.score(firstTurn);
+            boolean valid = score >= 0;
+            String word = turn.word();
+            if (valid) word = scorer.analyze(firstTurn).mainWord();
+            else score = scorer.scoreAnyWords(firstTurn);
+
+            boolean matchesBest = best != null && best.startRow() == turn.row() && best.startCol() == turn.col()
+                    && best.isHorizontal() == turn.isHorizontal() && best.word().equals(word);
+            MoveStats stats = new MoveStats(game.source(), game.index(), i, turn.player(), MOVE, word, tiles.size(),
+                    turn.score(), score, valid, bestScore, matchesBest);
+            report(moves, stats);
+
+            totals.moves++;
+            if (score >= 0) totals.scoreTotal += score;
+            if (stats.isBingo()) totals.bingos++;
+            if (!valid) totals.invalid++;
+            if (score != turn.score()) totals.scoreMismatches++;
+            if (bestScore >= 0) {
+                totals.compared++;
+                if (matchesBest) totals.matched++;
+                totals.pointsBehind += Math.max(bestScore - Math.max(score, 0), 0);
+            }
+
+            lastMove = new int[tiles.size()];
+            for (int t = 0; t < tiles.size(); t++) {
+                Tile tile = tiles.get(t);
+                board.placeTile(tile.getX(), tile.getY(), tile);
+                lastMove[t] = tile.getX() * Board.SIZE + tile.getY();
+            }
+        }
+        return totals;
+    }
+
+    private static void report(Consumer<MoveStats> moves, MoveStats stats) {
+        if (moves != null) moves.accept(stats);
+    }
+
+    /**
+     * Makes the tiles a recorded move places, from its first square onward.
+     *
+     * @return the tiles, holding their squares, or null if the move does not fit the board
+     */
+    private static List<Tile> tiles(Board board, Turn turn) {
+        List<Tile> tiles = new ArrayList<>(Player.HAND_SIZE);
+        int row = turn.row(), col = turn.col();
+        boolean bracketed = false;
+        for (char letter : turn.word().toCharArray()) {
+            if (letter == '(' || letter == ')') {
+                bracketed = letter == '(';
+                continue;
+            }
+            if (!board.isInBounds(row, col)) return null;
+            char onBoard = board.getLetter(row, col);
+            if (letter == '.' || bracketed || onBoard != 0) {
+                //Some records spell out the tiles a move plays through
+                if (onBoard == 0 || (letter != '.' && onBoard != Character.toUpperCase(letter))) return null;
+            }
+            else {
+                ScrabbleLetters type = ScrabbleLetters.get(letter);
+                if (type == null || type == ScrabbleLetters.BLANK) return null;
+                Tile tile = new Tile(letter, Character.isLowerCase(letter) ? 0 : type.getScore());
+                tile.setCoords(row, col);
+                tiles.add(tile);
+            }
+            if (turn.isHorizontal()) col++;
+            else row++;
+        }
+        return tiles.isEmpty() ? null : tiles;
+    }
+
+    /**
+     * Scores a move the AI found. Moves do not say which tiles are blanks, so a letter
+     * the rack has run out of is taken to be a blank.
+     *
+     * @return the score of the move
+     */
+    private static int score(MoveScorer scorer, Board board, AIMove move, String rack, boolean firstTurn) {
+        int[] counts = new int[LeaveTable.TYPES];
+        for (char letter : rack.toUpperCase().toCharArray()) {
+            if (letter >= 'A' && letter <= 'Z') counts[letter - 'A']++;
+        }
+        scorer.reset(board);
+        int row = move.startRow(), col = move.startCol();
+        for (char letter : move.word().toCharArray()) {
+            if (board.getTile(row, col) == null) {
+                boolean blank = letter < 'A' || letter > 'Z' || counts[letter - 'A']-- == 0;
+                scorer.place(row, col, letter, blank ? 0 : ScrabbleLetters.get(letter).getScore());
+            }
+            if (move.isHorizontal()) col++;
+            else row++;
+        }
+        return scorer.score(firstTurn);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: GameArchive <file or directory> [threads] [compareAI] [wordlist]");
+            return;
+        }
+        File file = new File(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        boolean compareAI = args.length > 2 && Boolean.parseBoolean(args[2]);
+        Dictionary dictionary = Dictionary.shared(args.length > 3 ? args[3] : Game.WORDLIST);
+
+        System.out.println(analyze(file, dictionary, threads, compareAI, null));
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * A GameDelta is a single change to the state of a Game, recorded so that it can be
+ * reverted by undo and applied again by redo.
+ *
+ * Every change the game makes during a turn goes through a delta, so an undoable
+ * action is just the list of deltas recorded since the action began. Deltas only hold
+ * the few values they change, which keeps the undo history proportional to the number
+ * of moves rather than to the size of the game.
+ */
+public sealed interface GameDelta {
+    /**
+     * Makes the change on the given game.
+     *
+     * @param game the game to change
+     */
+    void apply(Game game);
+
+    /**
+     * Reverses the change on the given game. Only valid when the game is in the state
+     * that apply(Game) left it in.
+     *
+     * @param game the game to change back
+     */
+    void revert(Game game);
+
+    /**
+     * Estimates the heap used by this change, so the history can be capped by size.
+     * Tiles are shared with the game, so only the delta itself is counted.
+     *
+     * @return the estimated size in bytes
+     */
+    default int estimatedBytes() {
+        return 32;
+    }
+
+    /**
+     * A tile placed on an empty square of the board.
+     */
+    record TilePlaced(int row, int col, Tile tile, int previousRow, int previousCol) implements GameDelta {
+        public void apply(Game game) {
+            tile.setCoords(row, col);
+            game.getBoard().placeTile(row, col, tile);
+        }
+
+        public void revert(Game game) {
+            game.getBoard().removeTile(row, col);
+            tile.setCoords(previousRow, previousCol);
+        }
+    }
+
+    /**
+     * A tile taken off the board.
+     */
+    record TileRemoved(int row, int col, Tile tile) implements GameDelta {
+        public void apply(Game game) {
+            game.getBoard().removeTile(row, col);
+        }
+
+        public void revert(Game game) {
+            game.getBoard().placeTile(row, col, tile);
+        }
+    }
+
+    /**
+     * A tile added to a player's hand at the given position.
+     */
+    record HandAdded(int player, int index, Tile tile) implements GameDelta {
+        public void apply(Game game) {
+            game.getPlayers().get(player).addTile(index, tile);
+        }
+
+        public void revert(Game game) {
+            game.getPlayers().get(player).removeTile(index);
+        }
+    }
+
+    /**
+     * A tile taken from the given position of a player's hand.
+     */
+    record HandRemoved(int player, int index, Tile tile) implements GameDelta {
+        public void apply(Game game) {
+            game.getPlayers().get(player).removeTile(index);
+        }
+
+        public void revert(Game game) {
+            game.getPlayers().get(player).addTile(index, tile);
+        }
+    }
+
+    /**
+     * A tile returned to the bag at the given position.
+     */
+    record BagAdded(int index, Tile tile) implements GameDelta {
+        public void apply(Game game) {
+            game.getTileBag().addTile(index, tile);
+        }
+
+        public void revert(Game game) {
+            game.getTileBag().removeTile(index);
+        }
+    }
+
+    /**
+     * A tile drawn from the given position of the bag. The state of the bag's generator
+     * is restored too, so the draws after an undo are the same as the first time.
+     */
+    record TileDrawn(int index, Tile tile, long stateBefore, long stateAfter) implements GameDelta {
+        public void apply(Game game) {
+            game.getTileBag().removeTile(index);
+            game.getTileBag().setState(stateAfter);
+        }
+
+        public void revert(Game game) {
+            game.getTileBag().addTile(index, tile);
+            game.getTileBag().setState(stateBefore);
+        }
+
+        public int estimatedBytes() {
+            return 40;
+        }
+    }
+
+    /**
+     * The letter of a blank tile being chosen or cleared.
+     */
+    record LetterChanged(Tile tile, char before, char after) implements GameDelta {
+        public void apply(Game game) {
+            tile.setLetter(after);
+        }
+
+        public void revert(Game game) {
+            tile.setLetter(before);
+        }
+    }
+
+    /**
+     * The tile selected from the current player's hand changing.
+     */
+    record TileSelected(Tile before, Tile after) implements GameDelta {
+        public void apply(Game game) {
+            game.setSelectedTile(after);
+        }
+
+        public void revert(Game game) {
+            game.setSelectedTile(before);
+        }
+    }
+
+    /**
+     * A tile added to the end of the tiles placed this turn.
+     */
+    record PlacedAdded(Tile tile) implements GameDelta {
+        public void apply(Game game) {
+            game.getPlacedTiles().add(tile);
+        }
+
+        public void revert(Game game) {
+            game.getPlacedTiles().removeLast();
+        }
+    }
+
+    /**
+     * A tile removed from the end of the tiles placed this turn.
+     */
+    record PlacedRemoved(Tile tile) implements GameDelta {
+        public void apply(Game game) {
+            game.getPlacedTiles().removeLast();
+        }
+
+        public void revert(Game game) {
+            game.getPlacedTiles().add(tile);
+        }
+    }
+
+    /**
+     * Points added to a player's score.
+     */
+    record ScoreAdded(int player, int points) implements GameDelta {
+        public void apply(Game game) {
+            game.getPlayers().get(player).addScore(points);
+        }
+
+        public void revert(Game game) {
+            game.getPlayers().get(player).addScore(-points);
+        }
+    }
+
+    /**
+     * A word added to a player's recorded moves.
+     */
+    record MoveRecorded(int player, PlayerMove move) implements GameDelta {
+        public void apply(Game game) {
+            game.getPlayers().get(player).addMove(move);
+        }
+
+        public void revert(Game game) {
+            game.getPlayers().get(player).getRecordedMoves().removeLast();
+        }
+    }
+
+    /**
+     * A player's turn counter being incremented.
+     */
+    record TurnTaken(int player) implements GameDelta {
+        public void apply(Game game) {
+            game.getPlayers().get(player).incrementTurns();
+        }
+
+        public void revert(Game game) {
+            game.getPlayers().get(player).decrementTurns();
+        }
+    }
+
+    /**
+     * The turn passing from one player to another.
+     */
+    record TurnAdvanced(int before, int after) implements GameDelta {
+        public void apply(Game game) {
+            game.setCurrentPlayer(after);
+        }
+
+        public void revert(Game game) {
+            game.setCurrentPlayer(before);
+        }
+    }
+
+    /**
+     * The count of consecutive passes with an empty bag changing.
+     */
+    record EndPassesChanged(int before, int after) implements GameDelta {
+        public void apply(Game game) {
+            game.setEndPasses(after);
+        }
+
+        public void revert(Game game) {
+            game.setEndPasses(before);
+        }
+    }
+
+    /**
+     * The first word of the game being played.
+     */
+    record FirstTurnPlayed() implements GameDelta {
+        public void apply(Game game) {
+            game.setFirstTurn(false);
+        }
+
+        public void revert(Game game) {
+            game.setFirstTurn(true);
+        }
+    }
+
+    /**
+     * The game ending.
+     */
+    record GameEnded() implements GameDelta {
+        public void apply(Game game) {
+            game.setGameOver(true);
+        }
+
+        public void revert(Game game) {
+            game.setGameOver(false);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The GameHistory class keeps the undo and redo history of a Game as lists of deltas.
+ *
+ * Each undoable action is the list of GameDelta changes recorded between one call to begin()
+ * and the next. An action is only kept once a change is recorded in it, so marking undo points
+ * where nothing changes never leaves an empty action to undo. Undo reverts the most recent
+ * action's deltas in reverse order, and redo applies them again in their original order. Both
+ * work on the game in place.
+ *
+ * The history is capped both by the number of actions and by their estimated size.
+ * When either cap is exceeded the oldest actions are dropped, so long sessions use a
+ * bounded amount of memory. The caps default to the system properties
+ * scrabble.undo.maxActions and scrabble.undo.maxBytes.
+ */
+public class GameHistory {
+    public static final int DEFAULT_MAX_ACTIONS = Integer.getInteger("scrabble.undo.maxActions", 200);
+    public static final long DEFAULT_MAX_BYTES = Long.getLong("scrabble.undo.maxBytes", 1L << 20);
+
+    private final Deque<Action> undoStack;
+    private final Deque<Action> redoStack;
+    private final int maxActions;
+    private final long maxBytes;
+    //Whether begin() was called since the last change, so the next change starts a new action
+    private boolean pending;
+
+    //Statistics
+    private long bytes;
+    private long peakBytes;
+    private long undos;
+    private long redos;
+    private long misses;
+    private long evictions;
+
+    /**
+     * The deltas of one undoable action, along with their estimated size.
+     */
+    private static class Action {
+        private final List<GameDelta> deltas = new ArrayList<>();
+        private long bytes;
+    }
+
+    /**
+     * A snapshot of how the history is being used, for sizing its caps.
+     *
+     * @param undoDepth the number of actions that can be undone
+     * @param redoDepth the number of actions that can be redone
+     * @param bytes     the estimated size of every stored action
+     * @param peakBytes the largest estimated size the history has reached
+     * @param undos     the number of actions undone
+     * @param redos     the number of actions redone
+     * @param misses    the number of undo or redo requests with nothing to undo or redo
+     * @param evictions the number of actions dropped to stay within the caps
+     */
+    public record Stats(int undoDepth, int redoDepth, long bytes, long peakBytes,
+                        long undos, long redos, long misses, long evictions) {
+        @Override
+        public String toString() {
+            return String.format("undo %d, redo %d, %d KB (peak %d KB), %d undos, %d redos, %d misses, %d evicted",
+                    undoDepth, redoDepth, bytes / 1024, peakBytes / 1024, undos, redos, misses, evictions);
+        }
+    }
+
+    /**
+     * Constructs an empty history with the default caps.
+     */
+    public GameHistory() {
+        this(DEFAULT_MAX_ACTIONS, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructs an empty history.
+     *
+     * @param maxActions the most actions to keep across the undo and redo stacks
+     * @param maxBytes   the most estimated bytes to keep across the undo and redo stacks
+     */
+    public GameHistory(int maxActions, long maxBytes) {
+        if (maxActions < 1 || maxBytes < 1) throw new IllegalArgumentException("History caps must be positive.");
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        undoStack = new ArrayDeque<>();
+        redoStack = new ArrayDeque<>();
+    }
+
+    /**
+     * Starts a new undoable action. Changes recorded from now on are undone together.
+     */
+    public void begin() {
+        pending = true;
+    }
+
+    /**
+     * Adds a change to the current action. Changes made before the first action
+     * began cannot be undone, so they are not kept.
+     *
+     * @param delta the change that was made
+     */
+    public void record(GameDelta delta) {
+        if (pending) {
+            undoStack.push(new Action());
+            pending = false;
+        }
+        Action action = undoStack.peek();
+        if (action == null) return;
+        action.deltas.add(delta);
+        action.bytes += delta.estimatedBytes();
+        bytes += delta.estimatedBytes();
+        peakBytes = Math.max(peakBytes, bytes);
+        trim();
+    }
+
+    /**
+     * Drops the oldest actions until the history is within its caps. The undo stack is
+     * trimmed first, and the action being recorded is never dropped.
+     */
+    private void trim() {
+        while (undoStack.size() + redoStack.size() > maxActions || bytes > maxBytes) {
+            Action oldest;
+            if (undoStack.size() > 1) oldest = undoStack.removeLast();
+            else if (!redoStack.isEmpty()) oldest = redoStack.removeLast();
+            else break;
+            bytes -= oldest.bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * @return whether there is an action to undo
+     */
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    /**
+     * @return whether there is an action to redo
+     */
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    /**
+     * Reverts the most recent action and moves it to the redo stack.
+     *
+     * @param game the game to revert
+     * @return false if there was nothing to undo
+     */
+    public boolean undo(Game game) {
+        Action action = undoStack.poll();
+        if (action == null) {
+            misses++;
+            return false;
+        }
+        for (int i = action.deltas.size() - 1; i >= 0; i--) {
+            action.deltas.get(i).revert(game);
+        }
+        redoStack.push(action);
+        undos++;
+        return true;
+    }
+
+    /**
+     * Applies the most recently undone action again and moves it back to the undo stack.
+     *
+     * @param game the game to apply it to
+     * @return false if there was nothing to redo
+     */
+    public boolean redo(Game game) {
+        Action action = redoStack.poll();
+        if (action == null) {
+            misses++;
+            return false;
+        }
+        for (GameDelta delta : action.deltas) {
+            delta.apply(game);
+        }
+        undoStack.push(action);
+        redos++;
+        return true;
+    }
+
+    /**
+     * Removes every action from the undo stack.
+     */
+    public void clearUndo() {
+        for (Action action : undoStack) bytes -= action.bytes;
+        undoStack.clear();
+    }
+
+    /**
+     * Removes every action from the redo stack.
+     */
+    public void clearRedo() {
+        for (Action action : redoStack) bytes -= action.bytes;
+        redoStack.clear();
+    }
+
+    /**
+     * @return the number of actions that can be undone
+     */
+    public int undoSize() {
+        return undoStack.size();
+    }
+
+    /**
+     * @return the number of actions that can be redone
+     */
+    public int redoSize() {
+        return redoStack.size();
+    }
+
+    /**
+     * @return the current usage statistics of this history
+     */
+    public Stats getStats() {
+        return new Stats(undoStack.size(), redoStack.size(), bytes, peakBytes, undos, redos, misses, evictions);
+    }
+}
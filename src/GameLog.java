@@ -0,0 +1,305 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The GameLog class writes a game to a file as it is played, one small record per turn, so
+ * the game can be rebuilt by replaying the file instead of saving the whole game each time.
+ *
+ * The file starts with a header holding the seed of the tile bag and the players in turn order.
+ * Every turn then appends one fixed-size record of RECORD_BYTES: a move with the squares and
+ * letters of the tiles it placed and its score, an exchange, or a pass. Undoing or redoing
+ * a turn appends an UNDO or REDO record instead of rewriting earlier ones. Since the bag draws
+ * from its seed, replaying the records in order against a new game with the same seed deals
+ * the same tiles and reaches the same state.
+ *
+ * The layout of a record is:
+ * <pre>
+ *  0  type            MOVE, EXCHANGE, PASS, UNDO or REDO
+ *  1  player          the number of the player whose turn it was
+ *  2  square          the square of the first tile placed, as row * SIZE + col
+ *  3  direction       1 if the tiles run along the row, 0 if down the column
+ *  4  letters         up to HAND_SIZE letters placed or exchanged, 0 after the last
+ * 11  blank mask      bit n set if letter n is a blank
+ * 12  score           the score of a move, as a big-endian short
+ * 14  reserved        0
+ * </pre>
+ * A move's tiles are placed from its square onward, skipping squares already on the board.
+ *
+ * A log is not thread-safe, and is written by the thread that plays its game.
+ */
+public class GameLog implements Closeable {
+    public static final int RECORD_BYTES = 16;
+    public static final int MOVE = 1, EXCHANGE = 2, PASS = 3, UNDO = 4, REDO = 5;
+
+    //Header layout: magic, version, seed, player count, then each player's kind, name length and name
+    private static final int MAGIC = 0x534C4F47; //"SLOG"
+    private static final int VERSION = 1;
+    private static final int LETTERS = Player.HAND_SIZE;
+
+    /**
+     * One turn, or an undo or redo of one.
+     *
+     * @param type         MOVE, EXCHANGE, PASS, UNDO or REDO
+     * @param player       the number of the player whose turn it was
+     * @param square       the square of the first tile placed, as row * SIZE + col
+     * @param isHorizontal whether the tiles run along the row
+     * @param letters      the letters placed or exchanged, with ' ' for an exchanged blank
+     * @param blankMask    bit n set if letter n is a blank
+     * @param score        the score of a move
+     */
+    public record Entry(int type, int player, int square, boolean isHorizontal, String letters, int blankMask, int score) {
+        /**
+         * Writes the entry as one record.
+         *
+         * @param buffer the buffer to write to, which must have RECORD_BYTES remaining
+         */
+        void write(ByteBuffer buffer) {
+            buffer.put((byte) type).put((byte) player).put((byte) square).put((byte) (isHorizontal ? 1 : 0));
+            for (int i = 0; i < LETTERS; i++) buffer.put(i < letters.length() ? (byte) letters.charAt(i) : 0);
+            buffer.put((byte) blankMask).putShort((short) score).putShort((short) 0);
+        }
+
+        /**
+         * Reads one record.
+         *
+         * @param buffer the buffer to read from, which must have RECORD_BYTES remaining
+         * @return the entry
+         * @throws IOException if the record has an unknown type
+         */
+        static Entry read(ByteBuffer buffer) throws IOException {
+            int type = buffer.get();
+            if (type < MOVE || type > REDO) throw new IOException("Unknown game log record type " + type);
+            int player = buffer.get();
+            int square = buffer.get() & 0xFF;
+            boolean isHorizontal = buffer.get() != 0;
+            byte[] letters = new byte[LETTERS];
+            buffer.get(letters);
+            int length = 0;
+            while (length < LETTERS && letters[length] != 0) length++;
+            int blankMask = buffer.get();
+            int score = buffer.getShort();
+            buffer.getShort();
+            return new Entry(type, player, square, isHorizontal, new String(letters, 0, length, StandardCharsets.ISO_8859_1), blankMask, score);
+        }
+    }
+
+    /**
+     * The players and tile bag a log starts from.
+     *
+     * @param seed    the seed of the tile bag
+     * @param names   the names of the players, in turn order
+     * @param isAI    whether each player is an AI player
+     */
+    public record Header(long seed, List<String> names, List<Boolean> isAI) {
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private boolean started;
+    private long entries;
+
+    private GameLog(File file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates an empty log, replacing any file already there. The header is written when
+     * the first turn is logged, once the game's players are known.
+     *
+     * @param file the file to write
+     * @return the log
+     * @throws IOException if the file cannot be created
+     */
+    public static GameLog create(File file) throws IOException {
+        return new GameLog(file, FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    public File getFile() { return this.file; }
+
+    /**
+     * @return the number of entries written
+     */
+    public long size() {
+        return entries;
+    }
+
+    /**
+     * Appends an entry, writing the header first if this is the first one.
+     *
+     * @param game  the game the entry belongs to
+     * @param entry the entry
+     * @throws IOException if the file cannot be written
+     */
+    void append(Game game, Entry entry) throws IOException {
+        if (!started) {
+            writeHeader(game);
+            started = true;
+        }
+        record.clear();
+        entry.write(record);
+        record.flip();
+        while (record.hasRemaining()) channel.write(record);
+        entries++;
+    }
+
+    private void writeHeader(Game game) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        int bytes = 2 * Integer.BYTES + Long.BYTES + 1;
+        for (Player player : game.getPlayers()) {
+            byte[] name = player.getName() == null ? new byte[0] : player.getName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            bytes += 1 + Short.BYTES + name.length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(bytes);
+        header.putInt(MAGIC).putInt(VERSION).putLong(game.getTileBag().getSeed()).put((byte) names.size());
+        for (int i = 0; i < names.size(); i++) {
+            header.put((byte) (game.getPlayers().get(i) instanceof AIPlayer ? 1 : 0));
+            header.putShort((short) names.get(i).length).put(names.get(i));
+        }
+        header.flip();
+        while (header.hasRemaining()) channel.write(header);
+    }
+
+    /**
+     * Forces every entry written so far out to the storage device.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @param player    the number of the player whose turn it was
+     * @param tiles     the tiles placed, each holding its square
+     * @param score     the score of the move
+     * @return the entry for a move, with its tiles in order along their line
+     */
+    static Entry move(int player, List<Tile> tiles, int score) {
+        if (tiles.size() > LETTERS) throw new IllegalArgumentException("A move places at most " + LETTERS + " tiles.");
+        List<Tile> sorted = new ArrayList<>(tiles);
+        sorted.sort((a, b) -> a.getX() * Board.SIZE + a.getY() - (b.getX() * Board.SIZE + b.getY()));
+        boolean isHorizontal = sorted.size() < 2 || sorted.get(0).getX() == sorted.get(1).getX();
+
+        StringBuilder letters = new StringBuilder();
+        int blankMask = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            letters.append(sorted.get(i).getLetter());
+            if (sorted.get(i).getScore() == 0) blankMask |= 1 << i;
+        }
+        int square = sorted.isEmpty() ? 0 : sorted.getFirst().getX() * Board.SIZE + sorted.getFirst().getY();
+        return new Entry(MOVE, player, square, isHorizontal, letters.toString(), blankMask, score);
+    }
+
+    /**
+     * @param type   EXCHANGE or PASS
+     * @param player the number of the player whose turn it was
+     * @param hand   the tiles returned to the bag, or none for a pass
+     * @return the entry for an exchange or a pass
+     */
+    static Entry exchange(int type, int player, List<Tile> hand) {
+        StringBuilder letters = new StringBuilder();
+        int blankMask = 0;
+        for (int i = 0; i < Math.min(hand.size(), LETTERS); i++) {
+            letters.append(hand.get(i).getScore() == 0 ? ' ' : hand.get(i).getLetter());
+            if (hand.get(i).getScore() == 0) blankMask |= 1 << i;
+        }
+        return new Entry(type, player, 0, false, letters.toString(), blankMask, 0);
+    }
+
+    /**
+     * @param type   UNDO or REDO
+     * @param player the number of the player whose turn it is afterwards
+     * @return the entry for an undo or redo of one turn
+     */
+    static Entry history(int type, int player) {
+        return new Entry(type, player, 0, false, "", 0, 0);
+    }
+
+    /**
+     * Reads the header of a log.
+     *
+     * @param buffer the log, positioned at its start, and left after the header
+     * @return the header
+     * @throws IOException if the buffer does not hold a game log
+     */
+    private static Header readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 2 * Integer.BYTES + Long.BYTES + 1 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a game log");
+        }
+        if (buffer.getInt() != VERSION) throw new IOException("Unsupported game log version");
+        long seed = buffer.getLong();
+        int count = buffer.get();
+        List<String> names = new ArrayList<>();
+        List<Boolean> isAI = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            isAI.add(buffer.get() != 0);
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names.add(new String(name, StandardCharsets.UTF_8));
+        }
+        return new Header(seed, names, isAI);
+    }
+
+    /**
+     * Reads the header and every complete entry of a log. A record cut short by a crash
+     * while it was being written is ignored.
+     *
+     * @param file the log
+     * @param entries the list to add the entries to
+     * @return the header
+     * @throws IOException if the file cannot be read or is not a game log
+     */
+    public static Header read(File file, List<Entry> entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Header header = readHeader(buffer);
+            while (buffer.remaining() >= RECORD_BYTES) entries.add(Entry.read(buffer));
+            return header;
+        }
+    }
+
+    /**
+     * Rebuilds a game by replaying its log. Tiles are dealt and drawn from the logged seed,
+     * and every move is placed and validated as it was when it was played.
+     *
+     * @param file the log
+     * @return the game as it was after the last entry
+     * @throws IOException if the file cannot be read, is not a game log, or holds a move
+     *                     that cannot be played
+     */
+    public static Game replay(File file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        Header header = read(file, entries);
+
+        Game game = new Game(header.seed());
+        for (int i = 0; i < header.names().size(); i++) {
+            if (header.isAI().get(i)) game.addAIPlayer(header.names().get(i));
+            else game.addPlayer(header.names().get(i));
+        }
+        for (Player player : game.getPlayers()) {
+            player.addTile(game.getTileBag());
+        }
+        for (Entry entry : entries) {
+            game.replay(entry);
+        }
+        return game;
+    }
+}
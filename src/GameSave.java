@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The GameSave class writes and reads the save file format used by Game.saveGame and Game.loadGame.
+ *
+ * Every field is written by hand, in a fixed order, so saving needs no reflection and the file
+ * holds only the state of the game: the board, the bag with its seed and generator state, each
+ * player's rack, score, turns and recorded moves, and whose turn it is. The dictionary is not
+ * saved, since a loaded game shares the one already in memory, and neither is the undo history.
+ *
+ * The layout is:
+ * <pre>
+ * int   MAGIC, then short VERSION
+ * long  bag seed, long bag state, byte count, then each tile in the bag
+ * byte  count, then each tile on the board as byte row, byte col, tile
+ * byte  count, then the square of each tile placed this turn as byte row, byte col
+ * byte  1 if a tile is selected, then the tile
+ * byte  current player, byte end passes, byte first turn, byte game over
+ * byte  count, then each player as
+ *       byte AI, byte named, string name, int score, int turns taken,
+ *       byte count then each tile in the hand, short count then each move as int score, string word,
+ *       and for an AI player long budget, int rollouts, long endgame budget
+ * </pre>
+ * Numbers are big-endian, and a string is a short length followed by its UTF-8 bytes.
+ * A tile is four bytes: its letter, score, and the x and y it was last placed at.
+ *
+ * Files saved with Java serialization before this format existed start with the serialization
+ * magic number instead, and Game.loadGame still reads them.
+ */
+public final class GameSave {
+    public static final int MAGIC = 0x53534156; //"SSAV"
+    public static final int VERSION = 1;
+    private static final int TILE_BYTES = 4;
+
+    private GameSave() {
+    }
+
+    /**
+     * Writes a game.
+     *
+     * @param game the game
+     * @return a buffer holding the saved game, from its position to its limit
+     */
+    public static ByteBuffer write(Game game) {
+        TileBag bag = game.getTileBag();
+        Board board = game.getBoard();
+        List<byte[]> strings = new ArrayList<>();
+        int bytes = Integer.BYTES + Short.BYTES + 2 * Long.BYTES + 1 + bag.size() * TILE_BYTES
+                + 1 + board.getTileCount() * (2 + TILE_BYTES) + 1 + game.getPlacedTiles().size() * 2
+                + 1 + TILE_BYTES + 4 + 1;
+        for (Player player : game.getPlayers()) {
+            bytes += 2 + 2 * Integer.BYTES + 1 + player.getHand().size() * TILE_BYTES + Short.BYTES + 2 * Long.BYTES + Integer.BYTES;
+            if (player.getName() != null) bytes += string(strings, player.getName());
+            for (PlayerMove move : player.getRecordedMoves()) bytes += Integer.BYTES + string(strings, move.mainWord());
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(bytes);
+        out.putInt(MAGIC).putShort((short) VERSION);
+
+        out.putLong(bag.getSeed()).putLong(bag.getState()).put((byte) bag.size());
+        for (Tile tile : bag.getTiles()) putTile(out, tile);
+
+        out.put((byte) board.getTileCount());
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Tile tile = board.getTile(row, col);
+                if (tile == null) continue;
+                out.put((byte) row).put((byte) col);
+                putTile(out, tile);
+            }
+        }
+
+        //Placed tiles are already on the board, so only their squares are written
+        out.put((byte) game.getPlacedTiles().size());
+        for (Tile tile : game.getPlacedTiles()) out.put((byte) tile.getX()).put((byte) tile.getY());
+        out.put((byte) (game.getSelectedTile() != null ? 1 : 0));
+        if (game.getSelectedTile() != null) putTile(out, game.getSelectedTile());
+
+        out.put((byte) game.getCurrentPlayerNum()).put((byte) game.getEndPasses());
+        out.put((byte) (game.getFirstTurn() ? 1 : 0)).put((byte) (game.isGameOver() ? 1 : 0));
+
+        int string = 0;
+        out.put((byte) game.getPlayers().size());
+        for (Player player : game.getPlayers()) {
+            out.put((byte) (player instanceof AIPlayer ? 1 : 0)).put((byte) (player.getName() != null ? 1 : 0));
+            if (player.getName() != null) putString(out, strings.get(string++));
+            out.putInt(player.getScore()).putInt(player.getTurnsTaken());
+            out.put((byte) player.getHand().size());
+            for (Tile tile : player.getHand()) putTile(out, tile);
+            out.putShort((short) player.getRecordedMoves().size());
+            for (PlayerMove move : player.getRecordedMoves()) {
+                out.putInt(move.totalScore());
+                putString(out, strings.get(string++));
+            }
+            if (player instanceof AIPlayer ai) {
+                out.putLong(ai.getBudgetMillis()).putInt(ai.getRollouts()).putLong(ai.getEndgameMillis());
+            }
+        }
+        return out.flip();
+    }
+
+    /**
+     * Reads a game written by write(Game).
+     *
+     * @param in the buffer to read from
+     * @return the game, attached to the shared dictionary and with no undo history or views
+     * @throws IOException if the buffer does not hold a saved game
+     */
+    public static Game read(ByteBuffer in) throws IOException {
+        try {
+            return readGame(in);
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException("Saved game is cut short", e);
+        }
+    }
+
+    private static Game readGame(ByteBuffer in) throws IOException {
+        if (in.remaining() < Integer.BYTES || in.getInt() != MAGIC) throw new IOException("Not a saved game");
+        int version = Short.toUnsignedInt(in.getShort());
+        if (version != VERSION) throw new IOException("Unsupported save file version " + version);
+
+        long seed = in.getLong();
+        long state = in.getLong();
+        List<Tile> bagTiles = getTiles(in, Byte.toUnsignedInt(in.get()));
+        Game game = new Game(new TileBag(seed, state, bagTiles));
+
+        Board board = game.getBoard();
+        for (int i = Byte.toUnsignedInt(in.get()); i > 0; i--) {
+            int row = in.get();
+            int col = in.get();
+            if (!board.placeTile(row, col, getTile(in))) throw new IOException("Saved tile on square " + row + ", " + col + " cannot be placed");
+        }
+
+        ArrayList<Tile> placedTiles = new ArrayList<>();
+        for (int i = Byte.toUnsignedInt(in.get()); i > 0; i--) {
+            int row = in.get();
+            int col = in.get();
+            Tile tile = board.isInBounds(row, col) ? board.getTile(row, col) : null;
+            if (tile == null) throw new IOException("Saved placed tile on empty square " + row + ", " + col);
+            placedTiles.add(tile);
+        }
+        Tile selectedTile = in.get() != 0 ? getTile(in) : null;
+
+        int currentPlayer = Byte.toUnsignedInt(in.get());
+        int endPasses = Byte.toUnsignedInt(in.get());
+        boolean firstTurn = in.get() != 0;
+        boolean gameOver = in.get() != 0;
+
+        int count = Byte.toUnsignedInt(in.get());
+        for (int i = 0; i < count; i++) {
+            boolean isAI = in.get() != 0;
+            String name = in.get() != 0 ? getString(in) : null;
+            if (isAI) game.addAIPlayer(name);
+            else game.addPlayer(name);
+
+            Player player = game.getPlayers().getLast();
+            player.addScore(in.getInt());
+            player.turnsTaken = in.getInt();
+            for (Tile tile : getTiles(in, Byte.toUnsignedInt(in.get()))) player.addTile(tile);
+            for (int moves = Short.toUnsignedInt(in.getShort()); moves > 0; moves--) {
+                player.addMove(new PlayerMove(in.getInt(), getString(in)));
+            }
+            if (player instanceof AIPlayer ai) {
+                ai.setBudgetMillis(in.getLong());
+                ai.setRollouts(in.getInt());
+                ai.setEndgameMillis(in.getLong());
+            }
+        }
+        if (currentPlayer >= Math.max(count, 1)) throw new IOException("Saved current player " + currentPlayer + " of " + count);
+
+        game.restoreTurn(currentPlayer, placedTiles, selectedTile, endPasses, firstTurn, gameOver);
+        return game;
+    }
+
+    /**
+     * Encodes a string for write(Game).
+     *
+     * @return the number of bytes it takes
+     */
+    private static int string(List<byte[]> strings, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        strings.add(bytes);
+        return Short.BYTES + bytes.length;
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        out.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putTile(ByteBuffer out, Tile tile) {
+        out.put((byte) tile.getLetter()).put((byte) tile.getScore()).put((byte) tile.getX()).put((byte) tile.getY());
+    }
+
+    private static Tile getTile(ByteBuffer in) {
+        Tile tile = new Tile((char) Byte.toUnsignedInt(in.get()), in.get());
+        tile.setCoords(in.get(), in.get());
+        return tile;
+    }
+
+    private static List<Tile> getTiles(ByteBuffer in, int count) {
+        List<Tile> tiles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) tiles.add(getTile(in));
+        return tiles;
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameServer class hosts many games at once in one process, each in its own GameSession.
+ *
+ * Every game has its own board, bag, players and undo history, and shares only the immutable
+ * dictionary, so sessions never see each other's state. Sessions run their commands on one
+ * shared executor, by default a virtual thread per task, so an idle session costs no thread and
+ * thousands of tables can be open at once.
+ */
+public class GameServer implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Constructs a server that runs its sessions on virtual threads.
+     */
+    public GameServer() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Constructs a server that runs its sessions on the given executor, which it shuts down when closed.
+     *
+     * @param executor the executor to run commands and AI searches on
+     */
+    public GameServer(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Opens a session with a new game and starts it. Human players take their turns first,
+     * then the AI players, so a game with no human players plays itself to the end.
+     *
+     * @param names        the names of the human players (0-4)
+     * @param numAIPlayers the number of AI players (0-3)
+     * @param seed         the seed of the tile bag, so the game can be replayed
+     * @return the session, whose game is started by the first command in its mailbox
+     * @throws IllegalArgumentException if there are too many players of either kind, or none at all
+     */
+    public GameSession open(List<String> names, int numAIPlayers, long seed) {
+        if (names.size() > 4 || numAIPlayers < 0 || numAIPlayers > 3 || names.size() + numAIPlayers == 0) {
+            throw new IllegalArgumentException("A game needs 0-4 human players and 0-3 AI players, and at least one player.");
+        }
+        GameSession session = new GameSession(nextId.getAndIncrement(), new Game(seed), executor);
+        sessions.put(session.getId(), session);
+        List<String> players = List.copyOf(names);
+        session.run(game -> {
+            game.startGame(players, numAIPlayers);
+            game.playAITurns();
+        });
+        return session;
+    }
+
+    /**
+     * @param id the id of a session
+     * @return the session, or null if there is no open session with that id
+     */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * @return the open sessions
+     */
+    public Collection<GameSession> getSessions() {
+        return List.copyOf(sessions.values());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes a session once the commands already sent to it have run.
+     *
+     * @param id the id of the session
+     * @return a future completed once the session has stopped, which is already complete if there was no such session
+     */
+    public CompletableFuture<Void> close(long id) {
+        GameSession session = sessions.remove(id);
+        return session == null ? CompletableFuture.completedFuture(null) : session.close();
+    }
+
+    /**
+     * @return the statistics of every open session
+     */
+    public List<GameSession.Stats> getStats() {
+        List<GameSession.Stats> stats = new ArrayList<>();
+        for (GameSession session : sessions.values()) stats.add(session.getStats());
+        return stats;
+    }
+
+    /**
+     * Closes every session, waits for them to stop, and shuts down the executor.
+     */
+    @Override
+    public void close() {
+        List<CompletableFuture<Void>> closing = new ArrayList<>();
+        for (Long id : List.copyOf(sessions.keySet())) closing.add(close(id));
+        CompletableFuture.allOf(closing.toArray(CompletableFuture<?>[]::new)).join();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The GameSession class runs one Game for a GameServer, with a HeadlessView in place of a window.
+ *
+ * A Game is not thread-safe, so every command a session is sent goes into its mailbox and the
+ * commands run one at a time, in the order they were sent, on the server's executor. No thread
+ * is held while a session has nothing to do, so a server can host many more sessions than it
+ * has threads. AI players search on the executor too, and play their moves through the mailbox.
+ *
+ * Each session times its commands from when they were sent until they finished, and reports the
+ * estimated size of its undo history. The rest of the game is not measured, only given a fixed
+ * allowance.
+ */
+public class GameSession {
+    //The number of recent command latencies kept for the percentiles
+    private static final int RECENT = 256;
+    //A fixed allowance for a game's board, bag and players, which are not measured
+    public static final long STATE_ALLOWANCE_BYTES = 16 * 1024;
+
+    private final long id;
+    private final Game game;
+    private final HeadlessView view;
+    private final Executor executor;
+
+    //Commands waiting to run, and how many of them there are including the one running
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+    //The size of the undo history after the last task, read here since the history is not thread-safe
+    private volatile long historyBytes;
+
+    //Metrics, guarded by the lock of the array
+    private final long[] recent = new long[RECENT];
+    private long commands;
+    private long failures;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * How a session is doing.
+     *
+     * @param id           the id of the session
+     * @param commands     the number of commands that have run
+     * @param failures     the number of commands that threw an exception
+     * @param pending      the number of commands waiting or running
+     * @param meanNanos    the mean time from sending a command until it finished
+     * @param p50Nanos     the median of the last RECENT command times
+     * @param p99Nanos     the 99th percentile of the last RECENT command times
+     * @param maxNanos     the longest command time
+     * @param historyBytes the estimated size of the undo history after the last command
+     */
+    public record Stats(long id, long commands, long failures, int pending, long meanNanos,
+                        long p50Nanos, long p99Nanos, long maxNanos, long historyBytes) {
+        /**
+         * @return the history bytes plus STATE_ALLOWANCE_BYTES for the rest of the game
+         */
+        public long allowedBytes() {
+            return historyBytes + STATE_ALLOWANCE_BYTES;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("session %d: %d commands (%d failed, %d pending), mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms, history ~%d KB",
+                    id, commands, failures, pending, meanNanos / 1e6, p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, historyBytes / 1024);
+        }
+    }
+
+    /**
+     * Constructs a session around a new game, which is set up to search and play AI moves on the executor.
+     *
+     * @param id       the id of the session
+     * @param game     the game, which must not be used by anything else
+     * @param executor the executor to run commands and AI searches on
+     */
+    GameSession(long id, Game game, Executor executor) {
+        this.id = id;
+        this.game = game;
+        this.view = new HeadlessView();
+        this.executor = executor;
+        game.addView(view);
+        game.setAIExecutors(executor, this::execute);
+    }
+
+    public long getId() { return this.id; }
+
+    /**
+     * @return the view the game updates, which may be read from any thread
+     */
+    public HeadlessView getView() { return this.view; }
+
+    public boolean isClosed() { return this.closed; }
+
+    /**
+     * Sends a command to the game. Commands run one at a time, in the order they were sent.
+     *
+     * @param command the command, which may read and change the game
+     * @return the result of the command, or the exception it threw
+     */
+    public <T> CompletableFuture<T> submit(Function<Game, T> command) {
+        long sent = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            if (closed) {
+                result.completeExceptionally(new IllegalStateException("Session " + id + " is closed."));
+                return;
+            }
+            boolean failed = false;
+            try {
+                result.complete(command.apply(game));
+            }
+            catch (RuntimeException | Error e) {
+                failed = true;
+                result.completeExceptionally(e);
+            }
+            finally {
+                record(System.nanoTime() - sent, failed);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sends a command with no result to the game.
+     *
+     * @param command the command, which may read and change the game
+     * @return a future completed once the command has run
+     */
+    public CompletableFuture<Void> run(Consumer<Game> command) {
+        return submit(game -> {
+            command.accept(game);
+            return null;
+        });
+    }
+
+    /**
+     * Stops the session once the commands already sent have run. An AI search in progress is
+     * cancelled, and commands sent afterwards fail.
+     *
+     * @return a future completed once the session has stopped
+     */
+    CompletableFuture<Void> close() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        execute(() -> {
+            closed = true;
+            game.cancelAITurn();
+            done.complete(null);
+        });
+        return done;
+    }
+
+    /**
+     * Puts a task in the mailbox, and starts draining the mailbox if it was empty.
+     */
+    private void execute(Runnable task) {
+        mailbox.add(task);
+        if (pending.getAndIncrement() == 0) executor.execute(this::drain);
+    }
+
+    /**
+     * Runs tasks until the mailbox is empty. Only one drain runs at a time, since a new one
+     * is only started when the count of pending tasks goes up from zero.
+     */
+    private void drain() {
+        do {
+            try {
+                mailbox.poll().run();
+            }
+            catch (RuntimeException e) {
+                //AI moves are played through the mailbox and report their own failures
+                e.printStackTrace();
+            }
+            historyBytes = game.getHistory().getStats().bytes();
+        } while (pending.decrementAndGet() > 0);
+    }
+
+    private void record(long nanos, boolean failed) {
+        synchronized (recent) {
+            recent[(int) (commands % RECENT)] = nanos;
+            commands++;
+            if (failed) failures++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+    }
+
+    /**
+     * @return the statistics of the session
+     */
+    public Stats getStats() {
+        long[] sorted;
+        long count, failed, total, max;
+        synchronized (recent) {
+            count = commands;
+            failed = failures;
+            total = totalNanos;
+            max = maxNanos;
+            sorted = Arrays.copyOf(recent, (int) Math.min(count, RECENT));
+        }
+        Arrays.sort(sorted);
+        long p50 = sorted.length == 0 ? 0 : sorted[(sorted.length - 1) / 2];
+        long p99 = sorted.length == 0 ? 0 : sorted[(int) ((sorted.length - 1) * 0.99)];
+        return new Stats(id, count, failed, pending.get(), count == 0 ? 0 : total / count, p50, p99, max, historyBytes);
+    }
+}
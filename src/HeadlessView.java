@@ -0,0 +1,139 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HeadlessView class is a ScrabbleView without a window. It keeps the last thing the game
+ * told it of each kind, so a server, a bot or a test can read the state a player would see.
+ *
+ * The game updates the view from whichever thread runs its commands, and the fields are
+ * volatile so they can be read from any other thread.
+ */
+public class HeadlessView implements ScrabbleView {
+    private volatile String topText = "";
+    private volatile List<Tile> hand = List.of();
+    private volatile List<Tile> placedTiles = List.of();
+    private volatile String scores = "";
+    private volatile int tilesLeft;
+    private volatile String results;
+    private volatile boolean firstMove = true;
+    private volatile boolean passOnly;
+    private volatile boolean gameOver;
+    private volatile boolean undoEnabled;
+    private volatile boolean redoEnabled;
+    private volatile boolean thinking;
+    private volatile long updates;
+
+    @Override
+    public void updateTopText(String text) {
+        topText = text;
+        updates++;
+    }
+
+    @Override
+    public void updateBoard(ArrayList<Tile> placedTiles, boolean validated) {
+        this.placedTiles = List.copyOf(placedTiles);
+        updates++;
+    }
+
+    @Override
+    public void updateHand(List<Tile> hand) {
+        this.hand = List.copyOf(hand);
+        updates++;
+    }
+
+    @Override
+    public void disableFirstMove() {
+        firstMove = false;
+        updates++;
+    }
+
+    @Override
+    public void removePlacedTiles() {
+        placedTiles = List.of();
+        updates++;
+    }
+
+    @Override
+    public void updateScore(String newScore, int numTiles) {
+        scores = newScore;
+        tilesLeft = numTiles;
+        updates++;
+    }
+
+    @Override
+    public void exchangeToPass() {
+        passOnly = true;
+        updates++;
+    }
+
+    @Override
+    public void endGame() {
+        gameOver = true;
+        updates++;
+    }
+
+    @Override
+    public void showResults(String results) {
+        this.results = results;
+        updates++;
+    }
+
+    @Override
+    public void toggleUndo(boolean toggle) {
+        undoEnabled = toggle;
+        updates++;
+    }
+
+    @Override
+    public void toggleRedo(boolean toggle) {
+        redoEnabled = toggle;
+        updates++;
+    }
+
+    @Override
+    public void toggleThinking(boolean thinking) {
+        this.thinking = thinking;
+        updates++;
+    }
+
+    public String getTopText() { return this.topText; }
+
+    /**
+     * @return the tiles in the hand of the player whose turn it is, as last shown
+     */
+    public List<Tile> getHand() { return this.hand; }
+
+    /**
+     * @return the tiles placed this turn and not yet validated, as last shown
+     */
+    public List<Tile> getPlacedTiles() { return this.placedTiles; }
+
+    /**
+     * @return each player's name and score, one per line
+     */
+    public String getScores() { return this.scores; }
+
+    public int getTilesLeft() { return this.tilesLeft; }
+
+    /**
+     * @return the end of game statistics, or null if the game has not ended
+     */
+    public String getResults() { return this.results; }
+
+    public boolean isFirstMove() { return this.firstMove; }
+
+    public boolean isPassOnly() { return this.passOnly; }
+
+    public boolean isGameOver() { return this.gameOver; }
+
+    public boolean isUndoEnabled() { return this.undoEnabled; }
+
+    public boolean isRedoEnabled() { return this.redoEnabled; }
+
+    public boolean isThinking() { return this.thinking; }
+
+    /**
+     * @return the number of updates the view has received
+     */
+    public long getUpdates() { return this.updates; }
+}
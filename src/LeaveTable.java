@@ -0,0 +1,218 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The LeaveTable class holds the value of every leave, the tiles a player keeps on their
+ * rack after a move. The AI adds it to the score of each candidate move, so it prefers
+ * moves that keep good tiles for the next turn.
+ *
+ * There is a value for every multiset of up to 7 tiles over the 26 letters and the blank.
+ * Each multiset has a rank, a perfect hash computed from its letter counts in constant time,
+ * which indexes a table of short values in tenths of a point. The table is built offline
+ * by LeaveTableBuilder from self-play games, written to a binary image, and memory-mapped
+ * back, so the 10 MB of values are shared with the page cache rather than read onto the heap.
+ *
+ * Without an image every leave is worth 0, and the AI plays the highest scoring move.
+ */
+public class LeaveTable {
+    //Letters are 0 ('A') to 25 ('Z'), and the blank is 26
+    public static final int TYPES = Lexicon.ALPHABET + 1;
+    public static final int BLANK = Lexicon.ALPHABET;
+    public static final int MAX_TILES = Player.HAND_SIZE;
+    //Values are stored in tenths of a point
+    public static final int SCALE = 10;
+    public static final String FILE = System.getProperty("scrabble.ai.leaves", "src/leaves.bin");
+
+    //choose[n][k] for the ranks, and the rank of the first leave of each size
+    private static final int[][] CHOOSE = new int[TYPES + MAX_TILES][MAX_TILES + 2];
+    private static final int[] OFFSET = new int[MAX_TILES + 2];
+    public static final int SIZE;
+
+    static {
+        for (int n = 0; n < CHOOSE.length; n++) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, MAX_TILES + 1); k++) {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + (k <= n - 1 ? CHOOSE[n - 1][k] : 0);
+            }
+        }
+        //There are choose(TYPES + k - 1, k) leaves of k tiles
+        for (int k = 0; k <= MAX_TILES; k++) {
+            OFFSET[k + 1] = OFFSET[k] + CHOOSE[TYPES + k - 1][k];
+        }
+        SIZE = OFFSET[MAX_TILES + 1];
+    }
+
+    //Binary image layout: magic, version, scale, entry count, then the values
+    private static final int MAGIC = 0x4C454156; //"LEAV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    public static final LeaveTable EMPTY = new LeaveTable(null, 0);
+
+    private final ShortBuffer values;
+    private final int maxValue;
+
+    private LeaveTable(ShortBuffer values, int maxValue) {
+        this.values = values;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * Loaded on first use, so games that never use an AI player never open the image.
+     */
+    private static class Shared {
+        private static final LeaveTable TABLE = load(new File(FILE));
+    }
+
+    /**
+     * Returns the table the AI uses, mapped from the image named by the scrabble.ai.leaves
+     * system property (src/leaves.bin by default).
+     *
+     * @return the shared table, or EMPTY if there is no image
+     */
+    public static LeaveTable shared() {
+        return Shared.TABLE;
+    }
+
+    private static LeaveTable load(File file) {
+        if (!file.isFile()) return EMPTY;
+        try {
+            return map(file);
+        } catch (IOException e) {
+            //The AI still plays without leave values
+            System.err.println("Error loading leave table: " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Builds a table from values indexed by rank.
+     *
+     * @param values the value of every leave in tenths of a point, SIZE of them
+     * @return the table
+     */
+    public static LeaveTable of(short[] values) {
+        if (values.length != SIZE) throw new IllegalArgumentException("A leave table needs " + SIZE + " values.");
+        return new LeaveTable(ShortBuffer.wrap(values.clone()), max(ShortBuffer.wrap(values)));
+    }
+
+    /**
+     * Opens a table image written by write(File). The file is memory-mapped rather than read.
+     *
+     * @param file the image file
+     * @return the table stored in the image
+     * @throws IOException if the file cannot be read or is not a leave table image
+     */
+    public static LeaveTable map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) throw new IOException(file + " is not a leave table image");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) throw new IOException(file + " is not a leave table image");
+            if (buffer.getInt() != VERSION) throw new IOException(file + " has an unsupported leave table version");
+            if (buffer.getInt() != SCALE) throw new IOException(file + " has an unsupported leave table scale");
+            if (buffer.getInt() != SIZE || (long) SIZE * Short.BYTES != channel.size() - HEADER_BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+
+            ShortBuffer values = buffer.slice().asShortBuffer();
+            return new LeaveTable(values, max(values));
+        }
+    }
+
+    /**
+     * Writes this table as a binary image that can be opened with map(File).
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written, or this is the empty table
+     */
+    public void write(File file) throws IOException {
+        if (values == null) throw new IOException("The empty leave table cannot be written");
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + SIZE * Short.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(SCALE).putInt(SIZE);
+        buffer.asShortBuffer().put(values.duplicate().clear());
+        buffer.clear();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    private static int max(ShortBuffer values) {
+        int max = Short.MIN_VALUE;
+        for (int i = 0; i < values.capacity(); i++) {
+            max = Math.max(max, values.get(i));
+        }
+        return max;
+    }
+
+    /**
+     * Computes the rank of a leave. Leaves are ordered by size, and the k tiles of a leave,
+     * sorted as a0 <= a1 <= ... , are numbered within their size by the combinatorial number
+     * system as the sum of choose(ai + i, i + 1). Every leave gets a different rank below SIZE.
+     *
+     * @param counts how many of each tile the leave holds, indexed by letter with the blank last
+     * @return the rank of the leave
+     * @throws IllegalArgumentException if the leave holds more than MAX_TILES tiles
+     */
+    public static int rank(int[] counts) {
+        int rank = 0, i = 0;
+        for (int type = 0; type < TYPES; type++) {
+            for (int n = counts[type]; n > 0; n--) {
+                if (i == MAX_TILES) throw new IllegalArgumentException("A leave has at most " + MAX_TILES + " tiles.");
+                rank += CHOOSE[type + i][i + 1];
+                i++;
+            }
+        }
+        return OFFSET[i] + rank;
+    }
+
+    /**
+     * @param rank the rank of a leave
+     * @return the value of the leave in tenths of a point
+     * @throws IllegalArgumentException if the rank is not below SIZE
+     */
+    public int value(int rank) {
+        if (rank < 0 || rank >= SIZE) throw new IllegalArgumentException("A leave rank is below " + SIZE + ".");
+        return values == null ? 0 : values.get(rank);
+    }
+
+    /**
+     * @param counts how many of each tile the leave holds, indexed by letter with the blank last
+     * @return the value of the leave in tenths of a point
+     * @throws IllegalArgumentException if the leave holds more than MAX_TILES tiles
+     */
+    public int value(int[] counts) {
+        //Ranked even without values, so the empty table rejects the same leaves as a loaded one
+        int rank = rank(counts);
+        return values == null ? 0 : values.get(rank);
+    }
+
+    /**
+     * Used to bound the value of moves that have not been scored yet.
+     *
+     * @return the highest value of any leave in tenths of a point
+     */
+    public int maxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @return the number of bytes taken by the values
+     */
+    public long memoryBytes() {
+        return values == null ? 0 : (long) values.capacity() * Short.BYTES;
+    }
+
+    /**
+     * @return whether the values are memory-mapped from an image rather than held on the heap
+     */
+    public boolean isMapped() {
+        return values != null && values.isDirect();
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The LeaveTableBuilder class builds the LeaveTable offline from games between AI players.
+ *
+ * Every move played with a full bag is a sample: the tiles the player kept, and how many
+ * points the player scored on their next turn compared to the average turn. A linear model
+ * of those results, with a value for holding each tile and a penalty for each duplicate of it,
+ * gives every leave a value, including the millions that were never seen. Leaves that were
+ * seen are then pulled towards their own average result, in proportion to how often they were seen.
+ *
+ * The games are played with an empty table, so the AI plays the highest scoring move.
+ *
+ * Usage: java LeaveTableBuilder [games] [seed] [output]
+ */
+public class LeaveTableBuilder {
+    //How many samples a leave needs before its own results count as much as the model
+    private static final int PRIOR_WEIGHT = 20;
+    //Keeps the weights of rarely seen tiles close to 0
+    private static final double RIDGE = 10;
+    private static final int ITERATIONS = 25;
+    //Near the end of the game the tiles kept matter less, so those moves are not sampled
+    private static final int MIN_BAG = Player.HAND_SIZE;
+
+    /**
+     * A move and the points the same player scored on their next turn.
+     *
+     * @param counts the tiles the player kept, indexed by letter with the blank last
+     * @param next   the points scored on the player's next turn
+     */
+    record Sample(int[] counts, int next) {
+    }
+
+    /**
+     * Plays one game between two AI players and collects its samples.
+     *
+     * @param seed the seed of the tile bag
+     * @return the samples, in the order the moves were played
+     */
+    static List<Sample> playGame(long seed) {
+        Game game = new Game(seed);
+        game.addAIPlayer("AI 1");
+        game.addAIPlayer("AI 2");
+        for (Player player : game.getPlayers()) {
+            ((AIPlayer) player).setLeaveTable(LeaveTable.EMPTY);
+            player.addTile(game.getTileBag());
+        }
+
+        Queue<Runnable> searches = new ArrayDeque<>();
+        Queue<Runnable> moves = new ArrayDeque<>();
+        game.setAIExecutors(searches::add, moves::add);
+        game.playAITurns();
+
+        List<Sample> samples = new ArrayList<>();
+        int[][] pending = new int[game.getPlayers().size()][];
+        Runnable search;
+        for (int turn = 0; turn < SelfPlay.MAX_TURNS && (search = searches.poll()) != null; turn++) {
+            int player = game.getCurrentPlayerNum();
+            List<Tile> hand = List.copyOf(game.getCurrentPlayer().getHand());
+            int score = game.getCurrentPlayer().getScore();
+            int bag = game.getTileBag().size();
+
+            search.run();
+            Runnable move;
+            while ((move = moves.poll()) != null) move.run();
+
+            //The tiles that stayed in the hand are the leave
+            int[] leave = new int[LeaveTable.TYPES];
+            boolean played = false;
+            for (Tile tile : hand) {
+                if (game.getBoard().getTile(tile.getX(), tile.getY()) == tile) played = true;
+                else leave[tile.getScore() == 0 ? LeaveTable.BLANK : tile.getLetter() - 'A']++;
+            }
+
+            int points = game.getPlayers().get(player).getScore() - score;
+            if (pending[player] != null) samples.add(new Sample(pending[player], points));
+            pending[player] = played && bag >= MIN_BAG ? leave : null;
+        }
+        game.cancelAITurn();
+        return samples;
+    }
+
+    /**
+     * Fits the leave values to the samples.
+     *
+     * @param samples the samples to fit
+     * @return the value of every leave in tenths of a point, indexed by rank
+     */
+    static short[] fit(List<Sample> samples) {
+        double mean = 0;
+        for (Sample sample : samples) mean += sample.next();
+        mean /= Math.max(samples.size(), 1);
+
+        //Fit the value of holding each tile and of each duplicate by coordinate descent on the residuals
+        int features = 2 * LeaveTable.TYPES;
+        double[] weights = new double[features];
+        double[] residuals = new double[samples.size()];
+        for (int i = 0; i < samples.size(); i++) residuals[i] = samples.get(i).next() - mean;
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int feature = 0; feature < features; feature++) {
+                double numerator = 0, denominator = RIDGE;
+                for (int i = 0; i < samples.size(); i++) {
+                    int x = feature(samples.get(i).counts(), feature);
+                    if (x == 0) continue;
+                    numerator += x * (residuals[i] + x * weights[feature]);
+                    denominator += x * x;
+                }
+                double weight = numerator / denominator;
+                for (int i = 0; i < samples.size(); i++) {
+                    int x = feature(samples.get(i).counts(), feature);
+                    if (x != 0) residuals[i] -= x * (weight - weights[feature]);
+                }
+                weights[feature] = weight;
+            }
+        }
+
+        //Average result of each leave that was seen
+        Map<Integer, double[]> seen = new HashMap<>();
+        for (Sample sample : samples) {
+            double[] total = seen.computeIfAbsent(LeaveTable.rank(sample.counts()), rank -> new double[2]);
+            total[0] += sample.next() - mean;
+            total[1]++;
+        }
+
+        short[] values = new short[LeaveTable.SIZE];
+        fill(values, new int[LeaveTable.TYPES], 0, 0, weights, seen);
+        return values;
+    }
+
+    /**
+     * @return 1 if the leave holds the feature's tile, for the first TYPES features, or the number
+     *         of duplicates of the tile for the rest
+     */
+    private static int feature(int[] counts, int feature) {
+        if (feature < LeaveTable.TYPES) return counts[feature] > 0 ? 1 : 0;
+        return Math.max(counts[feature - LeaveTable.TYPES] - 1, 0);
+    }
+
+    /**
+     * Values every leave that extends the given counts with tiles of this type or later.
+     */
+    private static void fill(short[] values, int[] counts, int type, int size, double[] weights, Map<Integer, double[]> seen) {
+        if (type == LeaveTable.TYPES) {
+            double prior = 0;
+            for (int feature = 0; feature < weights.length; feature++) {
+                prior += feature(counts, feature) * weights[feature];
+            }
+            int rank = LeaveTable.rank(counts);
+            double[] total = seen.get(rank);
+            double value = total == null ? prior : (total[0] + PRIOR_WEIGHT * prior) / (total[1] + PRIOR_WEIGHT);
+            values[rank] = (short) Math.clamp(Math.round(value * LeaveTable.SCALE), Short.MIN_VALUE, Short.MAX_VALUE);
+            return;
+        }
+        for (int n = 0; size + n <= LeaveTable.MAX_TILES; n++) {
+            counts[type] = n;
+            fill(values, counts, type + 1, size + n, weights, seen);
+        }
+        counts[type] = 0;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        File output = new File(args.length > 2 ? args[2] : LeaveTable.FILE);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Sample> samples = new ArrayList<>();
+        try {
+            List<Future<List<Sample>>> futures = new ArrayList<>(games);
+            for (int i = 0; i < games; i++) {
+                long gameSeed = seed + i;
+                futures.add(pool.submit(() -> playGame(gameSeed)));
+            }
+            for (Future<List<Sample>> future : futures) {
+                samples.addAll(future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        short[] values = fit(samples);
+        LeaveTable.of(values).write(output);
+
+        StringBuilder tiles = new StringBuilder();
+        int[] counts = new int[LeaveTable.TYPES];
+        for (int type = 0; type < LeaveTable.TYPES; type++) {
+            counts[type] = 1;
+            tiles.append(type == LeaveTable.BLANK ? '?' : (char) ('A' + type)).append(' ')
+                    .append(String.format("%+.1f", values[LeaveTable.rank(counts)] / (double) LeaveTable.SCALE)).append("  ");
+            counts[type] = 0;
+        }
+        System.out.printf("Wrote %s from %d samples of %d games in %.1f s%n%s%n", output, samples.size(), games,
+                (System.nanoTime() - start) / 1e9, tiles.toString().trim());
+    }
+}
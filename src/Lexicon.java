@@ -0,0 +1,453 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The Lexicon class is a minimized DAWG (directed acyclic word graph) over a word list.
+ * It supports walking words one letter at a time, which is what the AI's move generator
+ * needs, as well as prefix and hook queries.
+ *
+ * The graph is packed into a single buffer of int edges. Every node is stored
+ * as a contiguous run of edges sorted by letter, and each edge packs its
+ * letter, whether it ends a word, whether it is the last edge of its node,
+ * and the index of the child node's first edge (0 when there is no child).
+ * Nodes with identical outgoing edges are stored once, so words sharing a
+ * suffix share the nodes for it.
+ *
+ * The edge array can be written to a binary image and memory-mapped back,
+ * so a word list only has to be parsed and built once.
+ */
+public class Lexicon {
+    public static final int ALPHABET = 26;
+
+    private static final int LETTER_MASK = 0x1F;
+    private static final int TERMINAL = 1 << 5;
+    private static final int LAST = 1 << 6;
+    private static final int CHILD_SHIFT = 7;
+
+    //Binary image layout: magic, version, word count, root, edge count, then the edges
+    public static final String IMAGE_EXTENSION = ".dawg";
+    private static final int MAGIC = 0x44415747; //"DAWG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+    private final IntBuffer edges;
+    private final int root;
+    private final int size;
+
+    private Lexicon(IntBuffer edges, int root, int size) {
+        this.edges = edges;
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Builds a lexicon from a collection of words.
+     * Words are expected in uppercase; words containing anything other than A-Z are skipped.
+     *
+     * @param words the words to include
+     * @return the built lexicon
+     */
+    public static Lexicon build(Collection<String> words) {
+        List<String> sorted = new ArrayList<>(words.size());
+        for (String word : words) {
+            if (isPlayable(word)) sorted.add(word);
+        }
+        Collections.sort(sorted);
+
+        Builder builder = new Builder(sorted);
+        int root = builder.buildNode(0, sorted.size(), 0);
+        return new Lexicon(IntBuffer.wrap(Arrays.copyOf(builder.edges, builder.count)), root, builder.wordCount);
+    }
+
+    /**
+     * Opens a lexicon image written by write(File). The file is memory-mapped rather than read,
+     * so opening costs the same regardless of the number of words.
+     *
+     * @param file the image file
+     * @return the lexicon stored in the image
+     * @throws IOException if the file cannot be read or is not a lexicon image
+     */
+    public static Lexicon map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) throw new IOException(file + " is not a lexicon image");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) throw new IOException(file + " is not a lexicon image");
+            if (buffer.getInt() != VERSION) throw new IOException(file + " has an unsupported lexicon version");
+            int size = buffer.getInt();
+            int root = buffer.getInt();
+            int count = buffer.getInt();
+            if ((long) count * Integer.BYTES != channel.size() - HEADER_BYTES) throw new IOException(file + " is truncated");
+
+            return new Lexicon(buffer.slice().asIntBuffer(), root, size);
+        }
+    }
+
+    /**
+     * Writes this lexicon as a binary image that can be opened with map(File).
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + edges.capacity() * Integer.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(root).putInt(edges.capacity());
+        buffer.asIntBuffer().put(edges.duplicate().clear());
+        buffer.clear();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    private static boolean isPlayable(String word) {
+        if (word.isEmpty()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'A' || c > 'Z') return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the root node, or 0 if the lexicon is empty
+     */
+    public int root() {
+        return root;
+    }
+
+    /**
+     * @return the number of words in the lexicon
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of edges stored, which is what the lexicon's memory use grows with
+     */
+    public int edgeCount() {
+        return edges.capacity() - 1;
+    }
+
+    /**
+     * @return the number of bytes taken by the edges
+     */
+    public long memoryBytes() {
+        return (long) edges.capacity() * Integer.BYTES;
+    }
+
+    /**
+     * @return whether the edges are memory-mapped from an image rather than held on the heap
+     */
+    public boolean isMapped() {
+        return edges.isDirect();
+    }
+
+    /**
+     * Returns the first edge of a node. Nodes are identified by the index of their first edge,
+     * so this is the node itself; it exists to make edge loops read naturally.
+     *
+     * @param node the node
+     * @return the first edge, or -1 if the node has no edges
+     */
+    public int firstEdge(int node) {
+        return node == 0 ? -1 : node;
+    }
+
+    /**
+     * @param edge the current edge
+     * @return the next edge of the same node, or -1 if this was the last one
+     */
+    public int nextEdge(int edge) {
+        return (edges.get(edge) & LAST) != 0 ? -1 : edge + 1;
+    }
+
+    /**
+     * @param edge the edge
+     * @return the letter of the edge, from 0 ('A') to 25 ('Z')
+     */
+    public int letter(int edge) {
+        return edges.get(edge) & LETTER_MASK;
+    }
+
+    /**
+     * @param edge the edge
+     * @return whether following this edge completes a word
+     */
+    public boolean isTerminal(int edge) {
+        return (edges.get(edge) & TERMINAL) != 0;
+    }
+
+    /**
+     * @param edge the edge
+     * @return the node this edge leads to, or 0 if no word continues past it
+     */
+    public int child(int edge) {
+        return edges.get(edge) >>> CHILD_SHIFT;
+    }
+
+    /**
+     * Finds the edge leaving a node with the given letter.
+     *
+     * @param node   the node to search
+     * @param letter the letter, from 0 ('A') to 25 ('Z')
+     * @return the edge, or -1 if there is none
+     */
+    public int findEdge(int node, int letter) {
+        for (int e = firstEdge(node); e != -1; e = nextEdge(e)) {
+            int l = letter(e);
+            if (l == letter) return e;
+            if (l > letter) return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the given word is in the lexicon.
+     *
+     * @param word the word to check, in uppercase
+     * @return true if the word exists; false otherwise
+     */
+    public boolean contains(CharSequence word) {
+        int node = root;
+        int edge = -1;
+        for (int i = 0; i < word.length(); i++) {
+            int letter = word.charAt(i) - 'A';
+            if (letter < 0 || letter >= ALPHABET) return false;
+            edge = findEdge(node, letter);
+            if (edge == -1) return false;
+            node = child(edge);
+        }
+        return edge != -1 && isTerminal(edge);
+    }
+
+    /**
+     * Walks a sequence of letters from the root.
+     *
+     * @param letters the letters to walk, in uppercase
+     * @return the edge of the last letter, or -1 if no word starts with the letters
+     */
+    public int walk(CharSequence letters) {
+        return walk(root, -1, letters);
+    }
+
+    /**
+     * Walks a sequence of letters starting from a node.
+     *
+     * @param node    the node to start from
+     * @param edge    the edge that led to the node, returned if there are no letters to walk
+     * @param letters the letters to walk, in uppercase
+     * @return the edge of the last letter, or -1 if no word continues with the letters
+     */
+    private int walk(int node, int edge, CharSequence letters) {
+        for (int i = 0; i < letters.length(); i++) {
+            int letter = letters.charAt(i) - 'A';
+            if (letter < 0 || letter >= ALPHABET) return -1;
+            edge = findEdge(node, letter);
+            if (edge == -1) return -1;
+            node = child(edge);
+        }
+        return edge;
+    }
+
+    /**
+     * Checks whether any word starts with the given prefix.
+     *
+     * @param prefix the prefix to check, in uppercase
+     * @return true if at least one word starts with the prefix; false otherwise
+     */
+    public boolean isPrefix(CharSequence prefix) {
+        if (prefix.isEmpty()) return size > 0;
+        return walk(prefix) != -1;
+    }
+
+    /**
+     * Returns the letters that can follow a prefix while still leading to a word.
+     *
+     * @param prefix the prefix, in uppercase
+     * @return a bitmask where bit n is set if letter n ('A' + n) can follow the prefix
+     */
+    public int nextLetters(CharSequence prefix) {
+        int node = root;
+        if (!prefix.isEmpty()) {
+            int edge = walk(prefix);
+            if (edge == -1) return 0;
+            node = child(edge);
+        }
+
+        int mask = 0;
+        for (int e = firstEdge(node); e != -1; e = nextEdge(e)) mask |= 1 << letter(e);
+        return mask;
+    }
+
+    /**
+     * Returns the letters that form a word when placed between two fixed sequences of letters.
+     * This is the check the move generator needs for a square with tiles on either side of it.
+     *
+     * @param before the letters before the square, in uppercase
+     * @param after  the letters after the square, in uppercase
+     * @return a bitmask where bit n is set if before + ('A' + n) + after is a word
+     */
+    public int hooks(CharSequence before, CharSequence after) {
+        int node = root;
+        if (!before.isEmpty()) {
+            int edge = walk(before);
+            if (edge == -1) return 0;
+            node = child(edge);
+        }
+
+        int mask = 0;
+        for (int e = firstEdge(node); e != -1; e = nextEdge(e)) {
+            int last = walk(child(e), e, after);
+            if (last != -1 && isTerminal(last)) mask |= 1 << letter(e);
+        }
+        return mask;
+    }
+
+    /**
+     * @param word the word to hook onto, in uppercase
+     * @return a bitmask of the letters that form a word when placed in front of the given word
+     */
+    public int frontHooks(CharSequence word) {
+        return hooks("", word);
+    }
+
+    /**
+     * @param word the word to hook onto, in uppercase
+     * @return a bitmask of the letters that form a word when placed after the given word
+     */
+    public int backHooks(CharSequence word) {
+        return hooks(word, "");
+    }
+
+    /**
+     * Adds every word in the lexicon to a collection, in alphabetical order.
+     *
+     * @param out the collection to add the words to
+     */
+    public void collectWords(Collection<String> out) {
+        collectWords(root, new StringBuilder(), out);
+    }
+
+    private void collectWords(int node, StringBuilder prefix, Collection<String> out) {
+        for (int e = firstEdge(node); e != -1; e = nextEdge(e)) {
+            prefix.append((char) ('A' + letter(e)));
+            if (isTerminal(e)) out.add(prefix.toString());
+            collectWords(child(e), prefix, out);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+
+    /**
+     * Two lexicons are equal if they hold the same words. Since building is deterministic,
+     * the same words always produce the same edges.
+     *
+     * @param o the object to compare to
+     * @return whether the object o is equal to this or not
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof Lexicon) {
+            Lexicon other = (Lexicon) o;
+            return root == other.root && size == other.size && edges.equals(other.edges);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return edges.hashCode();
+    }
+
+    /**
+     * Lays out the nodes in post-order so that every child index is known by the time
+     * its parent's edges are written. A node whose edges match an already written node
+     * reuses it, which minimizes the graph since equal children are already shared.
+     */
+    private static class Builder {
+        private final List<String> words;
+        private final Map<Block, Integer> register = new HashMap<>();
+        private int[] edges = new int[1024];
+        private int count = 1; //Index 0 is reserved to mean "no child"
+        private int wordCount;
+
+        Builder(List<String> words) {
+            this.words = words;
+        }
+
+        int buildNode(int lo, int hi, int depth) {
+            int[] block = new int[ALPHABET];
+            int size = 0;
+
+            int i = lo;
+            while (i < hi) {
+                //Skip the word that ends exactly at this depth, its parent edge marks it terminal
+                if (words.get(i).length() == depth) {
+                    i++;
+                    continue;
+                }
+                char c = words.get(i).charAt(depth);
+                int j = i;
+                while (j < hi && words.get(j).length() > depth && words.get(j).charAt(depth) == c) j++;
+
+                boolean terminal = words.get(i).length() == depth + 1;
+                if (terminal) wordCount++;
+                int child = buildNode(i, j, depth + 1);
+
+                int edge = (c - 'A') | (child << CHILD_SHIFT);
+                if (terminal) edge |= TERMINAL;
+                block[size++] = edge;
+                i = j;
+            }
+
+            if (size == 0) return 0;
+            block[size - 1] |= LAST;
+
+            Block key = new Block(Arrays.copyOf(block, size));
+            Integer existing = register.get(key);
+            if (existing != null) return existing;
+            int node = append(block, size);
+            register.put(key, node);
+            return node;
+        }
+
+        private int append(int[] block, int size) {
+            if (count + size > edges.length) edges = Arrays.copyOf(edges, Math.max(edges.length * 2, count + size));
+            int node = count;
+            System.arraycopy(block, 0, edges, count, size);
+            count += size;
+            return node;
+        }
+    }
+
+    /**
+     * The edges of a node, compared by content so equal nodes can be found in the register.
+     */
+    private static final class Block {
+        private final int[] edges;
+        private final int hash;
+
+        Block(int[] edges) {
+            this.edges = edges;
+            this.hash = Arrays.hashCode(edges);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Block && Arrays.equals(edges, ((Block) o).edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MoveCache class remembers the moves found for positions the AI has already searched,
+ * so a position that comes back after an undo and redo, or a second request for the same
+ * moves, is answered without generating moves again.
+ *
+ * Positions are keyed by the Zobrist hash of the board, the premium squares and the rack, and
+ * whether it is the first turn. The premium squares are part of the key because importing a
+ * custom board moves them, which changes what every move on the same tiles scores. Each entry
+ * holds the best moves of the position in order of equity, as many as were asked for, so a
+ * request for fewer of them is answered from the same entry. The moves depend on the lexicon
+ * and the leave values too, so an entry only answers requests made with the same ones. The
+ * cache holds a fixed number of positions and evicts the least recently used when it is full.
+ *
+ * A cache is thread-safe, so a game's AI turns and other callers can share one.
+ */
+public class MoveCache {
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("scrabble.ai.cacheSize", 1024);
+
+    /**
+     * How well the cache has done since it was created or cleared.
+     *
+     * @param hits      the number of requests answered from the cache
+     * @param misses    the number of requests that had to search
+     * @param evictions the number of positions dropped to make room for others
+     * @param size      the number of positions held
+     * @param capacity  the most positions the cache holds
+     */
+    public record Stats(long hits, long misses, long evictions, int size, int capacity) {
+        /**
+         * @return the fraction of requests answered from the cache, from 0 to 1
+         */
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses (%.0f%% hit rate), %d evictions, %d/%d positions",
+                    hits, misses, hitRate() * 100, evictions, size, capacity);
+        }
+    }
+
+    /**
+     * The best moves of a position, best first. If fewer moves were found than were asked
+     * for, they are every move the position has.
+     */
+    private record Entry(Lexicon lexicon, LeaveTable leaves, List<AIMove> moves, int requested) {
+        boolean answers(Lexicon lexicon, LeaveTable leaves, int count) {
+            return this.lexicon == lexicon && this.leaves == leaves && (count <= moves.size() || moves.size() < requested);
+        }
+    }
+
+    private final int capacity;
+    private final Map<Long, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a cache holding DEFAULT_CAPACITY positions.
+     */
+    public MoveCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the most positions to hold, or 0 to hold none
+     */
+    public MoveCache(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        //An access-ordered map keeps the least recently used entry first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= MoveCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param board     the board
+     * @param hand      the tiles in the hand
+     * @param firstTurn whether it is the first turn
+     * @return the key of the position, under the current layout of premium squares
+     */
+    public static long key(Board board, List<Tile> hand, boolean firstTurn) {
+        return board.getHash() ^ Zobrist.premiums() ^ Zobrist.rack(0, MoveSimulator.counts(hand)) ^ (firstTurn ? Zobrist.FIRST_TURN : 0);
+    }
+
+    /**
+     * Looks up the best moves of a position.
+     *
+     * @param key     the key of the position
+     * @param lexicon the lexicon the moves must come from
+     * @param leaves  the leave values the moves must be ranked by
+     * @param count   the number of moves wanted
+     * @return up to count of the best moves, best first, which is empty if there are none,
+     *         or null if the cache cannot answer
+     */
+    public synchronized List<AIMove> get(long key, Lexicon lexicon, LeaveTable leaves, int count) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.answers(lexicon, leaves, count)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.moves.size() <= count ? entry.moves : entry.moves.subList(0, count);
+    }
+
+    /**
+     * Remembers the best moves of a position, unless the cache already holds more of them.
+     *
+     * @param key       the key of the position
+     * @param lexicon   the lexicon the moves come from
+     * @param leaves    the leave values the moves were ranked by
+     * @param moves     the best moves, best first
+     * @param requested the number of moves that were searched for
+     */
+    public synchronized void put(long key, Lexicon lexicon, LeaveTable leaves, List<AIMove> moves, int requested) {
+        if (capacity == 0) return;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.answers(lexicon, leaves, requested)) return;
+        entries.put(key, new Entry(lexicon, leaves, List.copyOf(moves), requested));
+    }
+
+    /**
+     * Forgets every position and resets the statistics.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * @return the statistics of the cache
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size(), capacity);
+    }
+}
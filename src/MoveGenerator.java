@@ -0,0 +1,268 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The MoveGenerator class finds every placement a rack can make on a board
+ * using the anchor and cross-check technique described by Appel and Jacobson.
+ *
+ * Instead of trying every word at every square, each row and column is scanned
+ * for anchors (empty squares next to a placed tile, or the center on the first turn).
+ * Words are then grown through the lexicon from each anchor, only following letters
+ * the rack holds and that form valid words with the tiles above and below
+ * (or left and right) of the square being filled. Those cross-checks are kept by the
+ * board, which only recomputes the squares next to tiles placed or removed since the last search.
+ */
+public class MoveGenerator {
+    private static final int ALL_LETTERS = (1 << Lexicon.ALPHABET) - 1;
+    private static final int BLANK = Lexicon.ALPHABET;
+
+    //The number of lines searched: every row, then every column
+    public static final int LINES = 2 * Board.SIZE;
+
+    private final Lexicon lexicon;
+    private final Board board;
+    private final boolean firstTurn;
+
+    //Search state for the line currently being scanned
+    private final int[] rack = new int[Lexicon.ALPHABET + 1];
+    private final int[] crossChecks = new int[Board.SIZE];
+    private final boolean[] anchors = new boolean[Board.SIZE];
+    private final char[] word = new char[Board.SIZE];
+    private int length;
+    private boolean isHorizontal;
+    private int line;
+    private int anchor;
+    private Visitor visitor;
+
+    /**
+     * Receives each move as it is found, without creating an AIMove for it.
+     */
+    public interface Visitor {
+        /**
+         * Called for every move found.
+         *
+         * @param word         the letters of the word, only valid until this call returns
+         * @param length       the number of letters in the word
+         * @param row          the row of the first letter
+         * @param col          the column of the first letter
+         * @param isHorizontal whether the word reads across
+         */
+        void visit(char[] word, int length, int row, int col, boolean isHorizontal);
+    }
+
+    /**
+     * Constructs a move generator for a board.
+     *
+     * @param lexicon   the lexicon containing the list of eligible words
+     * @param board     the board that the words are placed on
+     * @param firstTurn whether it is the first turn, in which case moves must cross the center
+     */
+    public MoveGenerator(Lexicon lexicon, Board board, boolean firstTurn) {
+        this.lexicon = lexicon;
+        this.board = board;
+        this.firstTurn = firstTurn;
+    }
+
+    /**
+     * Finds every move the given hand can make. Rows are scanned top to bottom for horizontal
+     * moves, then columns left to right for vertical moves, so the order of the result is stable.
+     * A move placing a single tile may appear once in each direction.
+     *
+     * @param hand the tiles available to place, where tiles with a score of 0 are blanks
+     * @return the list of moves, each spanning the full word formed along its direction
+     */
+    public List<AIMove> generate(List<Tile> hand) {
+        return generate(hand, 0, LINES);
+    }
+
+    /**
+     * Finds the moves the given hand can make along a range of lines. Lines 0 to SIZE - 1 are
+     * the rows, scanned for horizontal moves, and lines SIZE to 2 * SIZE - 1 are the columns,
+     * scanned for vertical moves. Splitting the lines into ranges lets several generators
+     * search one board at the same time, and joining the results of consecutive ranges in
+     * order gives the same list as generate(List).
+     *
+     * @param hand the tiles available to place, where tiles with a score of 0 are blanks
+     * @param from the first line to scan
+     * @param to   the line after the last one to scan
+     * @return the list of moves, each spanning the full word formed along its direction
+     */
+    public List<AIMove> generate(List<Tile> hand, int from, int to) {
+        List<AIMove> moves = new ArrayList<>();
+        Arrays.fill(rack, 0);
+        for (Tile tile : hand) {
+            if (tile.getScore() == 0 || tile.getLetter() == ' ') rack[BLANK]++;
+            else rack[tile.getLetter() - 'A']++;
+        }
+
+        scan(from, to, (word, length, row, col, isHorizontal) -> moves.add(new AIMove(new String(word, 0, length), row, col, isHorizontal)));
+        return moves;
+    }
+
+    /**
+     * Finds every move a rack can make, in the same order as generate(List), passing each one
+     * to a visitor instead of collecting them. Nothing is allocated, so this suits searches that
+     * generate moves many times over, such as simulations. The board may be changed between calls.
+     *
+     * @param counts  how many of each letter the rack holds, indexed from 'A', with the number of blanks last
+     * @param visitor the visitor to pass each move to
+     */
+    public void generate(int[] counts, Visitor visitor) {
+        System.arraycopy(counts, 0, rack, 0, rack.length);
+        scan(0, LINES, visitor);
+    }
+
+    private void scan(int from, int to, Visitor visitor) {
+        board.updateCrossChecks(lexicon);
+        this.visitor = visitor;
+        for (int i = from; i < to; i++) {
+            isHorizontal = i < Board.SIZE;
+            line = i % Board.SIZE;
+            scanLine();
+        }
+        this.visitor = null;
+    }
+
+    /**
+     * Returns the letter at a position of the current line.
+     *
+     * @param i the position along the line
+     * @return the letter, or 0 if the square is empty or off the board
+     */
+    private char letterAt(int i) {
+        return isHorizontal ? board.getLetter(line, i) : board.getLetter(i, line);
+    }
+
+    /**
+     * Computes the anchors and cross-checks of the current line, then generates moves from each anchor.
+     */
+    private void scanLine() {
+        int anchorBits;
+        if (firstTurn && board.getLetter(Board.CENTER, Board.CENTER) == 0) {
+            anchorBits = line == Board.CENTER ? 1 << Board.CENTER : 0;
+        }
+        else {
+            anchorBits = board.getAnchors(line, isHorizontal);
+        }
+        if (anchorBits == 0) return;
+
+        for (int i = 0; i < Board.SIZE; i++) {
+            anchors[i] = (anchorBits & (1 << i)) != 0;
+            crossChecks[i] = ALL_LETTERS;
+            if (anchors[i]) crossChecks[i] = isHorizontal ? board.getCrossCheck(line, i, true) : board.getCrossCheck(i, line, false);
+        }
+
+        for (anchor = 0; anchor < Board.SIZE; anchor++) {
+            if (!anchors[anchor] || crossChecks[anchor] == 0) continue;
+            length = 0;
+
+            if (anchor > 0 && letterAt(anchor - 1) != 0) {
+                //The left part is fixed by the tiles already on the board
+                int start = anchor - 1;
+                while (start > 0 && letterAt(start - 1) != 0) start--;
+                int node = lexicon.root();
+                boolean found = true;
+                for (int i = start; i < anchor; i++) {
+                    char letter = letterAt(i);
+                    int edge = lexicon.findEdge(node, letter - 'A');
+                    if (edge == -1) {
+                        found = false;
+                        break;
+                    }
+                    word[length++] = letter;
+                    node = lexicon.child(edge);
+                }
+                if (found) extendRight(node, anchor, false);
+            }
+            else {
+                //The left part may use empty squares up to the previous anchor
+                int limit = 0;
+                while (anchor - limit > 0 && letterAt(anchor - limit - 1) == 0 && !anchors[anchor - limit - 1]) limit++;
+                leftPart(lexicon.root(), limit);
+            }
+        }
+    }
+
+    /**
+     * Builds every prefix from the rack that fits in the empty squares left of the anchor,
+     * extending each one to the right through the anchor.
+     *
+     * @param node  the lexicon node reached by the current prefix
+     * @param limit how many more squares the prefix may take
+     */
+    private void leftPart(int node, int limit) {
+        extendRight(node, anchor, false);
+        if (limit == 0) return;
+
+        for (int edge = lexicon.firstEdge(node); edge != -1; edge = lexicon.nextEdge(edge)) {
+            int child = lexicon.child(edge);
+            if (child == 0) continue;
+            int letter = lexicon.letter(edge);
+            int tile = rack[letter] > 0 ? letter : BLANK;
+            if (rack[tile] == 0) continue;
+
+            rack[tile]--;
+            word[length++] = (char) ('A' + letter);
+            leftPart(child, limit - 1);
+            length--;
+            rack[tile]++;
+        }
+    }
+
+    /**
+     * Extends the current word to the right, recording it whenever it forms a complete word
+     * that has passed through the anchor.
+     *
+     * @param node     the lexicon node reached by the current word
+     * @param i        the position along the line to fill next
+     * @param terminal whether the current word is a complete word
+     */
+    private void extendRight(int node, int i, boolean terminal) {
+        char existing = i < Board.SIZE ? letterAt(i) : 0;
+
+        if (existing == 0) {
+            if (terminal && i > anchor) record(i);
+            if (i >= Board.SIZE) return;
+
+            for (int edge = lexicon.firstEdge(node); edge != -1; edge = lexicon.nextEdge(edge)) {
+                int letter = lexicon.letter(edge);
+                if ((crossChecks[i] & (1 << letter)) == 0) continue;
+                int tile = rack[letter] > 0 ? letter : BLANK;
+                if (rack[tile] == 0) continue;
+
+                rack[tile]--;
+                word[length++] = (char) ('A' + letter);
+                extendRight(lexicon.child(edge), i + 1, lexicon.isTerminal(edge));
+                length--;
+                rack[tile]++;
+            }
+        }
+        else {
+            int edge = lexicon.findEdge(node, existing - 'A');
+            if (edge == -1) return;
+            word[length++] = existing;
+            extendRight(lexicon.child(edge), i + 1, lexicon.isTerminal(edge));
+            length--;
+        }
+    }
+
+    /**
+     * Records the current word, which ends just before the given position.
+     *
+     * @param end the position after the last letter of the word
+     */
+    private void record(int end) {
+        int start = end - length;
+        int row = isHorizontal ? line : start;
+        int col = isHorizontal ? start : line;
+
+        //On the first turn the word must cover the center square
+        if (firstTurn) {
+            int centerPos = isHorizontal ? Board.CENTER - col : Board.CENTER - row;
+            if ((isHorizontal ? row : col) != Board.CENTER || centerPos < 0 || centerPos >= length) return;
+        }
+
+        visitor.visit(word, length, row, col, isHorizontal);
+    }
+}
@@ -0,0 +1,380 @@
+/**
+ * The MoveScorer class validates and scores a set of tiles placed on a board.
+ *
+ * Placed tiles are written to an overlay on top of the board instead of the board itself,
+ * and every word is read straight from the squares. Words are checked by walking the
+ * lexicon one square at a time, and premiums are applied while summing, so scoring a move
+ * allocates nothing and never changes a Tile. A scorer can be reused for any number of
+ * moves, which is how the AI scores its candidates, but it is not thread-safe.
+ *
+ * The rules, error messages and scores are the same as those of Game.analyzeMove,
+ * which is built on this class.
+ */
+public class MoveScorer {
+    private static final int MAX_TILES = Board.SIZE * Board.SIZE;
+
+    //Validation results, in the order analyzeMove checks them
+    private static final int VALID = 0;
+    private static final int NO_TILES = 1;
+    private static final int NOT_IN_LINE = 2;
+    private static final int NOT_ONE_WORD = 3;
+    private static final int NOT_ON_CENTER = 4;
+    private static final int NOT_CONNECTED = 5;
+    private static final int NOT_TOUCHING = 6;
+    private static final int INVALID_WORD = 7;
+
+    private final Lexicon lexicon;
+    private Board board;
+
+    //Overlay of the placed tiles, indexed by row * SIZE + col
+    private final char[] letters = new char[MAX_TILES];
+    private final int[] scores = new int[MAX_TILES];
+    private final int[] placed = new int[MAX_TILES];
+    private int count;
+
+    //The words formed by the last call to check(), as start square, step and length
+    private boolean mainHorizontal;
+    private int mainStart;
+    private int mainLength;
+    private final int[] crossStart = new int[MAX_TILES];
+    private final int[] crossLength = new int[MAX_TILES];
+    private int invalidStart;
+    private int invalidStep;
+    private int invalidLength;
+
+    /**
+     * Constructs a scorer that checks words against the given lexicon.
+     *
+     * @param lexicon the lexicon containing the list of eligible words
+     */
+    public MoveScorer(Lexicon lexicon) {
+        this.lexicon = lexicon;
+    }
+
+    /**
+     * Starts a new move on the given board, removing any tiles placed for the previous move.
+     *
+     * @param board the board the tiles are placed on
+     */
+    public void reset(Board board) {
+        for (int i = 0; i < count; i++) letters[placed[i]] = 0;
+        count = 0;
+        this.board = board;
+    }
+
+    /**
+     * Places a tile for the current move. The board itself is not changed, and the tile
+     * may already be on it. Tiles should be placed in the order they were played, since the
+     * main word runs through the first one and invalid words are reported in that order.
+     *
+     * @param row    the row of the tile
+     * @param col    the column of the tile
+     * @param letter the letter of the tile
+     * @param score  the score of the tile, before premiums
+     */
+    public void place(int row, int col, char letter, int score) {
+        int square = row * Board.SIZE + col;
+        letters[square] = letter;
+        scores[square] = score;
+        placed[count++] = square;
+    }
+
+    /**
+     * @return the number of tiles placed for the current move
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Scores the current move without creating any objects.
+     *
+     * @param firstTurn whether it is the first turn, in which case the move must cover the center
+     * @return the score of the move, or -1 if it is not valid
+     */
+    public int score(boolean firstTurn) {
+        return check(firstTurn) == VALID ? total() : -1;
+    }
+
+    /**
+     * Scores the current move by where its tiles are placed, whether or not its words are in
+     * the lexicon. Used to score games played with a larger word list than this one.
+     *
+     * @param firstTurn whether it is the first turn, in which case the move must cover the center
+     * @return the score of the move, or -1 if its tiles are not placed legally
+     */
+    public int scoreAnyWords(boolean firstTurn) {
+        int result = check(firstTurn);
+        return result == VALID || result == INVALID_WORD ? total() : -1;
+    }
+
+    /**
+     * Validates and scores the current move.
+     *
+     * @param firstTurn whether it is the first turn, in which case the move must cover the center
+     * @return the score and main word of the move
+     * @throws IllegalArgumentException with the reason the move is invalid
+     */
+    public PlayerMove analyze(boolean firstTurn) throws IllegalArgumentException {
+        switch (check(firstTurn)) {
+            case NO_TILES: throw new IllegalArgumentException("ERROR! You have not placed any tiles.");
+            case NOT_IN_LINE: throw new IllegalArgumentException("ERROR! All tiles must be placed on the same row or column.");
+            case NOT_ONE_WORD: throw new IllegalArgumentException("ERROR! The placed tiles must all be used to form one word.");
+            case NOT_ON_CENTER: throw new IllegalArgumentException("ERROR! The first word must pass through the center.");
+            case NOT_CONNECTED: throw new IllegalArgumentException("ERROR! All tiles must connect to form valid words (no gaps).");
+            case NOT_TOUCHING: throw new IllegalArgumentException("ERROR! The mainWord must connect to an existing tile.");
+            case INVALID_WORD: throw new IllegalArgumentException("ERROR! " + wordAt(invalidStart, invalidStep, invalidLength) + " is not a valid word.");
+            default: return new PlayerMove(total(), wordAt(mainStart, mainHorizontal ? 1 : Board.SIZE, mainLength));
+        }
+    }
+
+    /**
+     * Returns the letter on a square, looking at the placed tiles first.
+     *
+     * @param square the square, as row * SIZE + col
+     * @return the letter, or 0 if the square is empty
+     */
+    private char letterAt(int square) {
+        if (letters[square] != 0) return letters[square];
+        return board.getLetter(square / Board.SIZE, square % Board.SIZE);
+    }
+
+    /**
+     * @return whether the square at the given position has a tile, placed or on the board
+     */
+    private boolean isOccupied(int row, int col) {
+        return board.isInBounds(row, col) && letterAt(row * Board.SIZE + col) != 0;
+    }
+
+    /**
+     * Finds the first square of the word running through a square.
+     *
+     * @param square       the square, which must be occupied
+     * @param isHorizontal whether the word runs along the row or down the column
+     * @return the first square of the word
+     */
+    private int wordStart(int square, boolean isHorizontal) {
+        int row = square / Board.SIZE, col = square % Board.SIZE;
+        if (isHorizontal) while (isOccupied(row, col - 1)) col--;
+        else while (isOccupied(row - 1, col)) row--;
+        return row * Board.SIZE + col;
+    }
+
+    /**
+     * Counts the letters of the word starting at a square.
+     *
+     * @param start        the first square of the word
+     * @param isHorizontal whether the word runs along the row or down the column
+     * @return the number of letters in the word
+     */
+    private int wordLength(int start, boolean isHorizontal) {
+        int row = start / Board.SIZE, col = start % Board.SIZE;
+        int length = 0;
+        while (isOccupied(row, col)) {
+            length++;
+            if (isHorizontal) col++;
+            else row++;
+        }
+        return length;
+    }
+
+    /**
+     * @return whether the word of the given length starting at a square contains another square
+     */
+    private static boolean wordContains(int start, int step, int length, int square) {
+        int offset = square - start;
+        if (offset < 0 || offset % step != 0 || offset / step >= length) return false;
+        //A row word cannot wrap onto the next row
+        return step != 1 || square / Board.SIZE == start / Board.SIZE;
+    }
+
+    /**
+     * @return whether a square holds one of the placed tiles
+     */
+    private boolean isPlaced(int square) {
+        return letters[square] != 0;
+    }
+
+    /**
+     * Walks the lexicon over the letters of a word.
+     *
+     * @return whether the word is in the lexicon
+     */
+    private boolean isWord(int start, int step, int length) {
+        int node = lexicon.root();
+        int edge = -1;
+        for (int i = 0, square = start; i < length; i++, square += step) {
+            int letter = letterAt(square) - 'A';
+            if (letter < 0 || letter >= Lexicon.ALPHABET) return false;
+            edge = lexicon.findEdge(node, letter);
+            if (edge == -1) return false;
+            node = lexicon.child(edge);
+        }
+        return edge != -1 && lexicon.isTerminal(edge);
+    }
+
+    /**
+     * @return the letters of a word as a string
+     */
+    private String wordAt(int start, int step, int length) {
+        char[] word = new char[length];
+        for (int i = 0; i < length; i++) word[i] = letterAt(start + i * step);
+        return new String(word);
+    }
+
+    /**
+     * Checks the current move against the rules, recording the words it forms.
+     *
+     * @param firstTurn whether it is the first turn
+     * @return VALID, or the first rule the move breaks
+     */
+    private int check(boolean firstTurn) {
+        if (count == 0) return NO_TILES;
+
+        boolean sameRow = true;
+        boolean sameCol = true;
+
+        //Check if all tiles are on the same row or same column
+        int minRow = Board.SIZE, maxRow = -1, minCol = Board.SIZE, maxCol = -1;
+        for (int i = 0; i < count; i++) {
+            int row = placed[i] / Board.SIZE, col = placed[i] % Board.SIZE;
+            if (i > 0 && row != placed[i - 1] / Board.SIZE) sameCol = false;
+            if (i > 0 && col != placed[i - 1] % Board.SIZE) sameRow = false;
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minCol = Math.min(minCol, col);
+            maxCol = Math.max(maxCol, col);
+        }
+        if (!sameRow && !sameCol) return NOT_IN_LINE;
+
+        //Check for empty spaces between the first and last placed tiles
+        if (count > 1) {
+            if (!sameRow) {
+                for (int col = minCol; col <= maxCol; col++) if (!isOccupied(minRow, col)) return NOT_ONE_WORD;
+            }
+            else {
+                for (int row = minRow; row <= maxRow; row++) if (!isOccupied(row, minCol)) return NOT_ONE_WORD;
+            }
+        }
+
+        if (firstTurn && !isOccupied(Board.CENTER, Board.CENTER)) return NOT_ON_CENTER;
+
+        //The main word runs through the first tile, and each tile may form a cross word
+        mainHorizontal = sameCol;
+        int mainStep = mainHorizontal ? 1 : Board.SIZE;
+        int crossStep = mainHorizontal ? Board.SIZE : 1;
+        mainStart = wordStart(placed[0], mainHorizontal);
+        mainLength = wordLength(mainStart, mainHorizontal);
+        for (int i = 0; i < count; i++) {
+            crossStart[i] = wordStart(placed[i], !mainHorizontal);
+            crossLength[i] = wordLength(crossStart[i], !mainHorizontal);
+        }
+
+        //Every tile must be part of a word of at least two letters
+        for (int i = 0; i < count; i++) {
+            boolean inMain = mainLength > 1 && wordContains(mainStart, mainStep, mainLength, placed[i]);
+            if (!inMain && crossLength[i] < 2) return NOT_CONNECTED;
+        }
+
+        //After the first turn, some word must use a tile already on the board
+        if (!firstTurn) {
+            boolean connects = false;
+            if (mainLength > 1) connects = usesBoardTile(mainStart, mainStep, mainLength);
+            for (int i = 0; i < count && !connects; i++) {
+                if (crossLength[i] > 1) connects = usesBoardTile(crossStart[i], crossStep, crossLength[i]);
+            }
+            if (!connects) return NOT_TOUCHING;
+        }
+
+        //Dictionary validation, main word first
+        if (!isWord(mainStart, mainStep, mainLength)) return invalid(mainStart, mainStep, mainLength);
+        for (int i = 0; i < count; i++) {
+            if (crossLength[i] > 1 && !isWord(crossStart[i], crossStep, crossLength[i])) {
+                return invalid(crossStart[i], crossStep, crossLength[i]);
+            }
+        }
+        return VALID;
+    }
+
+    /**
+     * @return whether the word contains a square without a placed tile
+     */
+    private boolean usesBoardTile(int start, int step, int length) {
+        for (int i = 0, square = start; i < length; i++, square += step) {
+            if (!isPlaced(square)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the word that failed dictionary validation.
+     *
+     * @return INVALID_WORD
+     */
+    private int invalid(int start, int step, int length) {
+        invalidStart = start;
+        invalidStep = step;
+        invalidLength = length;
+        return INVALID_WORD;
+    }
+
+    /**
+     * Returns the value of the tile on a square. Placed tiles are multiplied by the premium
+     * of their square, where a word premium also multiplies the tile itself.
+     *
+     * @param square the square, which must be occupied
+     * @return the value of the tile
+     */
+    private int valueAt(int square) {
+        if (!isPlaced(square)) return board.getScore(square / Board.SIZE, square % Board.SIZE);
+        return scores[square] * switch (Board.premiumTiles[square / Board.SIZE][square % Board.SIZE]) {
+            case DL, DW -> 2;
+            case TL, TW -> 3;
+            default -> 1;
+        };
+    }
+
+    /**
+     * @return the sum of the values of a word's tiles, leaving out one square
+     */
+    private int wordValue(int start, int step, int length, int skip) {
+        int value = 0;
+        for (int i = 0, square = start; i < length; i++, square += step) {
+            if (square != skip) value += valueAt(square);
+        }
+        return value;
+    }
+
+    /**
+     * Totals the score of the words recorded by check(). Every word of two or more letters
+     * scores its tiles once. A placed tile on a double word square adds the rest of each word
+     * it is in once more, and one on a triple word square adds them twice more.
+     *
+     * @return the score of the move
+     */
+    private int total() {
+        int mainStep = mainHorizontal ? 1 : Board.SIZE;
+        int crossStep = mainHorizontal ? Board.SIZE : 1;
+
+        int total = mainLength > 1 ? wordValue(mainStart, mainStep, mainLength, -1) : 0;
+        for (int i = 0; i < count; i++) {
+            if (crossLength[i] > 1) total += wordValue(crossStart[i], crossStep, crossLength[i], -1);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int square = placed[i];
+            int extra = switch (Board.premiumTiles[square / Board.SIZE][square % Board.SIZE]) {
+                case DW -> 1;
+                case TW -> 2;
+                default -> 0;
+            };
+            if (extra == 0) continue;
+
+            int rest = 0;
+            if (wordContains(mainStart, mainStep, mainLength, square)) rest += wordValue(mainStart, mainStep, mainLength, square);
+            if (crossLength[i] > 1) rest += wordValue(crossStart[i], crossStep, crossLength[i], square);
+            total += extra * rest;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The MoveSimulator class chooses between a few candidate moves near the end of the game
+ * by playing each of them out against racks the opponent might hold.
+ *
+ * Each rollout deals the opponent a random rack from the unseen tiles (those not on the
+ * board or in the AI's hand) and puts the rest of the bag in a random order. Every candidate
+ * is then played, followed by the best scoring reply of each player in turn, drawing from
+ * the same bag. The candidate with the best average spread, its score minus the opponent's
+ * plus the AI's later scores, is chosen. All candidates share the same racks in each rollout,
+ * so their averages differ by the moves rather than by luck.
+ *
+ * Rollouts are split between tasks on a work-stealing pool. Each task plays its rollouts on
+ * its own copy of the board, placing and removing pooled tiles, so a rollout allocates nothing.
+ * Rollout n always deals the same tiles for a given seed, so the result does not depend on
+ * how the rollouts were split. The tasks stop with a CancellationException once the thread
+ * that started the simulation is interrupted.
+ */
+public class MoveSimulator {
+    //The number of replies played out after each candidate: the opponent, then the AI
+    public static final int PLIES = 2;
+    private static final int TYPES = LeaveTable.TYPES;
+    private static final int BLANK = LeaveTable.BLANK;
+    //Rollouts played by one task before it stops splitting
+    private static final int GRAIN = 4;
+
+    /**
+     * The result of a simulation.
+     *
+     * @param move     the candidate with the best average spread, or null if there were no candidates
+     * @param spreads  the average spread of each candidate, in the order they were given
+     * @param rollouts the number of rollouts played
+     */
+    public record Result(AIMove move, double[] spreads, int rollouts) {
+    }
+
+    private MoveSimulator() {
+    }
+
+    /**
+     * Simulates the candidate moves and picks the one with the best average spread.
+     *
+     * @param lexicon    the lexicon containing the list of eligible words
+     * @param board      the board the moves are played on, which is not changed
+     * @param hand       the tiles in the AI's hand
+     * @param bagSize    the number of tiles left in the bag
+     * @param candidates the moves to choose between, best first; ties keep the earlier move
+     * @param rollouts   the number of rollouts to play
+     * @param seed       the seed of the random racks
+     * @param pool       the pool to play rollouts on, or null to play them on the calling thread
+     * @return the chosen move and the average spread of each candidate
+     */
+    public static Result simulate(Lexicon lexicon, Board board, List<Tile> hand, int bagSize, List<AIMove> candidates,
+                                  int rollouts, long seed, ForkJoinPool pool) {
+        if (candidates.isEmpty() || rollouts < 1) return new Result(candidates.isEmpty() ? null : candidates.getFirst(), new double[candidates.size()], 0);
+
+        int[] rack = counts(hand);
+        int[] unseen = unseen(board, rack);
+        int total = 0;
+        for (int type = 0; type < TYPES; type++) total += unseen[type];
+        int[] tiles = new int[total];
+        for (int type = 0, i = 0; type < TYPES; type++) {
+            for (int n = 0; n < unseen[type]; n++) tiles[i++] = type;
+        }
+
+        AIPlayer.Cancellation cancellation = new AIPlayer.Cancellation();
+        Setup setup = new Setup(lexicon, board, rack, tiles, Math.min(bagSize, total), candidates, seed, cancellation);
+        Rollouts task = new Rollouts(setup, 0, rollouts);
+        long[] sums = pool == null ? task.compute() : cancellation.invoke(pool, task);
+
+        double[] spreads = new double[candidates.size()];
+        int best = 0;
+        for (int i = 0; i < spreads.length; i++) {
+            spreads[i] = sums[i] / (double) rollouts;
+            if (sums[i] > sums[best]) best = i;
+        }
+        return new Result(candidates.get(best), spreads, rollouts);
+    }
+
+    /**
+     * @param hand the tiles in a hand
+     * @return how many of each tile the hand holds, indexed by letter with the blank last
+     */
+    public static int[] counts(List<Tile> hand) {
+        int[] counts = new int[TYPES];
+        for (Tile tile : hand) {
+            counts[tile.getScore() == 0 || tile.getLetter() == ' ' ? BLANK : tile.getLetter() - 'A']++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the tiles a player cannot see, which are in the bag or on the other racks.
+     *
+     * @param board the board
+     * @param rack  how many of each tile the player holds, indexed by letter with the blank last
+     * @return how many of each tile the player cannot see, indexed the same way
+     */
+    public static int[] unseen(Board board, int[] rack) {
+        int[] unseen = new int[TYPES];
+        for (ScrabbleLetters letter : ScrabbleLetters.values()) {
+            unseen[letter == ScrabbleLetters.BLANK ? BLANK : letter.getLetter() - 'A'] += letter.getCount();
+        }
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                char letter = board.getLetter(row, col);
+                if (letter != 0) unseen[board.getScore(row, col) == 0 ? BLANK : letter - 'A']--;
+            }
+        }
+        for (int type = 0; type < TYPES; type++) unseen[type] = Math.max(unseen[type] - rack[type], 0);
+        return unseen;
+    }
+
+    /**
+     * Everything the rollouts share, which none of them change.
+     */
+    private record Setup(Lexicon lexicon, Board board, int[] rack, int[] unseen, int bagSize, List<AIMove> candidates, long seed,
+                         AIPlayer.Cancellation cancellation) {
+    }
+
+    /**
+     * Splits a range of rollouts in half until each task plays a few, then adds up their spreads.
+     */
+    private static class Rollouts extends RecursiveTask<long[]> {
+        //Tasks are never serialized, although ForkJoinTask is Serializable
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final transient Setup setup;
+        private final int from;
+        private final int to;
+
+        Rollouts(Setup setup, int from, int to) {
+            this.setup = setup;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= GRAIN || getPool() == null) return new Worker(setup).play(from, to);
+
+            int middle = (from + to) / 2;
+            Rollouts later = new Rollouts(setup, middle, to);
+            later.fork();
+            long[] sums = new Rollouts(setup, from, middle).compute();
+            long[] others = later.join();
+            for (int i = 0; i < sums.length; i++) sums[i] += others[i];
+            return sums;
+        }
+    }
+
+    /**
+     * Plays rollouts on a private copy of the board, reusing all of its state between them.
+     */
+    private static class Worker implements MoveGenerator.Visitor {
+        private final Setup setup;
+        private final Board board;
+        private final MoveGenerator generator;
+        private final MoveScorer scorer;
+
+        //The racks of the AI and the opponent, and the shuffled unseen tiles
+        private final int[][] racks = new int[2][TYPES];
+        private final int[] tiles;
+        private int drawn;
+
+        //Tiles to place on the board, and the squares they were placed on so they can be removed
+        private final Tile[] pool;
+        private final int[] placed;
+        private int placedCount;
+
+        //The best move found by the current search
+        private final int[] counts = new int[TYPES];
+        private final char[] bestWord = new char[Board.SIZE];
+        private int bestLength, bestRow, bestCol, bestScore;
+        private boolean bestHorizontal;
+        private int[] searching;
+
+        Worker(Setup setup) {
+            this.setup = setup;
+            this.board = new Board(setup.board());
+            this.generator = new MoveGenerator(setup.lexicon(), board, false);
+            this.scorer = new MoveScorer(setup.lexicon());
+            this.tiles = new int[setup.unseen().length];
+            this.pool = new Tile[(PLIES + 1) * Player.HAND_SIZE];
+            for (int i = 0; i < pool.length; i++) pool[i] = new Tile(' ', 0);
+            this.placed = new int[pool.length];
+        }
+
+        /**
+         * Plays a range of rollouts.
+         *
+         * @return the total spread of each candidate over the rollouts
+         */
+        long[] play(int from, int to) {
+            List<AIMove> candidates = setup.candidates();
+            long[] sums = new long[candidates.size()];
+            for (int rollout = from; rollout < to; rollout++) {
+                setup.cancellation().check();
+                shuffle(setup.seed() + rollout * 0x9E3779B97F4A7C15L);
+                for (int c = 0; c < candidates.size(); c++) {
+                    sums[c] += playOut(candidates.get(c));
+                }
+            }
+            return sums;
+        }
+
+        /**
+         * Shuffles the unseen tiles for a rollout with SplitMix64. The opponent's rack is dealt
+         * from the end of the list, and the bag is drawn from the start.
+         */
+        private void shuffle(long state) {
+            System.arraycopy(setup.unseen(), 0, tiles, 0, tiles.length);
+            for (int i = tiles.length - 1; i > 0; i--) {
+                long z = (state += 0x9E3779B97F4A7C15L);
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                z ^= z >>> 31;
+                int j = (int) (((z >>> 32) * (i + 1)) >>> 32);
+                int swap = tiles[i];
+                tiles[i] = tiles[j];
+                tiles[j] = swap;
+            }
+        }
+
+        /**
+         * Plays a candidate and the replies after it, then takes every tile back off the board.
+         *
+         * @return the spread for the AI
+         */
+        private int playOut(AIMove candidate) {
+            System.arraycopy(setup.rack(), 0, racks[0], 0, TYPES);
+            Arrays.fill(racks[1], 0);
+            int opponentTiles = Math.min(Player.HAND_SIZE, tiles.length - setup.bagSize());
+            for (int i = tiles.length - opponentTiles; i < tiles.length; i++) racks[1][tiles[i]]++;
+            drawn = 0;
+            placedCount = 0;
+
+            String word = candidate.word();
+            for (int i = 0; i < word.length(); i++) bestWord[i] = word.charAt(i);
+            int spread = place(racks[0], bestWord, word.length(), candidate.startRow(), candidate.startCol(), candidate.isHorizontal());
+
+            for (int ply = 1; ply <= PLIES; ply++) {
+                int[] rack = racks[ply % 2];
+                if (!search(rack)) continue;
+                int score = place(rack, bestWord, bestLength, bestRow, bestCol, bestHorizontal);
+                spread += ply % 2 == 1 ? -score : score;
+            }
+
+            while (placedCount > 0) {
+                int square = placed[--placedCount];
+                board.removeTile(square / Board.SIZE, square % Board.SIZE);
+            }
+            return spread;
+        }
+
+        /**
+         * Finds the highest scoring move a rack can make.
+         *
+         * @return whether there is a move
+         */
+        private boolean search(int[] rack) {
+            searching = rack;
+            bestScore = -1;
+            generator.generate(rack, this);
+            return bestScore >= 0;
+        }
+
+        @Override
+        public void visit(char[] word, int length, int row, int col, boolean isHorizontal) {
+            System.arraycopy(searching, 0, counts, 0, TYPES);
+            scorer.reset(board);
+            for (int i = 0; i < length; i++) {
+                int r = isHorizontal ? row : row + i;
+                int c = isHorizontal ? col + i : col;
+                if (board.getLetter(r, c) == 0) scorer.place(r, c, word[i], take(counts, word[i]));
+            }
+            int score = scorer.score(false);
+            if (score > bestScore) {
+                bestScore = score;
+                System.arraycopy(word, 0, bestWord, 0, length);
+                bestLength = length;
+                bestRow = row;
+                bestCol = col;
+                bestHorizontal = isHorizontal;
+            }
+        }
+
+        /**
+         * Takes the tile for a letter from a rack, using a blank if there is no tile with the letter.
+         *
+         * @return the score of the tile taken
+         */
+        private static int take(int[] rack, char letter) {
+            int type = letter - 'A';
+            if (rack[type] > 0) {
+                rack[type]--;
+                return ScrabbleLetters.get(letter).getScore();
+            }
+            rack[BLANK]--;
+            return 0;
+        }
+
+        /**
+         * Places a move on the board from a rack, then refills the rack from the bag.
+         *
+         * @return the score of the move
+         */
+        private int place(int[] rack, char[] word, int length, int row, int col, boolean isHorizontal) {
+            scorer.reset(board);
+            int used = 0;
+            for (int i = 0; i < length; i++) {
+                int r = isHorizontal ? row : row + i;
+                int c = isHorizontal ? col + i : col;
+                if (board.getLetter(r, c) != 0) continue;
+                int score = take(rack, word[i]);
+                scorer.place(r, c, word[i], score);
+                Tile tile = pool[placedCount];
+                tile.setLetter(word[i]);
+                tile.setScore(score);
+                placed[placedCount++] = r * Board.SIZE + c;
+                used++;
+            }
+            int score = Math.max(scorer.score(false), 0);
+            for (int i = placedCount - used; i < placedCount; i++) {
+                board.placeTile(placed[i] / Board.SIZE, placed[i] % Board.SIZE, pool[i]);
+            }
+
+            for (int n = 0; n < used && drawn < setup.bagSize(); n++) rack[tiles[drawn++]]++;
+            return score;
+        }
+    }
+}
@@ -1,8 +1,12 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.RandomAccess;
 
 public class Player implements Serializable {
     public static final int HAND_SIZE = 7;
@@ -21,7 +25,7 @@ public class Player implements Serializable {
      */
     public Player(String name) {
         this.name = name;
-        this.hand = new ArrayList<>();
+        this.hand = new Hand();
         this.score = 0;
         this.turnsTaken = 0;
         this.recordedMoves = new ArrayList<>();
@@ -46,6 +50,17 @@ public class Player implements Serializable {
         return hand;
     }
 
+    /**
+     * The hash is the XOR of a Zobrist key for how many of each tile the hand holds, so it does not
+     * depend on the order of the tiles and is kept up to date as tiles are added and removed.
+     * Blanks count as blanks whatever letter they have been given.
+     *
+     * @return the 64-bit Zobrist hash of the tiles in the player's hand
+     */
+    public long getRackHash() {
+        return ((Hand) hand).hash;
+    }
+
     /**
      * Returns the player's current score.
      *
@@ -72,6 +87,13 @@ public class Player implements Serializable {
         this.turnsTaken++;
     }
 
+    /**
+     * Decrements the turn counter for this player. Used when a turn is undone.
+     */
+    public void decrementTurns() {
+        this.turnsTaken--;
+    }
+
     /**
      * Used for endgame statistics.
      * @return the number of turns taken by the player
@@ -103,6 +125,27 @@ public class Player implements Serializable {
         hand.add(tile);
     }
 
+    /**
+     * Inserts a Tile at the given position of the player's hand.
+     * Used to put a tile back exactly where it was when a change is undone.
+     *
+     * @param index the position to insert the tile at
+     * @param tile  the tile to add
+     */
+    public void addTile(int index, Tile tile) {
+        hand.add(index, tile);
+    }
+
+    /**
+     * Removes and returns the Tile at the given position of the player's hand.
+     *
+     * @param index the position of the tile to remove
+     * @return the removed tile
+     */
+    public Tile removeTile(int index) {
+        return hand.remove(index);
+    }
+
     /**
      * Removes and returns the first Tile in the player's hand.
      * This method assumes the hand is not empty when called.
@@ -161,6 +204,12 @@ public class Player implements Serializable {
         return sb.toString();
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        //Games saved before hands kept a hash hold a plain list
+        if (!(hand instanceof Hand)) hand = new Hand(hand);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof Player)) return false;
@@ -179,4 +228,78 @@ public class Player implements Serializable {
         return this.name.equals(other.getName()) && this.score == other.getScore();
     }
 
+    /**
+     * A list of tiles that keeps a count of each tile and the Zobrist hash of those counts
+     * as tiles are added, removed and replaced.
+     */
+    private static class Hand extends AbstractList<Tile> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final List<Tile> tiles;
+        private transient int[] counts;
+        private transient long hash;
+
+        Hand() {
+            tiles = new ArrayList<>();
+            counts = new int[LeaveTable.TYPES];
+        }
+
+        Hand(List<Tile> tiles) {
+            this();
+            addAll(tiles);
+        }
+
+        /**
+         * @return the index of a tile's count, by letter with the blank last
+         */
+        private static int type(Tile tile) {
+            char letter = tile.getLetter();
+            return tile.getScore() == 0 || letter < 'A' || letter > 'Z' ? LeaveTable.BLANK : letter - 'A';
+        }
+
+        private void count(Tile tile, int change) {
+            int type = type(tile);
+            hash ^= Zobrist.rack(0, type, counts[type]);
+            counts[type] += change;
+            hash ^= Zobrist.rack(0, type, counts[type]);
+        }
+
+        @Override
+        public Tile get(int index) {
+            return tiles.get(index);
+        }
+
+        @Override
+        public int size() {
+            return tiles.size();
+        }
+
+        @Override
+        public void add(int index, Tile tile) {
+            tiles.add(index, tile);
+            count(tile, 1);
+            modCount++;
+        }
+
+        @Override
+        public Tile remove(int index) {
+            Tile tile = tiles.remove(index);
+            count(tile, -1);
+            modCount++;
+            return tile;
+        }
+
+        @Override
+        public Tile set(int index, Tile tile) {
+            Tile old = tiles.set(index, tile);
+            count(old, -1);
+            count(tile, 1);
+            return old;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            counts = new int[LeaveTable.TYPES];
+            for (Tile tile : tiles) count(tile, 1);
+        }
+    }
 }
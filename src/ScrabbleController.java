@@ -11,6 +11,8 @@ import java.util.*;
  * 
  */
 public class ScrabbleController implements ActionListener{
+    //Undo, redo, save and load, the commands allowed while an AI player is thinking
+    private static final Set<String> AI_THINKING_COMMANDS = Set.of("U", "R", "S", "L");
     private final App app;
     private Game game;
 
@@ -42,16 +44,12 @@ public class ScrabbleController implements ActionListener{
         // Split the action command string into its parts
         String[] command = event.getActionCommand().split(" ");
 
-        //Store game state in undo stack if not undoing or redoing
+        //While an AI player is thinking, only undo, redo, save and load are allowed
+        if (game.isAIThinking() && !AI_THINKING_COMMANDS.contains(command[0])) return;
+
+        //Start a new undoable action if not undoing or redoing
         if (!(command[0].equals("U") || command[0].equals("R"))) {
-            try {
-                if (game.getUndoStack().isEmpty()) app.toggleUndo(true);
-                game.storeState(game.getUndoStack());
-            }
-            catch (Exception e) {
-                e.printStackTrace();
-                System.out.println("Failed to store in undo stack.");
-            }
+            game.markUndoPoint();
         }
         
         switch (command[0]) {
@@ -107,7 +105,7 @@ public class ScrabbleController implements ActionListener{
                 else {
                     game.removeViewsPlacedTiles();
                 }
-                app.enableExchange();
+                if (!game.isAIThinking()) app.enableExchange();
                 game.clearRedoStack();
                 break; 
                 
@@ -148,14 +146,17 @@ public class ScrabbleController implements ActionListener{
                     java.io.File loadFile = loadChooser.getSelectedFile();
                     try {
                         Game loadedGame = Game.loadGame(loadFile);
+                        game.cancelAITurn();
                         this.game = loadedGame;
                         loadedGame.addView(app);
+                        loadedGame.setAIExecutors(app.aiExecutor, javax.swing.SwingUtilities::invokeLater);
                         loadedGame.clearUndoStack();
                         loadedGame.clearRedoStack();
                         app.refreshBoard(loadedGame);
                         app.toggleUndo(false);
                         app.toggleRedo(false);
                         app.updateTopText("Game Loaded!");
+                        loadedGame.playAITurns();
                     } catch (Exception e) {
                         e.printStackTrace();
                         app.updateTopText("Error loading game!");
@@ -177,17 +178,9 @@ public class ScrabbleController implements ActionListener{
              *
              */
             case "U":
-                try {
-                    Game loadedGame = game.undo();
-                    this.game = loadedGame;
-                    loadedGame.addView(app);
-                    app.refreshBoard(loadedGame);
-                    app.updateTopText("Undo'd Game");
-                }
-                catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.println("Failed to store in undo stack.");
-                }
+                game.undo();
+                app.refreshBoard(game);
+                app.updateTopText("Undo'd Game");
                 break;
             
             /*
@@ -195,21 +188,16 @@ public class ScrabbleController implements ActionListener{
              *
              */
             case "R":
-                try {
-                    Game loadedGame = game.redo();
-                    this.game = loadedGame;
-                    loadedGame.addView(app);
-                    app.refreshBoard(loadedGame);
-                    app.updateTopText("Redo'd Game");
-                }
-                catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.println("Failed to store in undo stack.");
-                }
+                game.redo();
+                app.refreshBoard(game);
+                app.updateTopText("Redo'd Game");
                 break;
 
             default:
                 break;
         }
+
+        //Undo becomes available once an action has changed the game
+        if (game.canUndo()) app.toggleUndo(true);
     }
 }
@@ -85,6 +85,15 @@ public interface ScrabbleView {
      */
     void endGame();
 
+    /**
+     * Shows the end of game statistics.
+     *
+     * Called when the game ends, just before endGame().
+     *
+     * @param results the winner and each player's final score, turns and words
+     */
+    void showResults(String results);
+
     /**
      * Toggles the state of the undo button.
      * 
@@ -98,4 +107,13 @@ public interface ScrabbleView {
      * @param toggle  whether the redo button is enabled or disabled.
      */
     void toggleRedo(boolean toggle);
-}
\ No newline at end of file
+
+    /**
+     * Shows whether an AI player is thinking about its move.
+     *
+     * While an AI player is thinking, the human players should not be able to play.
+     *
+     * @param thinking  whether an AI player is thinking.
+     */
+    void toggleThinking(boolean thinking);
+}
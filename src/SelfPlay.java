@@ -0,0 +1,188 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The SelfPlay class plays complete games between AI players without any views,
+ * to measure how fast the game engine runs.
+ *
+ * Each game gets its own Game with a tile bag seeded with its own seed, so a run
+ * with the same seed always plays the same games, whatever the number of threads.
+ * Games are spread across a fixed pool of threads, and every AI turn is timed from the
+ * start of its search until its move has been played.
+ *
+ * Usage: java SelfPlay [games] [threads] [seed] [players]
+ */
+public class SelfPlay {
+    //Games where every player keeps exchanging never end, so they are stopped here
+    public static final int MAX_TURNS = 1000;
+
+    /**
+     * The outcome of one game.
+     *
+     * @param seed      the seed of the tile bag
+     * @param scores    each player's final score
+     * @param finished  whether the game ended before MAX_TURNS
+     * @param moveNanos how long each turn took, in the order they were played
+     */
+    public record GameResult(long seed, int[] scores, boolean finished, long[] moveNanos) {
+        /**
+         * @return the number of turns played
+         */
+        public int turns() {
+            return moveNanos.length;
+        }
+    }
+
+    /**
+     * The throughput and latency of a run of games.
+     *
+     * @param games        the number of games played
+     * @param moves        the number of turns played across every game
+     * @param unfinished   the number of games stopped at MAX_TURNS
+     * @param threads      the number of threads the games were played on
+     * @param elapsedNanos how long the whole run took
+     * @param p50Nanos     the median turn time
+     * @param p90Nanos     the 90th percentile turn time
+     * @param p99Nanos     the 99th percentile turn time
+     * @param maxNanos     the longest turn time
+     * @param scoreTotal   the sum of every final score, which is the same for every run with the same seed
+     */
+    public record Report(int games, long moves, int unfinished, int threads, long elapsedNanos,
+                         long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos, long scoreTotal) {
+        public double gamesPerSecond() {
+            return games * 1e9 / elapsedNanos;
+        }
+
+        public double movesPerSecond() {
+            return moves * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%d unfinished), %d moves on %d threads in %.2f s%n"
+                            + "%.1f games/s, %.1f moves/s%n"
+                            + "move latency: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n"
+                            + "score total: %d",
+                    games, unfinished, moves, threads, elapsedNanos / 1e9, gamesPerSecond(), movesPerSecond(),
+                    p50Nanos / 1e6, p90Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, scoreTotal);
+        }
+    }
+
+    /**
+     * Plays one game between AI players on the calling thread.
+     *
+     * The AI searches and the moves they find are queued rather than run on other threads,
+     * and the queues are run here one turn at a time so each turn can be timed.
+     *
+     * @param seed       the seed of the tile bag
+     * @param numPlayers the number of AI players (1-4)
+     * @return the outcome of the game
+     */
+    public static GameResult playGame(long seed, int numPlayers) {
+        Game game = new Game(seed);
+        for (int i = 1; i <= numPlayers; i++) {
+            game.addAIPlayer("AI " + i);
+        }
+        for (Player player : game.getPlayers()) {
+            player.addTile(game.getTileBag());
+        }
+
+        Queue<Runnable> searches = new ArrayDeque<>();
+        Queue<Runnable> moves = new ArrayDeque<>();
+        game.setAIExecutors(searches::add, moves::add);
+        game.playAITurns();
+
+        long[] moveNanos = new long[MAX_TURNS];
+        int turns = 0;
+        Runnable search;
+        while (turns < MAX_TURNS && (search = searches.poll()) != null) {
+            long start = System.nanoTime();
+            search.run();
+            //Playing the move queues the next player's search
+            Runnable move;
+            while ((move = moves.poll()) != null) move.run();
+            moveNanos[turns++] = System.nanoTime() - start;
+        }
+        game.cancelAITurn();
+
+        int[] scores = new int[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            scores[i] = game.getPlayers().get(i).getScore();
+        }
+        return new GameResult(seed, scores, game.isGameOver(), Arrays.copyOf(moveNanos, turns));
+    }
+
+    /**
+     * Plays games between AI players in parallel and reports how fast they were played.
+     * Game i draws its tiles from seed + i.
+     *
+     * @param games      the number of games to play
+     * @param numPlayers the number of AI players in each game (1-4)
+     * @param seed       the seed of the first game
+     * @param threads    the number of threads to play games on
+     * @return the throughput and latency of the run
+     * @throws InterruptedException if interrupted while waiting for the games
+     * @throws ExecutionException if a game fails
+     */
+    public static Report run(int games, int numPlayers, long seed, int threads) throws InterruptedException, ExecutionException {
+        if (games < 1 || threads < 1 || numPlayers < 1 || numPlayers > 4) {
+            throw new IllegalArgumentException("Games and threads must be positive, with 1-4 players per game.");
+        }
+        //Load the shared word list before the clock starts
+        Dictionary.shared(Game.WORDLIST).getLexicon();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<GameResult> results = new ArrayList<>(games);
+        long start = System.nanoTime();
+        try {
+            List<Future<GameResult>> futures = new ArrayList<>(games);
+            for (int i = 0; i < games; i++) {
+                long gameSeed = seed + i;
+                futures.add(pool.submit(() -> playGame(gameSeed, numPlayers)));
+            }
+            for (Future<GameResult> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        //Gather every turn time to find the percentiles
+        int moves = 0;
+        for (GameResult result : results) moves += result.turns();
+        long[] latencies = new long[moves];
+        int unfinished = 0, index = 0;
+        long scoreTotal = 0;
+        for (GameResult result : results) {
+            System.arraycopy(result.moveNanos(), 0, latencies, index, result.turns());
+            index += result.turns();
+            if (!result.finished()) unfinished++;
+            for (int score : result.scores()) scoreTotal += score;
+        }
+        Arrays.sort(latencies);
+
+        return new Report(games, moves, unfinished, threads, elapsed, percentile(latencies, 0.50),
+                percentile(latencies, 0.90), percentile(latencies, 0.99), percentile(latencies, 1.0), scoreTotal);
+    }
+
+    /**
+     * @param sorted   the values, in ascending order
+     * @param fraction the fraction of values that are at or below the result
+     * @return the smallest value that at least the given fraction of values are at or below, or 0 if there are none
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        int numPlayers = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        System.out.println(run(games, numPlayers, seed, threads));
+    }
+}
@@ -6,9 +6,14 @@ import java.util.*;
 /**
  * The TileBag class represents the bag of tiles used in a Scrabble game.
  *
- * It stores all available tiles, handles random shuffling, and allows tiles
- * to be drawn one at a time. The class also supports re-adding tiles, which
- * can be used for returning exchanged tiles to the bag.
+ * It stores all available tiles and draws them one at a time at random. The class
+ * also supports re-adding tiles, which can be used for returning exchanged tiles to the bag.
+ *
+ * Tiles are drawn by picking a random position and moving the last tile into its place,
+ * so drawing takes constant time and the bag never needs to be shuffled, not even
+ * when tiles are returned by an exchange. The random numbers come from a small seeded
+ * generator whose state is saved with the bag, so a game replays the same draws from
+ * the same seed, including after it is saved and loaded.
  *
  *
  * This class encapsulates tile management logic so that the Game
@@ -16,22 +21,47 @@ import java.util.*;
  */
 public class TileBag implements Serializable {
 
-    private final List<Tile> tiles;
-    private transient Random rand;
+    private List<Tile> tiles;
+    private long seed;
+    private long state;
     private static final long serialVersionUID = 1L;
 
     /**
      * Constructs a new TileBag and initializes it with
      * the standard Scrabble tile distribution.
      *
-     * Once initialized, the bag is automatically shuffled to randomize tile order.
+     * The bag is seeded randomly, so every game draws different tiles.
      *
      */
     public TileBag() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Constructs a new TileBag whose draws come from the given seed,
+     * so that the tiles are drawn in the same order every time the seed is used.
+     *
+     * @param seed the seed for drawing tiles
+     */
+    public TileBag(long seed) {
         tiles = new ArrayList<>();
-        rand = new Random();
+        this.seed = seed;
+        this.state = seed;
         initializeTiles();
-        shuffle();
+    }
+
+    /**
+     * Constructs a TileBag holding the given tiles, with its generator where it was left.
+     * Used to restore a saved bag.
+     *
+     * @param seed  the seed the bag was created with
+     * @param state the state of the generator
+     * @param tiles the tiles in the bag, in order
+     */
+    TileBag(long seed, long state, List<Tile> tiles) {
+        this.tiles = new ArrayList<>(tiles);
+        this.seed = seed;
+        this.state = state;
     }
 
 
@@ -65,6 +95,78 @@ public class TileBag implements Serializable {
         tiles.add(tile);
     }
 
+    /**
+     * Puts a tile at the given position of the bag, moving the tile that was there to the end.
+     * This is the reverse of removeTile(int), so it puts a tile back exactly where it was
+     * when a change is undone.
+     *
+     * @param index the position to put the tile at, up to the size of the bag
+     * @param tile  the tile to add
+     */
+    public void addTile(int index, Tile tile) {
+        if (index == tiles.size()) tiles.add(tile);
+        else tiles.add(tiles.set(index, tile));
+    }
+
+    /**
+     * Removes and returns the tile at the given position of the bag,
+     * moving the last tile into its place.
+     *
+     * @param index the position of the tile to remove
+     * @return the removed tile
+     */
+    public Tile removeTile(int index) {
+        Tile last = tiles.removeLast();
+        if (index == tiles.size()) return last;
+        return tiles.set(index, last);
+    }
+
+    /**
+     * Picks the position of the next tile to draw, advancing the generator.
+     *
+     * @return a random position in the bag
+     * @throws IllegalStateException if the bag is empty
+     */
+    public int nextIndex() {
+        if (tiles.isEmpty()) throw new IllegalStateException("The tile bag is empty.");
+        //SplitMix64, scaled to the size of the bag
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (((z >>> 32) * tiles.size()) >>> 32);
+    }
+
+    /**
+     * @return the tiles in the bag, in the order draws index them
+     */
+    public List<Tile> getTiles() {
+        return Collections.unmodifiableList(tiles);
+    }
+
+    /**
+     * @return the seed the bag was created with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the state of the generator, which decides every draw from now on
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Used to rewind the generator when a draw is undone.
+     *
+     * @param state a state previously returned by getState()
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
     /**
      * Initializes the tile bag with the standard Scrabble letter distribution.
      *
@@ -80,18 +182,7 @@ public class TileBag implements Serializable {
     }
 
     /**
-     * Randomly shuffles all tiles in the bag.
-     * 
-     * This ensures that the order of drawn tiles is unpredictable, simulating
-     * the randomness of drawing tiles in a real Scrabble game.
-     * 
-     */
-    public void shuffle() {
-        Collections.shuffle(tiles, rand);
-    }
-
-    /**
-     * Draws a single tile from the bag.
+     * Draws a single random tile from the bag.
      * 
      * If the bag is empty, null is returned.
      * 
@@ -100,7 +191,7 @@ public class TileBag implements Serializable {
      */
     public Tile drawTile() {
         if (tiles.isEmpty()) return null;
-        return tiles.removeFirst();
+        return removeTile(nextIndex());
     }
 
     /**
@@ -138,9 +229,13 @@ public class TileBag implements Serializable {
         return sb.toString();
     }
 
+    @SuppressWarnings("unchecked")
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        in.defaultReadObject();
-        this.rand = new Random();
+        ObjectInputStream.GetField fields = in.readFields();
+        this.tiles = (List<Tile>) fields.get("tiles", null);
+        //Bags saved before they were seeded get a new random seed
+        this.seed = fields.defaulted("seed") ? new Random().nextLong() : fields.get("seed", 0L);
+        this.state = fields.defaulted("state") ? this.seed : fields.get("state", 0L);
     }
 
     @Override
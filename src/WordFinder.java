@@ -0,0 +1,483 @@
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The WordFinder class answers word queries over a Lexicon, for hints and for players
+ * looking for words: the words a rack can make, the anagrams of a set of letters, the words
+ * matching a pattern, and the words containing a set of letters. A '?' in the letters of
+ * a query stands for a blank.
+ *
+ * Most queries walk the lexicon's word graph one letter at a time and stop following a
+ * branch as soon as no word along it can match, so they visit only a small part of the
+ * graph rather than every word. The words containing a set of letters are found the same
+ * way, using the letters each node can still reach, which are worked out the first time a
+ * node is visited. Exact anagrams are looked up in an index keyed by the sorted letters of
+ * each word, built from the lexicon the first time it is needed.
+ *
+ * Results are streamed lazily, so taking only the first few words of a query does only the
+ * work needed to find them. Words come in alphabetical order, apart from anagrams with
+ * blanks, which come grouped by the letters the blanks stand for. A finder is thread-safe,
+ * and each stream it returns is read by one thread.
+ */
+public class WordFinder {
+    public static final char BLANK = '?';
+    public static final char ANY = '*';
+
+    private final Lexicon lexicon;
+    //The letters reachable below each node, indexed by the node, or 0 until it is visited
+    private final int[] reachable;
+    private volatile AnagramIndex anagramIndex;
+
+    /**
+     * @param lexicon the words to search
+     */
+    public WordFinder(Lexicon lexicon) {
+        this.lexicon = lexicon;
+        this.reachable = new int[lexicon.edgeCount() + 1];
+    }
+
+    /**
+     * @return the lexicon the finder searches
+     */
+    public Lexicon getLexicon() {
+        return lexicon;
+    }
+
+    /**
+     * Finds every word that can be made from some or all of the letters of a rack.
+     *
+     * @param rack the letters, with '?' for a blank
+     * @return the words, in alphabetical order
+     * @throws IllegalArgumentException if the rack holds anything other than letters and blanks
+     */
+    public Stream<String> fromRack(String rack) {
+        return stream(new RackSearch(rack));
+    }
+
+    /**
+     * Finds every word that uses all of the given letters.
+     *
+     * @param letters the letters, with '?' for a blank
+     * @return the words, in alphabetical order for letters without blanks
+     * @throws IllegalArgumentException if the letters hold anything other than letters and blanks
+     */
+    public Stream<String> anagrams(String letters) {
+        int[] counts = new int[Lexicon.ALPHABET];
+        int blanks = count(letters, counts);
+        AnagramIndex index = getAnagramIndex();
+        if (blanks == 0) return index.get(key(counts)).stream();
+
+        //Each way of filling the blanks is a different key, taken in ascending order so none repeats
+        return letterChoices(blanks, 0).flatMap(choice -> {
+            int[] filled = counts.clone();
+            for (int letter : choice) filled[letter]++;
+            return index.get(key(filled)).stream();
+        });
+    }
+
+    /**
+     * Finds every word matching a pattern, where '?' matches any one letter and '*' matches
+     * any run of letters, including none. For example, A?E* matches ACE, APEX and AREAS.
+     *
+     * @param pattern the pattern, of at most 63 letters and wildcards
+     * @return the words, in alphabetical order
+     * @throws IllegalArgumentException if the pattern holds anything else, or is too long
+     */
+    public Stream<String> matching(String pattern) {
+        return stream(new PatternSearch(pattern));
+    }
+
+    /**
+     * Finds every word that contains all of the given letters, in any order and anywhere in it.
+     * A letter given twice must appear at least twice.
+     *
+     * @param letters the letters
+     * @return the words, in alphabetical order
+     * @throws IllegalArgumentException if the letters hold anything other than letters
+     */
+    public Stream<String> containing(String letters) {
+        return stream(new ContainsSearch(letters));
+    }
+
+    /**
+     * Counts each letter of a query.
+     *
+     * @param letters the letters, with '?' for a blank
+     * @param counts  the array to count each letter in
+     * @return the number of blanks
+     */
+    private static int count(String letters, int[] counts) {
+        int blanks = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            char c = Character.toUpperCase(letters.charAt(i));
+            if (c == BLANK) blanks++;
+            else if (c >= 'A' && c <= 'Z') counts[c - 'A']++;
+            else throw new IllegalArgumentException("Not a letter or blank: " + letters.charAt(i));
+        }
+        return blanks;
+    }
+
+    /**
+     * @return every choice of count letters from first onward, each in ascending order
+     */
+    private static Stream<int[]> letterChoices(int count, int first) {
+        if (count == 0) return Stream.of(new int[0]);
+        return IntStream.range(first, Lexicon.ALPHABET).boxed().flatMap(letter -> letterChoices(count - 1, letter).map(rest -> {
+            int[] choice = new int[count];
+            choice[0] = letter;
+            System.arraycopy(rest, 0, choice, 1, rest.length);
+            return choice;
+        }));
+    }
+
+    /**
+     * @return the anagram key of a word, which is its letters in alphabetical order
+     */
+    private static String key(String word) {
+        char[] letters = word.toCharArray();
+        Arrays.sort(letters);
+        return new String(letters);
+    }
+
+    private static String key(int[] counts) {
+        StringBuilder key = new StringBuilder();
+        for (int letter = 0; letter < Lexicon.ALPHABET; letter++) {
+            for (int i = 0; i < counts[letter]; i++) key.append((char) ('A' + letter));
+        }
+        return key.toString();
+    }
+
+    private AnagramIndex getAnagramIndex() {
+        AnagramIndex index = anagramIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = anagramIndex;
+                if (index == null) anagramIndex = index = new AnagramIndex(lexicon);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The words of the lexicon sorted by anagram key, so each set of anagrams is one run,
+     * with an open-addressed table from each key to the start of its run. No keys are kept,
+     * since a run's key is worked out from its first word when the table is probed.
+     */
+    private static final class AnagramIndex {
+        private final String[] words;
+        //The start of each run plus one, or 0 for an empty slot
+        private final int[] starts;
+
+        private record Keyed(String key, String word) {
+        }
+
+        AnagramIndex(Lexicon lexicon) {
+            List<String> list = new ArrayList<>(lexicon.size());
+            lexicon.collectWords(list);
+            List<Keyed> keyed = new ArrayList<>(list.size());
+            for (String word : list) keyed.add(new Keyed(key(word), word));
+            //The sort is stable, so each run stays in alphabetical order
+            keyed.sort(Comparator.comparing(Keyed::key));
+
+            words = new String[keyed.size()];
+            starts = new int[Integer.highestOneBit(Math.max(keyed.size(), 1)) * 4];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = keyed.get(i).word();
+                if (i > 0 && keyed.get(i).key().equals(keyed.get(i - 1).key())) continue;
+                int slot = slot(keyed.get(i).key());
+                while (starts[slot] != 0) slot = (slot + 1) & (starts.length - 1);
+                starts[slot] = i + 1;
+            }
+        }
+
+        private int slot(String key) {
+            int hash = key.hashCode();
+            return (hash ^ (hash >>> 16)) & (starts.length - 1);
+        }
+
+        /**
+         * @return the words with the given key, in alphabetical order
+         */
+        List<String> get(String key) {
+            for (int slot = slot(key); starts[slot] != 0; slot = (slot + 1) & (starts.length - 1)) {
+                int start = starts[slot] - 1;
+                if (words[start].length() != key.length() || !key(words[start]).equals(key)) continue;
+                int end = start + 1;
+                while (end < words.length && words[end].length() == key.length() && key(words[end]).equals(key)) end++;
+                return Arrays.asList(words).subList(start, end);
+            }
+            return List.of();
+        }
+    }
+
+    /**
+     * @return the letters on the edges below a node, as a bitmask with bit n for letter n
+     */
+    private int reachable(int node) {
+        if (node == 0) return 0;
+        //Every node has an edge, so 0 means not yet worked out; racing threads store the same value
+        int mask = reachable[node];
+        if (mask != 0) return mask;
+        for (int e = lexicon.firstEdge(node); e != -1; e = lexicon.nextEdge(e)) {
+            mask |= 1 << lexicon.letter(e) | reachable(lexicon.child(e));
+        }
+        reachable[node] = mask;
+        return mask;
+    }
+
+    private static Stream<String> stream(Search search) {
+        return StreamSupport.stream(search, false);
+    }
+
+    /**
+     * A depth-first walk of the word graph, kept on an explicit stack so it can stop after
+     * each word it finds and carry on when the next one is asked for. Subclasses decide which
+     * letters each position may take, and which words to return.
+     */
+    private abstract class Search extends Spliterators.AbstractSpliterator<String> {
+        private int[] edges = new int[Board.SIZE + 1];
+        private char[] word = new char[Board.SIZE + 1];
+        private int depth;
+
+        Search() {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            edges[0] = lexicon.firstEdge(lexicon.root());
+        }
+
+        /**
+         * Tries to put a letter at a position of the word.
+         *
+         * @return whether the letter may go there, in which case leave() is called before the next letter is tried
+         */
+        abstract boolean enter(int depth, int letter);
+
+        /**
+         * Takes back the letter entered at a position.
+         */
+        abstract void leave(int depth, int letter);
+
+        /**
+         * @return whether the word ending at a position is a result
+         */
+        abstract boolean accepts(int depth);
+
+        /**
+         * @return whether any result may continue through a node, after the letter entered at a position
+         */
+        abstract boolean descend(int depth, int node);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            while (depth >= 0) {
+                int edge = edges[depth];
+                if (edge == -1) {
+                    if (--depth >= 0) {
+                        leave(depth, lexicon.letter(edges[depth]));
+                        edges[depth] = lexicon.nextEdge(edges[depth]);
+                    }
+                    continue;
+                }
+
+                int letter = lexicon.letter(edge);
+                if (!enter(depth, letter)) {
+                    edges[depth] = lexicon.nextEdge(edge);
+                    continue;
+                }
+                word[depth] = (char) ('A' + letter);
+                String found = lexicon.isTerminal(edge) && accepts(depth) ? new String(word, 0, depth + 1) : null;
+
+                int child = lexicon.child(edge);
+                if (child != 0 && descend(depth, child)) {
+                    if (++depth == edges.length) {
+                        edges = Arrays.copyOf(edges, depth * 2);
+                        word = Arrays.copyOf(word, depth * 2);
+                    }
+                    edges[depth] = lexicon.firstEdge(child);
+                }
+                else {
+                    leave(depth, letter);
+                    edges[depth] = lexicon.nextEdge(edge);
+                }
+
+                if (found != null) {
+                    action.accept(found);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Words made from the letters of a rack, using a blank for a letter the rack has run out of.
+     */
+    private class RackSearch extends Search {
+        private final int[] counts = new int[Lexicon.ALPHABET];
+        private int blanks;
+        private int left;
+        private boolean[] usedBlank = new boolean[Board.SIZE + 1];
+
+        RackSearch(String rack) {
+            this.blanks = count(rack, counts);
+            this.left = rack.length();
+        }
+
+        @Override
+        boolean enter(int depth, int letter) {
+            if (depth == usedBlank.length) usedBlank = Arrays.copyOf(usedBlank, depth * 2);
+            if (counts[letter] > 0) {
+                counts[letter]--;
+                usedBlank[depth] = false;
+            }
+            else if (blanks > 0) {
+                blanks--;
+                usedBlank[depth] = true;
+            }
+            else return false;
+            left--;
+            return true;
+        }
+
+        @Override
+        void leave(int depth, int letter) {
+            if (usedBlank[depth]) blanks++;
+            else counts[letter]++;
+            left++;
+        }
+
+        @Override
+        boolean accepts(int depth) {
+            return true;
+        }
+
+        @Override
+        boolean descend(int depth, int node) {
+            return left > 0;
+        }
+    }
+
+    /**
+     * Words matching a pattern, found by following the set of pattern positions each prefix
+     * can have reached, so every word is visited once however many ways it matches.
+     */
+    private class PatternSearch extends Search {
+        private final char[] pattern;
+        private final long end;
+        //The letters the pattern still spells out from each position on
+        private final int[] literals;
+        //The set of positions reached after each prefix, as a bitmask, with the empty prefix first
+        private long[] states = new long[Board.SIZE + 2];
+
+        PatternSearch(String pattern) {
+            if (pattern.length() >= Long.SIZE) throw new IllegalArgumentException("Patterns are at most " + (Long.SIZE - 1) + " characters.");
+            this.pattern = pattern.toUpperCase().toCharArray();
+            for (char c : this.pattern) {
+                if (c != BLANK && c != ANY && (c < 'A' || c > 'Z')) throw new IllegalArgumentException("Not a letter or wildcard: " + c);
+            }
+            this.end = 1L << this.pattern.length;
+            this.literals = new int[this.pattern.length + 1];
+            for (int i = this.pattern.length - 1; i >= 0; i--) {
+                char c = this.pattern[i];
+                literals[i] = literals[i + 1] | (c >= 'A' && c <= 'Z' ? 1 << (c - 'A') : 0);
+            }
+            states[0] = close(1L);
+        }
+
+        /**
+         * @return the positions, with every position after a run of '*' added
+         */
+        private long close(long positions) {
+            for (int i = 0; i < pattern.length; i++) {
+                if ((positions & 1L << i) != 0 && pattern[i] == ANY) positions |= 1L << (i + 1);
+            }
+            return positions;
+        }
+
+        @Override
+        boolean enter(int depth, int letter) {
+            long positions = states[depth];
+            long next = 0;
+            char c = (char) ('A' + letter);
+            for (int i = 0; i < pattern.length; i++) {
+                if ((positions & 1L << i) == 0) continue;
+                if (pattern[i] == ANY) next |= 1L << i;
+                else if (pattern[i] == BLANK || pattern[i] == c) next |= 1L << (i + 1);
+            }
+            if (next == 0) return false;
+            if (depth + 1 == states.length) states = Arrays.copyOf(states, states.length * 2);
+            states[depth + 1] = close(next);
+            return true;
+        }
+
+        @Override
+        void leave(int depth, int letter) {
+        }
+
+        @Override
+        boolean accepts(int depth) {
+            return (states[depth + 1] & end) != 0;
+        }
+
+        @Override
+        boolean descend(int depth, int node) {
+            //A longer word must still spell out the letters ahead of one of the positions reached
+            long positions = states[depth + 1] & (end - 1);
+            int reachable = reachable(node);
+            for (int i = 0; positions != 0; i++, positions >>>= 1) {
+                if ((positions & 1) != 0 && (literals[i] & ~reachable) == 0) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Words containing a multiset of letters. A branch is dropped once the letters still
+     * needed are not all reachable below it.
+     */
+    private class ContainsSearch extends Search {
+        private final int[] needed = new int[Lexicon.ALPHABET];
+        private int neededMask;
+        private int left;
+        private boolean[] counted = new boolean[Board.SIZE + 1];
+
+        ContainsSearch(String letters) {
+            if (count(letters, needed) > 0) throw new IllegalArgumentException("Blanks cannot be contained: " + letters);
+            for (int letter = 0; letter < Lexicon.ALPHABET; letter++) {
+                if (needed[letter] > 0) neededMask |= 1 << letter;
+                left += needed[letter];
+            }
+        }
+
+        @Override
+        boolean enter(int depth, int letter) {
+            if (depth == counted.length) counted = Arrays.copyOf(counted, depth * 2);
+            counted[depth] = needed[letter] > 0;
+            if (counted[depth]) {
+                if (--needed[letter] == 0) neededMask &= ~(1 << letter);
+                left--;
+            }
+            return true;
+        }
+
+        @Override
+        void leave(int depth, int letter) {
+            if (counted[depth]) {
+                if (needed[letter]++ == 0) neededMask |= 1 << letter;
+                left++;
+            }
+        }
+
+        @Override
+        boolean accepts(int depth) {
+            return left == 0;
+        }
+
+        @Override
+        boolean descend(int depth, int node) {
+            return (neededMask & ~reachable(node)) == 0;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * The Zobrist class holds the random keys used to hash game positions.
+ *
+ * A position's hash is the XOR of one key for every tile on the board and one key for how many
+ * of each tile each rack holds. Placing or removing a tile, or changing a rack count, updates the
+ * hash with a single XOR, so the hash can be kept up to date as a search plays and takes back moves.
+ * The keys come from a fixed seed, so the same position always has the same hash.
+ */
+public final class Zobrist {
+    private static final int TYPES = LeaveTable.TYPES;
+
+    //Letters are keyed by their low 5 bits, so 'A' to 'Z' are 1 to 26 and an unset blank is 0
+    private static final int LETTERS = 32;
+    //The most racks a game can have, and the most of one tile a rack can hold
+    public static final int SIDES = 4;
+    public static final int COUNTS = 16;
+
+    //Blanks score nothing, so a blank showing a letter has a different key to the letter's tile
+    private static final long[] SQUARES = new long[Board.SIZE * Board.SIZE * 2 * LETTERS];
+    private static final long[] RACKS = new long[SIDES * TYPES * COUNTS];
+    private static final long[] TURNS = new long[SIDES];
+    //The premium squares, which a custom board can move
+    private static final int PREMIUM_TYPES = Board.tileType.values().length;
+    private static final long[] PREMIUMS = new long[Board.SIZE * Board.SIZE * PREMIUM_TYPES];
+    //Whose turn it is in a two-player search, and whether the last turn was a pass
+    public static final long SIDE;
+    public static final long PASSED;
+    //Whether it is the first turn, when moves must cover the centre square
+    public static final long FIRST_TURN;
+
+    static {
+        long state = 0x5A0B_7157L;
+        for (int i = 0; i < SQUARES.length; i++) SQUARES[i] = state = next(state);
+        for (int i = 0; i < RACKS.length; i++) RACKS[i] = state = next(state);
+        for (int i = 0; i < TURNS.length; i++) TURNS[i] = state = next(state);
+        SIDE = state = next(state);
+        PASSED = state = next(state);
+        FIRST_TURN = state = next(state);
+        for (int i = 0; i < PREMIUMS.length; i++) PREMIUMS[i] = state = next(state);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * One SplitMix64 step, used only to fill the keys.
+     */
+    private static long next(long state) {
+        long z = state + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param row    the row of the tile
+     * @param col    the column of the tile
+     * @param letter the letter the tile shows
+     * @param blank  whether the tile is a blank
+     * @return the key of the tile on that square
+     */
+    public static long square(int row, int col, char letter, boolean blank) {
+        return SQUARES[((row * Board.SIZE + col) * 2 + (blank ? 1 : 0)) * LETTERS + (letter & (LETTERS - 1))];
+    }
+
+    /**
+     * @param side  the rack, below SIDES
+     * @param type  the tile, indexed by letter with the blank last
+     * @param count how many of the tile the rack holds; counts of COUNTS or more wrap around
+     * @return the key of the rack holding that many of the tile, which is 0 when it holds none
+     */
+    public static long rack(int side, int type, int count) {
+        return count == 0 ? 0 : RACKS[(side * TYPES + type) * COUNTS + (count & (COUNTS - 1))];
+    }
+
+    /**
+     * @param side   the rack, below SIDES
+     * @param counts how many of each tile the rack holds, indexed by letter with the blank last
+     * @return the hash of the whole rack
+     */
+    public static long rack(int side, int[] counts) {
+        long hash = 0;
+        for (int type = 0; type < TYPES; type++) hash ^= rack(side, type, counts[type]);
+        return hash;
+    }
+
+    /**
+     * @param player the number of the player whose turn it is, below SIDES
+     * @return the key of that player's turn
+     */
+    public static long turn(int player) {
+        return TURNS[player];
+    }
+
+    /**
+     * Hashes the layout of the premium squares in Board.premiumTiles, which importing a custom
+     * board replaces, so the same tiles under another layout hash differently.
+     *
+     * @return the hash of every premium square
+     */
+    public static long premiums() {
+        long hash = 0;
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Board.tileType premium = Board.premiumTiles[row][col];
+                if (premium != Board.tileType.Normal) hash ^= PREMIUMS[(row * Board.SIZE + col) * PREMIUM_TYPES + premium.ordinal()];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes a board from scratch. Boards keep their own hash up to date, which getHash() returns.
+     *
+     * @param board the board
+     * @return the hash of every tile on the board
+     */
+    public static long board(Board board) {
+        long hash = 0;
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                char letter = board.getLetter(row, col);
+                if (letter != 0) hash ^= square(row, col, letter, board.getScore(row, col) == 0);
+            }
+        }
+        return hash;
+    }
+}
@@ -3,6 +3,7 @@ import org.junit.Test;
 import org.junit.After;
 
 import java.io.File;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -73,6 +74,63 @@ public class GameTest {
         assertTrue(valid);
     }
 
+    @Test
+    public void aiTurnsRunThroughExecutors() {
+        game.addAIPlayer("AI 1");
+        game.addAIPlayer("AI 2");
+        List<Runnable> searches = new java.util.ArrayList<>();
+        List<Runnable> callbacks = new java.util.ArrayList<>();
+        game.setAIExecutors(searches::add, callbacks::add);
+
+        game.nextTurn(false);
+        game.nextTurn(false);
+        assertTrue(game.isAIThinking());
+        assertEquals("AI 1", game.getCurrentPlayer().getName());
+
+        //A cancelled search never posts its move
+        game.cancelAITurn();
+        searches.removeFirst().run();
+        assertTrue(callbacks.isEmpty());
+        assertFalse(game.isAIThinking());
+
+        game.playAITurns();
+        searches.removeFirst().run();
+        callbacks.removeFirst().run();
+        assertEquals("AI 2", game.getCurrentPlayer().getName());
+        searches.removeFirst().run();
+        callbacks.removeFirst().run();
+
+        assertFalse(game.isAIThinking());
+        assertEquals("Alice", game.getCurrentPlayer().getName());
+        assertTrue(searches.isEmpty());
+    }
+
+    @Test
+    public void cancelledAISearchStops() throws Exception {
+        Board board = new Board();
+        board.placeTile(Board.CENTER, Board.CENTER - 1, new Tile('C', 3));
+        board.placeTile(Board.CENTER, Board.CENTER, new Tile('A', 1));
+        board.placeTile(Board.CENTER, Board.CENTER + 1, new Tile('T', 1));
+        AIPlayer ai = new AIPlayer("Bot");
+        for (char letter : "AEINRST".toCharArray()) ai.addTile(new Tile(letter, 1));
+        //Enough rollouts that the simulation would run for hours
+        ai.setRollouts(Integer.MAX_VALUE);
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(2);
+        java.util.concurrent.FutureTask<AIMove> search = new java.util.concurrent.FutureTask<>(
+                ai.prepareMove(Dictionary.shared(Game.WORDLIST), board, false, 0, pool));
+        Thread worker = Thread.ofVirtual().start(search);
+        Thread.sleep(200);
+        assertTrue(worker.isAlive());
+
+        //The thread running the search and the rollouts it started on the pool all stop
+        search.cancel(true);
+        worker.join(5000);
+        assertFalse(worker.isAlive());
+        assertTrue(pool.awaitQuiescence(5, java.util.concurrent.TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
     @Test
     public void endGameRunsWithoutError() {
         Player player1 = game.getCurrentPlayer();
@@ -137,8 +195,8 @@ public class GameTest {
 
         AIMove AIMove = ai.getBestMove(dict, board, true);
 
-        assertNotNull(move);
-        assertEquals("AXE", move.word());
+        assertNotNull(AIMove);
+        assertEquals("AXE", AIMove.word());
     }
 
     @Test
@@ -176,6 +234,659 @@ public class GameTest {
 
         assertNull("AI should not place tiles on occupied center", AIMove);
     }
+
+    @Test
+    public void aiExtendsExistingWord() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        dict.getWords().add("CATS");
+
+        Board board = new Board();
+        board.placeTile(Board.CENTER, Board.CENTER - 1, new Tile('C', 3));
+        board.placeTile(Board.CENTER, Board.CENTER, new Tile('A', 1));
+        board.placeTile(Board.CENTER, Board.CENTER + 1, new Tile('T', 1));
+
+        AIPlayer ai = new AIPlayer("Bot");
+        ai.addTile(new Tile('S', 1));
+
+        AIMove AIMove = ai.getBestMove(dict, board, false);
+
+        assertNotNull("AI should hook an S onto CAT", AIMove);
+        assertEquals("CATS", AIMove.word());
+        assertEquals(Board.CENTER - 1, AIMove.startCol());
+    }
+    @Test
+    public void parallelSearchMatchesSequentialSearch() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        dict.getWords().add("CATS");
+        dict.getWords().add("ACT");
+        dict.getWords().add("SAT");
+
+        Board board = new Board();
+        board.placeTile(Board.CENTER, Board.CENTER - 1, new Tile('C', 3));
+        board.placeTile(Board.CENTER, Board.CENTER, new Tile('A', 1));
+        board.placeTile(Board.CENTER, Board.CENTER + 1, new Tile('T', 1));
+
+        AIPlayer ai = new AIPlayer("Bot");
+        ai.addTile(new Tile('S', 1));
+        ai.addTile(new Tile('A', 1));
+        ai.addTile(new Tile('C', 3));
+
+        //Search both times rather than answering the second search from the cache
+        ai.setMoveCache(new MoveCache(0));
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            assertEquals(ai.getBestMove(dict, board, false), ai.getBestMove(dict, board, false, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void anytimeSearchMatchesFullSearchWhenItFinishes() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        dict.getWords().add("CATS");
+        dict.getWords().add("ACT");
+        dict.getWords().add("SAT");
+
+        Board board = new Board();
+        board.placeTile(Board.CENTER, Board.CENTER - 1, new Tile('C', 3));
+        board.placeTile(Board.CENTER, Board.CENTER, new Tile('A', 1));
+        board.placeTile(Board.CENTER, Board.CENTER + 1, new Tile('T', 1));
+
+        AIPlayer ai = new AIPlayer("Bot");
+        ai.addTile(new Tile('S', 1));
+        ai.addTile(new Tile('A', 1));
+        ai.addTile(new Tile('C', 3));
+
+        AIPlayer.SearchReport report = ai.search(dict, board, false, 60_000);
+        assertTrue(report.complete());
+        assertEquals(ai.getBestMove(dict, board, false), report.move());
+        assertEquals(1.0, report.coverage(), 0.0);
+
+        //With no time at all the search stops before covering the board, but still finds a move
+        AIPlayer.SearchReport expired = ai.search(dict, board, false, 0);
+        assertFalse(expired.complete());
+        assertNotNull(expired.move());
+        assertTrue(expired.score() > 0);
+    }
+
+    @Test
+    public void seededTileBagReplaysItsDraws() throws Exception {
+        TileBag bag = new TileBag(42);
+        bag.drawTile();
+        bag.drawTile();
+
+        //A saved bag carries on drawing where it left off
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes)) {
+            out.writeObject(bag);
+        }
+        TileBag copy;
+        try (java.io.ObjectInputStream in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (TileBag) in.readObject();
+        }
+        assertEquals(42, copy.getSeed());
+        while (!bag.isEmpty()) {
+            assertEquals(bag.drawTile().getLetter(), copy.drawTile().getLetter());
+        }
+        assertTrue(copy.isEmpty());
+
+        //Undoing an exchange rewinds the bag, so exchanging again draws the same tiles
+        Game seeded = new Game(42);
+        seeded.addPlayer("Alice");
+        seeded.addPlayer("Bob");
+        seeded.getCurrentPlayer().addTile(seeded.getTileBag());
+        seeded.markUndoPoint();
+        seeded.nextTurn(true);
+        String drawn = seeded.getPlayers().getFirst().getHand().toString();
+        seeded.undo();
+        seeded.markUndoPoint();
+        seeded.nextTurn(true);
+        assertEquals(drawn, seeded.getPlayers().getFirst().getHand().toString());
+    }
+
+    @Test
+    public void leaveRanksArePerfectHash() {
+        boolean[] used = new boolean[LeaveTable.SIZE];
+        int[] counts = new int[LeaveTable.TYPES];
+        assertEquals(LeaveTable.SIZE, countRanks(used, counts, 0, 0));
+    }
+
+    private int countRanks(boolean[] used, int[] counts, int type, int size) {
+        if (type == LeaveTable.TYPES) {
+            int rank = LeaveTable.rank(counts);
+            assertFalse(used[rank]);
+            used[rank] = true;
+            return 1;
+        }
+        int total = 0;
+        for (int n = 0; size + n <= LeaveTable.MAX_TILES; n++) {
+            counts[type] = n;
+            total += countRanks(used, counts, type + 1, size + n);
+        }
+        counts[type] = 0;
+        return total;
+    }
+
+    @Test
+    public void mappedLeaveTableMatchesItsValues() throws Exception {
+        short[] values = new short[LeaveTable.SIZE];
+        for (int rank = 0; rank < values.length; rank++) values[rank] = (short) (rank % 2001 - 1000);
+        File file = File.createTempFile("leaves", ".bin");
+        try {
+            LeaveTable.of(values).write(file);
+            LeaveTable table = LeaveTable.map(file);
+            assertTrue(table.isMapped());
+            assertEquals(1000, table.maxValue());
+
+            int[] leave = new int[LeaveTable.TYPES];
+            leave['Q' - 'A'] = 1;
+            leave[LeaveTable.BLANK] = 2;
+            int rank = LeaveTable.rank(leave);
+            assertEquals(values[rank], table.value(leave));
+            assertEquals(values[LeaveTable.SIZE - 1], table.value(LeaveTable.SIZE - 1));
+
+            //Loaded or not, a table rejects leaves it has no value for
+            leave['E' - 'A'] = LeaveTable.MAX_TILES;
+            for (LeaveTable checked : List.of(table, LeaveTable.EMPTY)) {
+                assertThrows(IllegalArgumentException.class, () -> checked.value(leave));
+                assertThrows(IllegalArgumentException.class, () -> checked.value(LeaveTable.SIZE));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void aiKeepsValuableLeave() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        dict.getWords().add("CATS");
+
+        AIPlayer ai = new AIPlayer("Bot");
+        ai.addTile(new Tile('C', 3));
+        ai.addTile(new Tile('A', 1));
+        ai.addTile(new Tile('T', 1));
+        ai.addTile(new Tile('S', 1));
+        assertEquals("CATS", ai.getBestMove(dict, new Board(), true).word());
+
+        //Keeping the S is worth more than the points it would score
+        short[] values = new short[LeaveTable.SIZE];
+        int[] leave = new int[LeaveTable.TYPES];
+        leave['S' - 'A'] = 1;
+        values[LeaveTable.rank(leave)] = 100;
+        ai.setLeaveTable(LeaveTable.of(values));
+        assertEquals("CAT", ai.getBestMove(dict, new Board(), true).word());
+        assertEquals("CAT", ai.search(dict, new Board(), true, 60_000).move().word());
+    }
+
+    @Test
+    public void simulationIsRepeatableAndLeavesBoardUnchanged() {
+        Dictionary dict = new Dictionary();
+        for (String word : List.of("CAT", "CATS", "AT", "TA", "SAT", "AS", "TO", "OAT", "COAT", "COATS", "TACO", "TACOS")) {
+            dict.getWords().add(word);
+        }
+        Board board = new Board();
+        board.placeTile(7, 7, new Tile('C', 3));
+        board.placeTile(7, 8, new Tile('A', 1));
+        board.placeTile(7, 9, new Tile('T', 1));
+
+        AIPlayer ai = new AIPlayer("Bot");
+        ai.addTile(new Tile('S', 1));
+        ai.addTile(new Tile('O', 1));
+        ai.addTile(new Tile('A', 1));
+        ai.addTile(new Tile('T', 1));
+        Board before = new Board(board);
+
+        MoveSimulator.Result sequential = ai.simulate(dict, board, 3, 40, null);
+        MoveSimulator.Result parallel = ai.simulate(dict, board, 3, 40, java.util.concurrent.ForkJoinPool.commonPool());
+        assertNotNull(sequential.move());
+        assertEquals(sequential.move(), parallel.move());
+        assertArrayEquals(sequential.spreads(), parallel.spreads(), 0);
+        assertEquals(before, board);
+    }
+
+    @Test
+    public void endgameSolverFindsBestSpread() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        dict.getWords().add("CATS");
+        dict.getWords().add("SCAT");
+        dict.getWords().add("AT");
+
+        Board board = new Board();
+        board.placeTile(Board.CENTER, Board.CENTER - 1, new Tile('C', 3));
+        board.placeTile(Board.CENTER, Board.CENTER, new Tile('A', 1));
+        board.placeTile(Board.CENTER, Board.CENTER + 1, new Tile('T', 1));
+        Board before = new Board(board);
+
+        //The opponent's Q can never be played, so the best spread is the best score for the S
+        int[] rack = new int[LeaveTable.TYPES];
+        int[] opponent = new int[LeaveTable.TYPES];
+        rack['S' - 'A'] = 1;
+        opponent['Q' - 'A'] = 1;
+        EndgameSolver solver = new EndgameSolver(dict.getLexicon(), 10);
+        EndgameSolver.Result result = solver.solve(board, rack, opponent, System.nanoTime() + 60_000_000_000L);
+
+        assertTrue(result.solved());
+        assertNotNull(result.move());
+        assertEquals(6, result.spread());
+        assertEquals(before, board);
+
+        //With nothing to play, passing is all that is left
+        result = solver.solve(board, new int[LeaveTable.TYPES], opponent, System.nanoTime() + 60_000_000_000L);
+        assertNull(result.move());
+        assertEquals(0, result.spread());
+    }
+
+    @Test
+    public void zobristHashesFollowPlacedTilesAndRacks() {
+        Board board = new Board();
+        long empty = board.getHash();
+        Tile blank = new Tile('E', 0);
+        board.placeTile(7, 7, new Tile('E', 1));
+        long withE = board.getHash();
+        Board copy = new Board(board);
+        assertEquals(withE, copy.getHash());
+        assertEquals(Zobrist.board(board), withE);
+
+        //A blank showing a letter hashes differently to the letter's own tile
+        board.removeTile(7, 7);
+        assertEquals(empty, board.getHash());
+        board.placeTile(7, 7, blank);
+        assertNotEquals(withE, board.getHash());
+        assertNotEquals(copy, board);
+
+        Player first = new Player("First");
+        Player second = new Player("Second");
+        first.addTile(new Tile('A', 1));
+        first.addTile(new Tile('B', 3));
+        second.addTile(new Tile('B', 3));
+        second.addTile(new Tile('A', 1));
+        assertEquals(first.getRackHash(), second.getRackHash());
+        Tile b = first.removeTileByLetter('B');
+        assertNotEquals(first.getRackHash(), second.getRackHash());
+        first.addTile(0, b);
+        java.util.Collections.reverse(first.getHand());
+        assertEquals(first.getRackHash(), second.getRackHash());
+    }
+
+    @Test
+    public void moveCacheAnswersRepeatedPositions() {
+        Dictionary dict = new Dictionary();
+        for (String word : List.of("CAT", "CATS", "ACT", "SAT", "AT", "AS")) dict.getWords().add(word);
+        Board board = new Board();
+        board.placeTile(Board.CENTER, Board.CENTER - 1, new Tile('C', 3));
+        board.placeTile(Board.CENTER, Board.CENTER, new Tile('A', 1));
+        board.placeTile(Board.CENTER, Board.CENTER + 1, new Tile('T', 1));
+
+        AIPlayer ai = new AIPlayer("Bot");
+        ai.setMoveCache(new MoveCache(1));
+        ai.addTile(new Tile('S', 1));
+        ai.addTile(new Tile('A', 1));
+        ai.addTile(new Tile('C', 3));
+
+        AIMove best = ai.getBestMove(dict, board, false);
+        assertEquals(best, ai.getBestMove(dict, board, false));
+        assertEquals(1, ai.getMoveCache().getStats().hits());
+        assertEquals(1, ai.getMoveCache().getStats().misses());
+
+        //The top moves are searched once, then the best move and shorter lists come from them
+        List<AIMove> top = ai.getTopMoves(dict, board, false, 3);
+        assertEquals(best, top.getFirst());
+        assertEquals(top.subList(0, 2), ai.getTopMoves(dict, board, false, 2));
+        assertEquals(best, ai.getBestMove(dict, board, false));
+        assertEquals(3, ai.getMoveCache().getStats().hits());
+
+        //Another rack is another position, which takes the only place in the cache
+        ai.removeTileByLetter('S');
+        ai.getBestMove(dict, board, false);
+        assertEquals(3, ai.getMoveCache().getStats().misses());
+        assertEquals(1, ai.getMoveCache().getStats().evictions());
+        assertEquals(1, ai.getMoveCache().getStats().size());
+
+        //Moving a premium square, as a custom board does, makes it another position as well
+        Board.tileType premium = Board.premiumTiles[Board.CENTER][Board.CENTER + 2];
+        long key = MoveCache.key(board, ai.getHand(), false);
+        try {
+            Board.premiumTiles[Board.CENTER][Board.CENTER + 2] = Board.tileType.TW;
+            assertNotEquals(key, MoveCache.key(board, ai.getHand(), false));
+            ai.getBestMove(dict, board, false);
+            assertEquals(4, ai.getMoveCache().getStats().misses());
+        } finally {
+            Board.premiumTiles[Board.CENTER][Board.CENTER + 2] = premium;
+        }
+        assertEquals(key, MoveCache.key(board, ai.getHand(), false));
+    }
+
+    @Test
+    public void crossChecksFollowPlacedAndRemovedTiles() {
+        Dictionary dict = new Dictionary();
+        for (String word : List.of("CAT", "AT", "TA")) dict.getWords().add(word);
+        Lexicon lexicon = dict.getLexicon();
+        Board board = new Board();
+        board.placeTile(7, 6, new Tile('C', 3));
+        board.placeTile(7, 7, new Tile('A', 1));
+        board.placeTile(7, 8, new Tile('T', 1));
+        board.updateCrossChecks(lexicon);
+
+        //Under the A only T makes a word down, and nothing fits after CAT across
+        assertEquals(1 << ('T' - 'A'), board.getCrossCheck(8, 7, true));
+        assertEquals(1 << ('A' - 'A'), board.getCrossCheck(8, 8, true));
+        assertEquals(0, board.getCrossCheck(7, 9, false));
+
+        //Removing the A frees the square under it and splits the row
+        board.removeTile(7, 7);
+        board.updateCrossChecks(lexicon);
+        assertEquals((1 << Lexicon.ALPHABET) - 1, board.getCrossCheck(8, 7, true));
+        assertEquals(1 << ('A' - 'A'), board.getCrossCheck(7, 9, false));
+        assertEquals(1 << ('A' - 'A'), board.getCrossCheck(7, 7, false));
+    }
+
+    @Test
+    public void serverSessionsKeepTheirOwnState() {
+        try (GameServer server = new GameServer()) {
+            GameSession first = server.open(List.of("Ann", "Bob"), 0, 1);
+            GameSession second = server.open(List.of("Cat", "Dan"), 0, 1);
+            assertEquals(2, server.size());
+
+            //Exchanging in one game leaves the other's turn and undo history alone
+            first.run(game -> {
+                game.markUndoPoint();
+                game.nextTurn(true);
+            }).join();
+            assertEquals(1, (int) first.submit(Game::getCurrentPlayerNum).join());
+            assertEquals(0, (int) second.submit(Game::getCurrentPlayerNum).join());
+            assertFalse(second.submit(Game::canUndo).join());
+            assertEquals("Bob's turn.", first.getView().getTopText());
+
+            first.run(Game::undo).join();
+            assertEquals(0, (int) first.submit(Game::getCurrentPlayerNum).join());
+            assertEquals(5, first.getStats().commands());
+
+            server.close(second.getId()).join();
+            assertEquals(1, server.size());
+            assertThrows(java.util.concurrent.CompletionException.class, () -> second.submit(Game::canUndo).join());
+        }
+    }
+
+    @Test
+    public void gameLogReplaysToTheSameState() throws Exception {
+        File tempFile = File.createTempFile("scrabble_test_log", ".slog");
+        tempFile.deleteOnExit();
+
+        Game original = new Game(3);
+        original.addAIPlayer("AI 1");
+        original.addAIPlayer("AI 2");
+        try (GameLog log = GameLog.create(tempFile)) {
+            original.setLog(log);
+            for (Player p : original.getPlayers()) {
+                p.addTile(original.getTileBag());
+            }
+            assertThrows(IllegalStateException.class, () -> original.setLog(log));
+
+            //Play AI turns one at a time, then take the last one back
+            java.util.Queue<Runnable> searches = new java.util.ArrayDeque<>();
+            java.util.Queue<Runnable> moves = new java.util.ArrayDeque<>();
+            original.setAIExecutors(searches::add, moves::add);
+            original.playAITurns();
+            for (int turn = 0; turn < 6; turn++) {
+                original.getHistory().begin();
+                searches.poll().run();
+                moves.poll().run();
+            }
+            original.cancelAITurn();
+            original.undo();
+            original.cancelAITurn();
+            assertEquals(7, log.size());
+        }
+
+        List<GameLog.Entry> entries = new java.util.ArrayList<>();
+        GameLog.Header header = GameLog.read(tempFile, entries);
+        assertEquals(3, header.seed());
+        assertEquals(List.of("AI 1", "AI 2"), header.names());
+        assertEquals(GameLog.UNDO, entries.getLast().type());
+
+        Game replayed = GameLog.replay(tempFile);
+        assertEquals(original.getBoard().toString(), replayed.getBoard().toString());
+        assertEquals(original.getCurrentPlayerNum(), replayed.getCurrentPlayerNum());
+        assertEquals(original.getPositionHash(), replayed.getPositionHash());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(original.getPlayers().get(i).getScore(), replayed.getPlayers().get(i).getScore());
+        }
+    }
+
+    @Test
+    public void gameArchiveReplaysRecordedGames() throws Exception {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        dict.getWords().add("CATS");
+        dict.getWords().add("DOG");
+
+        String archive = String.join("\n",
+                "#player1 ann Ann",
+                "#player2 bob Bob",
+                ">ann: ACTRSXY 8G CAT +10 10",
+                ">bob: EIOUVWY -UUVW +0 0",
+                ">ann: RSXYAAB 8G ...S +6 16",
+                ">bob: QZZZEEE 9G ZZZ +90 90",
+                ">bob: QZZZEEE -- -90 0",
+                ">ann: (RXYAAB) +12 28",
+                "#player1 cat Cat",
+                "#player2 dan Dan",
+                ">cat: DO?ABCE H8 DOg +4 4");
+        List<GameArchive.MoveStats> stats = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+        GameArchive.Report report;
+        try (java.util.stream.Stream<GameArchive.GameRecord> games = GameArchive.read("test", new java.io.BufferedReader(new java.io.StringReader(archive)))) {
+            report = GameArchive.analyze(games, dict, 2, false, stats::add);
+        }
+
+        assertEquals(2, report.games());
+        assertEquals(0, report.failed());
+        assertEquals(4, report.moves());
+        assertEquals(1, report.exchanges());
+        assertEquals(1, report.invalid());
+        assertEquals(6, stats.size());
+
+        //The withdrawn ZZZ is taken off the board, and the scores follow the board's premiums
+        Board board = new Board();
+        Tile c = new Tile('C', 3), a = new Tile('A', 1), t = new Tile('T', 1);
+        c.setCoords(Board.CENTER, Board.CENTER - 1);
+        a.setCoords(Board.CENTER, Board.CENTER);
+        t.setCoords(Board.CENTER, Board.CENTER + 1);
+        int catScore = Game.analyzeMove(board, dict, List.of(c, a, t), true).totalScore();
+        for (GameArchive.MoveStats played : stats) {
+            if (played.word().equals("CAT")) assertEquals(catScore, played.score());
+            if (played.word().equals("CATS")) assertEquals(1, played.tiles());
+            if (played.word().equals("ZZZ")) assertFalse(played.valid());
+            if (played.word().equals("DOG")) assertEquals(3, played.tiles());
+        }
+    }
+
+    @Test
+    public void gameArchiveReadsDirectoriesOneGameAtATime() throws Exception {
+        File dir = java.nio.file.Files.createTempDirectory("archive").toFile();
+        File first = new File(dir, "a.gcg"), second = new File(dir, "b.gcg"), notes = new File(dir, "notes.txt");
+        String game = "#player1 ann Ann\n#player2 bob Bob\n>ann: ACTRSXY 8G CAT +10 10\n";
+        String players = "#player1 cat Cat\n#player2 dan Dan\n";
+        //Notes past the reader's buffer, so reading ahead to the second game's turn would read past them
+        java.nio.file.Files.writeString(first.toPath(), game + players + "note\n".repeat(20_000) + ">cat: DO?ABCE H8 DOg +4 4\n");
+        java.nio.file.Files.writeString(second.toPath(), game);
+        java.nio.file.Files.writeString(notes.toPath(), game);
+        try (java.util.stream.Stream<GameArchive.GameRecord> games = GameArchive.read(dir)) {
+            java.util.Iterator<GameArchive.GameRecord> iterator = games.iterator();
+            GameArchive.GameRecord record = iterator.next();
+            assertEquals("a.gcg", record.source());
+            assertEquals(List.of("ann", "bob"), record.players());
+
+            //Only the first game has been read, so cutting the file off after the second game's players drops its turn
+            try (java.io.RandomAccessFile file = new java.io.RandomAccessFile(first, "rw")) {
+                file.setLength(game.length() + players.length());
+            }
+            record = iterator.next();
+            assertEquals("a.gcg", record.source());
+            assertEquals(List.of("cat", "dan"), record.players());
+            assertTrue(record.turns().isEmpty());
+
+            //The next file is opened once the first runs out, and files without the .gcg extension are skipped
+            record = iterator.next();
+            assertEquals("b.gcg", record.source());
+            assertEquals(1, record.turns().size());
+            assertFalse(iterator.hasNext());
+        } finally {
+            for (File file : List.of(first, second, notes, dir)) file.delete();
+        }
+    }
+
+    @Test
+    public void selfPlayIsRepeatableFromItsSeed() {
+        SelfPlay.GameResult first = SelfPlay.playGame(7, 2);
+        SelfPlay.GameResult second = SelfPlay.playGame(7, 2);
+
+        assertTrue(first.turns() > 0);
+        assertEquals(first.finished(), second.finished());
+        assertEquals(first.turns(), second.turns());
+        assertArrayEquals(first.scores(), second.scores());
+    }
+
+    private static Dictionary wordFinderDictionary() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().addAll(List.of("CAT", "CATS", "ACT", "SCAT", "CAST", "COT", "AXE", "ABET", "ARE", "AT",
+                "TACO", "COAT", "OAT", "TA", "EAT", "TEA", "ATE", "TAT"));
+        return dict;
+    }
+
+    @Test
+    public void wordFinderListsRackWordsInOrder() {
+        WordFinder finder = wordFinderDictionary().getWordFinder();
+
+        assertEquals(List.of("AT", "ATE", "EAT", "TA", "TEA"), finder.fromRack("ate").toList());
+        //A blank stands for any letter, so COT and CATS are both playable from CAT and a blank
+        assertEquals(List.of("ACT", "AT", "ATE", "CAST", "CAT", "CATS", "COAT", "COT", "EAT", "OAT", "SCAT", "TA", "TACO", "TAT", "TEA"),
+                finder.fromRack("CAT?").toList());
+        assertEquals(List.of("ACT", "AT", "ATE"), finder.fromRack("CAT?").limit(3).toList());
+        assertTrue(finder.fromRack("QZ").findAny().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> finder.fromRack("CA7"));
+    }
+
+    @Test
+    public void wordFinderFindsAnagramsGroupedByBlanks() {
+        Dictionary dict = wordFinderDictionary();
+        WordFinder finder = dict.getWordFinder();
+
+        assertEquals(List.of("ACT", "CAT"), finder.anagrams("TAC").toList());
+        assertEquals(List.of("ATE", "EAT", "TEA"), finder.anagrams("TE?").toList());
+        //Anagrams with blanks come in the order of the letters the blanks stand for: O, then S
+        assertEquals(List.of("COAT", "TACO", "CAST", "CATS", "SCAT"), finder.anagrams("CAT?").toList());
+        //Two blanks stand for AC, AE, AO, AT and CO in turn, and no pair of letters repeats
+        assertEquals(List.of("ACT", "CAT", "ATE", "EAT", "TEA", "OAT", "TAT", "COT"), finder.anagrams("T??").toList());
+        assertThrows(IllegalArgumentException.class, () -> finder.anagrams("T-A"));
+
+        //Adding a word gives a finder over the new lexicon
+        dict.getWords().add("OCTA");
+        assertEquals(List.of("COAT", "OCTA", "TACO"), dict.getWordFinder().anagrams("COAT").toList());
+    }
+
+    @Test
+    public void wordFinderMatchesPatternsInOrder() {
+        WordFinder finder = wordFinderDictionary().getWordFinder();
+
+        assertEquals(List.of("ABET", "ARE", "ATE", "AXE"), finder.matching("A?E*").toList());
+        assertEquals(List.of("CAST", "CAT", "COAT", "COT"), finder.matching("c*t").toList());
+        assertEquals(List.of("ABET", "ACT", "AT", "CAST", "CAT", "COAT", "EAT", "OAT", "SCAT", "TAT"), finder.matching("*A*T").toList());
+        assertEquals(List.of("ATE", "CATS", "TA"), finder.matching("**T?").toList());
+        assertEquals(List.of("ABET", "ACT", "ARE"), finder.matching("*").limit(3).toList());
+        assertTrue(finder.matching("?").findAny().isEmpty());
+
+        //A pattern holds at most 63 letters and wildcards
+        assertEquals(18, finder.matching("*".repeat(63)).count());
+        assertThrows(IllegalArgumentException.class, () -> finder.matching("*".repeat(64)));
+        assertThrows(IllegalArgumentException.class, () -> finder.matching("C.T"));
+    }
+
+    @Test
+    public void wordFinderFindsWordsContainingLetters() {
+        WordFinder finder = wordFinderDictionary().getWordFinder();
+
+        assertEquals(List.of("CAST", "CATS", "SCAT"), finder.containing("TS").toList());
+        assertEquals(List.of("ACT", "CAST", "CAT", "CATS"), finder.containing("CA").limit(4).toList());
+        //A letter given twice must appear twice
+        assertEquals(List.of("TAT"), finder.containing("TT").toList());
+        assertTrue(finder.containing("Z").findAny().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> finder.containing("A?"));
+    }
+
+    @Test
+    public void dictionaryPicksUpEveryChangeToItsWords() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().addAll(List.of("CAT", "CATS", "DOG", "DOGS", "EMU"));
+        assertTrue(dict.isValidWord("CATS"));
+
+        java.util.Iterator<String> words = dict.getWords().iterator();
+        while (words.hasNext()) {
+            if (words.next().equals("CATS")) words.remove();
+        }
+        assertFalse(dict.isValidWord("CATS"));
+
+        dict.getWords().removeIf(word -> word.startsWith("DOG"));
+        assertFalse(dict.isValidWord("DOG"));
+        dict.getWords().removeAll(List.of("EMU"));
+        assertFalse(dict.isValidWord("EMU"));
+        dict.getWords().retainAll(List.of("DOG"));
+        assertFalse(dict.isValidWord("CAT"));
+        assertEquals(0, dict.getLexicon().size());
+
+        //Dictionaries with the same words are equal, and hash alike
+        Dictionary other = new Dictionary();
+        other.getWords().add("DOG");
+        dict.getWords().add("DOG");
+        assertEquals(dict, other);
+        assertEquals(dict.hashCode(), other.hashCode());
+    }
+
+    @Test
+    public void lexiconAnswersPrefixAndHookQueries() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        dict.getWords().add("CATS");
+        dict.getWords().add("SCAT");
+        dict.getWords().add("COT");
+
+        Lexicon lexicon = dict.getLexicon();
+
+        assertTrue(dict.isValidWord("cat"));
+        assertFalse(dict.isValidWord("CA"));
+        assertTrue(dict.isValidPrefix("CA"));
+        assertFalse(dict.isValidPrefix("CX"));
+        assertEquals(1 << ('S' - 'A'), lexicon.backHooks("CAT"));
+        assertEquals(1 << ('S' - 'A'), lexicon.frontHooks("CAT"));
+        assertEquals((1 << ('A' - 'A')) | (1 << ('O' - 'A')), lexicon.hooks("C", "T"));
+    }
+
+    @Test
+    public void scorerScoresPlacementWithoutChangingBoard() {
+        Dictionary dict = new Dictionary();
+        dict.getWords().add("CAT");
+        MoveScorer scorer = new MoveScorer(dict.getLexicon());
+
+        scorer.reset(board);
+        scorer.place(Board.CENTER, Board.CENTER - 1, 'C', 3);
+        scorer.place(Board.CENTER, Board.CENTER, 'A', 1);
+        scorer.place(Board.CENTER, Board.CENTER + 1, 'T', 1);
+
+        assertEquals(10, scorer.score(true));
+        assertEquals("CAT", scorer.analyze(true).mainWord());
+        assertNull(board.getTile(Board.CENTER, Board.CENTER));
+
+        scorer.reset(board);
+        scorer.place(Board.CENTER, Board.CENTER, 'C', 3);
+        scorer.place(Board.CENTER, Board.CENTER + 1, 'T', 1);
+        assertEquals(-1, scorer.score(true));
+    }
+
     private Board board;
 
     @Test
@@ -244,23 +955,40 @@ public class GameTest {
         assertTrue("Placement touching neighbor should be valid.", result);
     }
 
+    @Test
+    public void packedBoardTracksPlacementsAndCopies() {
+        board.placeTile(7, 7, new Tile('A', 1));
+        board.placeTile(7, 8, new Tile('T', 1));
+        Board copy = new Board(board);
+        board.removeTile(7, 8);
+
+        assertEquals('A', board.getLetter(7, 7));
+        assertEquals(0, board.getLetter(7, 8));
+        assertEquals('T', copy.getLetter(7, 8));
+        assertEquals((1 << 7) | (1 << 8), copy.getRowBits(7));
+        assertTrue(copy.haveEmptySpace(7, 8, 7, true));
+        assertFalse(board.haveEmptySpace(7, 8, 7, true));
+        assertTrue(board.hasNeighbor(6, 7));
+        assertEquals((1 << 6) | (1 << 8), board.getAnchors(7, true));
+    }
+
     @Test
     public void testUndoRestoresPreviousState() throws Exception {
         Game game = new Game();
         game.addPlayer("P1");
         game.addPlayer("P2");
 
-        game.storeState(game.getUndoStack());
+        game.markUndoPoint();
 
         Tile t = new Tile('A', 1);
         game.getCurrentPlayer().addTile(t);
+        game.selectTile('A');
         game.placeTile(Board.CENTER, Board.CENTER);
 
-        game.storeState(game.getUndoStack());
-
-        Game previous = game.undo();
+        game.undo();
 
-        assertNull(previous.getBoard().getTile(Board.CENTER, Board.CENTER));
+        assertNull(game.getBoard().getTile(Board.CENTER, Board.CENTER));
+        assertTrue(game.getCurrentPlayer().getHand().contains(t));
     }
 
     @Test
@@ -275,22 +1003,88 @@ public class GameTest {
             }
         }
 
-        game.selectTile('Z');
+        game.markUndoPoint();
+        game.selectTile('A');
+        game.placeTile(Board.CENTER, Board.CENTER);
+        game.markUndoPoint();
+        game.validateMove(true);
+        game.nextTurn(false);
 
-        game.storeState(game.getUndoStack());
+        String expected = game.getBoard().toString() + game.getPlayers() + game.getTileBag().size();
 
-        Tile t = new Tile('A', 1);
-        game.getCurrentPlayer().addTile(t);
-        game.placeTile(Board.CENTER, Board.CENTER);
+        game.undo();
+        game.undo();
+        assertNull(game.getBoard().getTile(Board.CENTER, Board.CENTER));
 
-        game.storeState(game.getUndoStack());
+        game.redo();
+        game.redo();
 
-        Game expected = game;
+        assertEquals(expected, game.getBoard().toString() + game.getPlayers() + game.getTileBag().size());
+        assertFalse(game.canRedo());
+    }
 
-        Game undone = game.undo();
-        Game redone = undone.redo();
+    @Test
+    public void testUndoReusesSharedDictionary() throws Exception {
+        Game game = new Game();
+        game.addPlayer("P1");
+        game.addPlayer("P2");
+        int loads = Dictionary.getLoadCount();
 
-        assertTrue(expected.equals(redone));
+        File tempFile = File.createTempFile("scrabble_test_save", ".dat");
+        tempFile.deleteOnExit();
+        game.saveGame(tempFile);
+        Game loaded = Game.loadGame(tempFile);
+
+        assertSame(game.getDictionary(), loaded.getDictionary());
+        assertEquals(loads, Dictionary.getLoadCount());
+    }
+
+    @Test
+    public void testHistoryEvictsOldestActions() {
+        Game game = new Game();
+        game.addPlayer("P1");
+        game.addPlayer("P2");
+        GameHistory history = new GameHistory(2, Long.MAX_VALUE);
+
+        for (int i = 0; i < 3; i++) {
+            history.begin();
+            history.record(new GameDelta.ScoreAdded(0, 5));
+        }
+        game.getCurrentPlayer().addScore(15);
+
+        assertTrue(history.undo(game));
+        assertTrue(history.undo(game));
+        assertFalse(history.undo(game));
+        assertEquals(5, game.getCurrentPlayer().getScore());
+
+        GameHistory.Stats stats = history.getStats();
+        assertEquals(1, stats.evictions());
+        assertEquals(1, stats.misses());
+        assertEquals(2, stats.redoDepth());
+    }
+
+    @Test
+    public void testEmptyUndoPointsAreNotKept() {
+        Game game = new Game();
+        game.addPlayer("P1");
+        game.addPlayer("P2");
+        GameHistory history = new GameHistory(2, Long.MAX_VALUE);
+
+        history.begin();
+        history.begin();
+        assertFalse(history.canUndo());
+
+        history.begin();
+        history.record(new GameDelta.ScoreAdded(0, 5));
+        game.getCurrentPlayer().addScore(5);
+        //Marks with nothing recorded after them neither take a place nor need undoing
+        for (int i = 0; i < 3; i++) history.begin();
+        assertEquals(1, history.undoSize());
+        assertEquals(0, history.getStats().evictions());
+
+        assertTrue(history.undo(game));
+        assertEquals(0, game.getCurrentPlayer().getScore());
+        assertFalse(history.canUndo());
     }
 
     @Test
@@ -360,6 +1154,35 @@ public class GameTest {
         assertTrue(original.equals(loaded));
     }
 
-
-
+    @Test
+    public void testLoadReadsSavedAndSerializedGames() throws Exception {
+        Game original = new Game(5);
+        original.addPlayer("P1");
+        original.addAIPlayer("AI");
+        for (Player p : original.getPlayers()) {
+            p.addTile(original.getTileBag());
+        }
+        original.nextTurn(true);
+        original.getPlayers().get(0).addMove(new PlayerMove(12, "CAT"));
+
+        File saved = File.createTempFile("scrabble_test_save", ".dat");
+        saved.deleteOnExit();
+        original.saveGame(saved);
+        File serialized = File.createTempFile("scrabble_test_save", ".dat");
+        serialized.deleteOnExit();
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(new java.io.FileOutputStream(serialized))) {
+            out.writeObject(original);
+        }
+        assertTrue(saved.length() < serialized.length());
+
+        for (File file : new File[] {saved, serialized}) {
+            Game loaded = Game.loadGame(file);
+            assertEquals(original.getPositionHash(), loaded.getPositionHash());
+            assertEquals(original.getPlayers(), loaded.getPlayers());
+            assertTrue(loaded.getPlayers().get(1) instanceof AIPlayer);
+            assertEquals(original.getPlayers().get(0).getRecordedMoves(), loaded.getPlayers().get(0).getRecordedMoves());
+            assertEquals(original.getTileBag().getState(), loaded.getTileBag().getState());
+            assertEquals(original.getTileBag().getTiles(), loaded.getTileBag().getTiles());
+        }
+    }
 }